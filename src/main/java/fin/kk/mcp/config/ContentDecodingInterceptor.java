@@ -0,0 +1,91 @@
+package fin.kk.mcp.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Asks upstream servers for gzip or deflate compressed responses and decompresses the body
+ * while it is being read, since the JDK HttpClient does not do this itself.
+ *
+ * The Content-Encoding and Content-Length headers are removed from decoded responses so
+ * downstream code sees a plain body.
+ */
+final class ContentDecodingInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+        String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null) {
+            return response;
+        }
+        encoding = encoding.trim().toLowerCase(Locale.ROOT);
+        if (encoding.equals("gzip") || encoding.equals("x-gzip") || encoding.equals("deflate")) {
+            return new DecodingResponse(response, encoding);
+        }
+        return response;
+    }
+
+    private static final class DecodingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final String encoding;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        private DecodingResponse(ClientHttpResponse delegate, String encoding) {
+            this.delegate = delegate;
+            this.encoding = encoding;
+            HttpHeaders decodedHeaders = new HttpHeaders();
+            decodedHeaders.putAll(delegate.getHeaders());
+            decodedHeaders.remove(HttpHeaders.CONTENT_ENCODING);
+            decodedHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(decodedHeaders);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream raw = delegate.getBody();
+                body = encoding.equals("deflate") ? new InflaterInputStream(raw) : new GZIPInputStream(raw, 8192);
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
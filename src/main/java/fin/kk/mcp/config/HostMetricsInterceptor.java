@@ -0,0 +1,96 @@
+package fin.kk.mcp.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks upstream exchanges per host as the {@code upstream.http.active} gauge: an exchange
+ * holds a pooled connection (or HTTP/2 stream) from sending the request until the response
+ * is closed. Request counts and latencies are covered by {@code http.client.requests}.
+ */
+final class HostMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AtomicInteger> activeByHost = new ConcurrentHashMap<>();
+
+    HostMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        AtomicInteger active = activeByHost.computeIfAbsent(String.valueOf(request.getURI().getHost()), this::register);
+        active.incrementAndGet();
+        try {
+            return new TrackedResponse(execution.execute(request, body), active);
+        } catch (IOException | RuntimeException e) {
+            active.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private AtomicInteger register(String host) {
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("upstream.http.active", active, AtomicInteger::get)
+                .tag("host", host)
+                .description("Upstream HTTP exchanges in progress per host")
+                .register(meterRegistry);
+        return active;
+    }
+
+    private static final class TrackedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final AtomicInteger active;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private TrackedResponse(ClientHttpResponse delegate, AtomicInteger active) {
+            this.delegate = delegate;
+            this.active = active;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    active.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -37,6 +37,9 @@ public class OpenAiConfig {
     @Value("${openai.function-calling-enabled:true}")
     private Boolean functionCallingEnabled;
 
+    @Value("${openai.streaming-enabled:false}")
+    private Boolean streamingEnabled;
+
     /**
      * WebClient configured for OpenAI API calls
      */
@@ -82,4 +85,8 @@ public class OpenAiConfig {
     public Boolean getFunctionCallingEnabled() {
         return functionCallingEnabled;
     }
+
+    public Boolean getStreamingEnabled() {
+        return streamingEnabled;
+    }
 } 
\ No newline at end of file
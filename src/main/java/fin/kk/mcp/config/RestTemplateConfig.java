@@ -1,32 +1,76 @@
 package fin.kk.mcp.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Configuration of the RestTemplate used for upstream calls (Check24 API).
+ *
+ * Requests go through a shared JDK {@link HttpClient}, which keeps connections alive and
+ * pools them per host, negotiates HTTP/2 where the server supports it and falls back to
+ * HTTP/1.1 otherwise. Building on {@link RestTemplateBuilder} keeps Spring Boot's
+ * {@code http.client.requests} observations.
+ */
 @Configuration
 public class RestTemplateConfig {
 
+    @Value("${upstream.http.connect-timeout:PT10S}")
+    private Duration connectTimeout;
+
+    @Value("${upstream.http.read-timeout:PT30S}")
+    private Duration readTimeout;
+
+    @Value("${upstream.http.version:HTTP_2}")
+    private HttpClient.Version httpVersion;
+
+    @Value("${upstream.http.compression-enabled:true}")
+    private boolean compressionEnabled;
+
+    /**
+     * Shared HTTP client; its connection pool lives as long as the application context
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000); // 10 seconds
-        factory.setReadTimeout(30000);    // 30 seconds
-        
-        RestTemplate restTemplate = new RestTemplate(factory);
-        
+    public HttpClient upstreamHttpClient() {
+        return HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder, HttpClient upstreamHttpClient,
+                                     MeterRegistry meterRegistry) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(upstreamHttpClient);
+        factory.setReadTimeout(readTimeout);
+
+        RestTemplate restTemplate = restTemplateBuilder
+                .requestFactory(() -> factory)
+                .build();
+
         // Add User-Agent header to mimic browser request
         restTemplate.getInterceptors().add((request, body, execution) -> {
-            request.getHeaders().add("User-Agent", 
+            request.getHeaders().add("User-Agent",
                 "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            request.getHeaders().add("Accept", 
+            request.getHeaders().add("Accept",
                 "application/json, text/plain, */*");
-            request.getHeaders().add("Accept-Language", 
+            request.getHeaders().add("Accept-Language",
                 "de-DE,de;q=0.9,en;q=0.8");
             return execution.execute(request, body);
         });
-        
+        restTemplate.getInterceptors().add(new HostMetricsInterceptor(meterRegistry));
+        if (compressionEnabled) {
+            restTemplate.getInterceptors().add(new ContentDecodingInterceptor());
+        }
+
         return restTemplate;
     }
-} 
\ No newline at end of file
+}
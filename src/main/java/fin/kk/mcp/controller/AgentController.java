@@ -12,9 +12,14 @@ import fin.kk.mcp.service.OpenAiService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -37,45 +42,69 @@ public class AgentController {
     @Autowired
     private DemoDataService demoDataService;
 
+    @Value("${agent.max-processing-time:PT5M}")
+    private Duration streamTimeout;
+
     /**
-     * Process a chat message
+     * Process a chat message. The request is handled asynchronously, so no servlet thread
+     * waits for OpenAI while the answer is generated.
      */
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatMessage message) {
-        try {
-            logger.info("Received chat message from session {}: {}", message.getSessionId(), message.getMessage());
-            
-            // Generate session ID if not provided
-            if (message.getSessionId() == null || message.getSessionId().trim().isEmpty()) {
-                message.setSessionId(UUID.randomUUID().toString());
-                logger.info("Generated new session ID: {}", message.getSessionId());
-            }
-            
-            // Set role to user if not specified
-            if (message.getRole() == null) {
-                message.setRole("user");
-            }
-            
-            // Process message with OpenAI service
-            logger.info("Processing message with OpenAI service");
-            ChatResponse response = openAiService.processMessage(message);
-            
-            logger.info("Generated response for session {}: {} (took {}ms)", 
-                       response.getSessionId(), 
-                       response.getFinalResponse().substring(0, Math.min(100, response.getFinalResponse().length())),
-                       response.getProcessingTimeMs());
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            logger.error("Error processing chat message: {}", e.getMessage(), e);
-            
-            ChatResponse errorResponse = new ChatResponse();
-            errorResponse.setSessionId(message.getSessionId());
-            errorResponse.setError("I'm sorry, I encountered an error processing your message. Please try again.");
-            
-            return ResponseEntity.ok(errorResponse);
+    public Mono<ResponseEntity<ChatResponse>> chat(@RequestBody ChatMessage message) {
+        logger.info("Received chat message from session {}: {}", message.getSessionId(), message.getMessage());
+        
+        // Generate session ID if not provided
+        if (message.getSessionId() == null || message.getSessionId().trim().isEmpty()) {
+            message.setSessionId(UUID.randomUUID().toString());
+            logger.info("Generated new session ID: {}", message.getSessionId());
+        }
+        
+        // Set role to user if not specified
+        if (message.getRole() == null) {
+            message.setRole("user");
         }
+        
+        // Process message with OpenAI service
+        logger.info("Processing message with OpenAI service");
+        return openAiService.processMessage(message)
+            .map(response -> {
+                logger.info("Generated response for session {}: {} (took {}ms)", 
+                           response.getSessionId(), 
+                           response.getFinalResponse().substring(0, Math.min(100, response.getFinalResponse().length())),
+                           response.getProcessingTimeMs());
+                
+                return ResponseEntity.ok(response);
+            })
+            .onErrorResume(e -> {
+                logger.error("Error processing chat message: {}", e.getMessage(), e);
+                
+                ChatResponse errorResponse = new ChatResponse();
+                errorResponse.setSessionId(message.getSessionId());
+                errorResponse.setError("I'm sorry, I encountered an error processing your message. Please try again.");
+                
+                return Mono.just(ResponseEntity.ok(errorResponse));
+            });
+    }
+
+    /**
+     * Process a chat message and stream the answer as server-sent events (token, tool, done, error)
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatMessage message) {
+        logger.info("Received streaming chat message from session {}: {}", message.getSessionId(), message.getMessage());
+        
+        // Generate session ID if not provided
+        if (message.getSessionId() == null || message.getSessionId().trim().isEmpty()) {
+            message.setSessionId(UUID.randomUUID().toString());
+            logger.info("Generated new session ID: {}", message.getSessionId());
+        }
+        
+        // Set role to user if not specified
+        if (message.getRole() == null) {
+            message.setRole("user");
+        }
+        
+        return ChatEventStreams.of(openAiService.streamMessage(message), streamTimeout);
     }
 
     /**
@@ -192,7 +221,14 @@ public class AgentController {
         // Available MCP tools
         tools.add(createToolInfo("getCards", "Get all available credit cards with details"));
         tools.add(createToolInfo("getCard", "Get details for a specific card by ID"));
+        tools.add(createToolInfo("searchCards", "Search cards by features such as network, fees and insurance"));
+        tools.add(createToolInfo("searchCardsText", "Full-text search over card names, banks, benefits and drawbacks"));
+        tools.add(createToolInfo("rankCards", "Rank cards by annual fee, interest rate, bonus or rating"));
+        tools.add(createToolInfo("recommendCards", "Recommend the best cards for a customer profile"));
+        tools.add(createToolInfo("compareCardCosts", "Yearly total cost of every card for a usage profile"));
+        tools.add(createToolInfo("getCardStatistics", "Card count and min/max/average fee, rate, bonus and rating"));
         tools.add(createToolInfo("getBonuses", "Get card names and signup bonuses"));
+        tools.add(createToolInfo("getCatalogVersion", "Current card catalog version and the versions still available"));
         tools.add(createToolInfo("submitApplication", "Submit a credit card application"));
         tools.add(createToolInfo("getCustomerApplications", "Get all applications for a customer by name"));
         tools.add(createToolInfo("getApplicationStatus", "Get detailed status of a specific application"));
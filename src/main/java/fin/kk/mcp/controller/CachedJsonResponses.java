@@ -0,0 +1,81 @@
+package fin.kk.mcp.controller;
+
+import fin.kk.mcp.service.CachedJsonBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Locale;
+
+/**
+ * Builds responses from pre-serialized JSON bodies, honoring Accept-Encoding and If-None-Match
+ */
+final class CachedJsonResponses {
+
+    private CachedJsonResponses() {
+    }
+
+    /**
+     * Serve the gzip or identity bytes of a body, or 304 if the client already has them
+     * @param body Pre-serialized body
+     * @param ifNoneMatch Value of the If-None-Match request header, may be null
+     * @param acceptEncoding Value of the Accept-Encoding request header, may be null
+     */
+    static ResponseEntity<byte[]> of(CachedJsonBody body, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? body.getGzipEtag() : body.getEtag();
+
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return response.body(body.getGzip());
+        }
+        return response.body(body.getIdentity());
+    }
+
+    /**
+     * If-None-Match uses the weak comparison, so W/ prefixes are ignored
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -1,24 +1,67 @@
 package fin.kk.mcp.controller;
 
+import fin.kk.mcp.dto.CardRecommendationProfile;
+import fin.kk.mcp.dto.CardSearchCriteria;
+import fin.kk.mcp.dto.CardUsageProfile;
 import fin.kk.mcp.model.Card;
+import fin.kk.mcp.service.CardCatalogCache;
+import fin.kk.mcp.service.CardCatalogChange;
+import fin.kk.mcp.service.CardCostService;
+import fin.kk.mcp.service.CardRecommendationService;
+import fin.kk.mcp.service.CardResponseCache;
+import fin.kk.mcp.service.CardSearchService;
 import fin.kk.mcp.service.CardService;
+import fin.kk.mcp.service.CardTextSearchService;
+import fin.kk.mcp.service.CatalogFootprint;
+import fin.kk.mcp.service.FederatedCardCatalog;
+import fin.kk.mcp.service.FederatedCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v2/cards")
 public class CardController {
 
+    private static final String MISSING_SOURCES_HEADER = "X-Catalog-Missing-Sources";
+
     private final CardService cardService;
+    private final CardSearchService cardSearchService;
+    private final CardTextSearchService cardTextSearchService;
+    private final CardRecommendationService cardRecommendationService;
+    private final CardCostService cardCostService;
+    private final CardResponseCache cardResponseCache;
+    private final CardCatalogCache cardCatalogCache;
+    private final FederatedCardCatalog federatedCardCatalog;
+
+    private final List<SseEmitter> changeEmitters = new CopyOnWriteArrayList<>();
 
     @Autowired
-    public CardController(CardService cardService) {
+    public CardController(CardService cardService, CardSearchService cardSearchService,
+                          CardTextSearchService cardTextSearchService, CardRecommendationService cardRecommendationService,
+                          CardCostService cardCostService, CardResponseCache cardResponseCache, CardCatalogCache cardCatalogCache,
+                          FederatedCardCatalog federatedCardCatalog) {
         this.cardService = cardService;
+        this.cardSearchService = cardSearchService;
+        this.cardTextSearchService = cardTextSearchService;
+        this.cardRecommendationService = cardRecommendationService;
+        this.cardCostService = cardCostService;
+        this.cardResponseCache = cardResponseCache;
+        this.cardCatalogCache = cardCatalogCache;
+        this.federatedCardCatalog = federatedCardCatalog;
+        cardCatalogCache.addCatalogChangeListener(this::publishChange);
     }
 
     /**
@@ -31,21 +74,155 @@ public class CardController {
     }
 
     /**
-     * Get cards from Check24 API
+     * Get cards from Check24 API (served from the pre-serialized catalog body)
      */
     @GetMapping("/check24")
-    public ResponseEntity<List<Card>> getCheck24Cards() {
-        List<Card> cards = cardService.fetchCardsFromCheck24Api();
-        return ResponseEntity.ok(cards);
+    public ResponseEntity<byte[]> getCheck24Cards(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CachedJsonResponses.of(cardResponseCache.getCheck24Cards(), ifNoneMatch, acceptEncoding);
     }
 
     /**
-     * Get all cards (combined static and API data)
+     * Get all cards of the federated catalog (Check24 and static data by default). If a source
+     * failed or was too slow the remaining cards are returned and the missing sources are listed
+     * in the X-Catalog-Missing-Sources header.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<Card>> getAllCards() {
-        List<Card> cards = cardService.getAllCards();
-        return ResponseEntity.ok(cards);
+    public ResponseEntity<byte[]> getAllCards(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        FederatedCatalog catalog = federatedCardCatalog.getCatalog();
+        ResponseEntity<byte[]> response = CachedJsonResponses.of(cardResponseCache.getAllCards(catalog), ifNoneMatch, acceptEncoding);
+        if (!catalog.isPartial()) {
+            return response;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.set(MISSING_SOURCES_HEADER, catalog.getSources().stream()
+                .filter(source -> source.getStatus() != FederatedCatalog.Status.OK)
+                .map(FederatedCatalog.SourceResult::getName)
+                .collect(Collectors.joining(",")));
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    /**
+     * Outcome per source of a federated catalog load: status, card count and latency
+     */
+    @GetMapping("/sources")
+    public ResponseEntity<List<FederatedCatalog.SourceResult>> getSources() {
+        return ResponseEntity.ok(federatedCardCatalog.getCatalog().getSources());
+    }
+
+    /**
+     * Search Check24 cards by facets and numeric ranges, e.g.
+     * {@code /search?maxAnnualFee=0&sortBy=customerRating&descending=true&limit=10&offset=10}
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchCards(CardSearchCriteria criteria) {
+        try {
+            return ResponseEntity.ok(cardSearchService.search(criteria));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Full-text search over the Check24 card texts, e.g. {@code /text-search?q=reiseversicherung&limit=5}
+     */
+    @GetMapping("/text-search")
+    public ResponseEntity<?> searchCardsText(@RequestParam("q") String query,
+                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(cardTextSearchService.search(query, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Best Check24 cards for a customer profile, ranked by expected first-year value
+     */
+    @PostMapping("/recommendations")
+    public ResponseEntity<?> recommendCards(@RequestBody CardRecommendationProfile profile) {
+        try {
+            return ResponseEntity.ok(cardRecommendationService.recommend(profile));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Yearly total cost of ownership of the Check24 cards for a usage profile, cheapest first
+     */
+    @PostMapping("/costs")
+    public ResponseEntity<?> compareCardCosts(@RequestBody CardUsageProfile profile) {
+        try {
+            return ResponseEntity.ok(cardCostService.compare(profile));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Count, minimum, maximum, sum and average of the numeric attributes of the Check24 cards
+     * matching the same filters as {@code /search}, e.g. {@code /stats?cardType=CREDIT}
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStatistics(CardSearchCriteria criteria) {
+        try {
+            return ResponseEntity.ok(cardSearchService.summarize(criteria));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Estimated heap footprint of the cached Check24 catalog and its indexes
+     */
+    @GetMapping("/footprint")
+    public ResponseEntity<CatalogFootprint> getFootprint() {
+        return ResponseEntity.ok(cardCatalogCache.getSnapshot().getFootprint());
+    }
+
+    /**
+     * SSE stream of Check24 catalog changes: one "catalog-change" event with the added and
+     * updated cards and the removed card IDs per refresh that changed anything
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges() {
+        SseEmitter emitter = new SseEmitter(300_000L); // 5 minutes timeout
+        changeEmitters.add(emitter);
+
+        emitter.onCompletion(() -> changeEmitters.remove(emitter));
+        emitter.onTimeout(() -> changeEmitters.remove(emitter));
+        emitter.onError((ex) -> changeEmitters.remove(emitter));
+        return emitter;
+    }
+
+    private void publishChange(CardCatalogChange change) {
+        if (change.isEmpty() || changeEmitters.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("timestamp", Instant.now().toString());
+        event.put("version", change.getCurrent().getVersion());
+        event.put("cardCount", change.getCurrent().size());
+        event.put("added", change.getAdded());
+        event.put("updated", change.getUpdated());
+        event.put("removedIds", change.getRemovedIds());
+
+        changeEmitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("catalog-change")
+                        .data(event));
+            } catch (IOException | IllegalStateException e) {
+                changeEmitters.remove(emitter);
+            }
+        });
     }
 
     /**
@@ -54,16 +231,9 @@ public class CardController {
     @GetMapping("/{id}")
     public ResponseEntity<Card> getCardById(@PathVariable Long id) {
         // First try to get from API cards, then fall back to static cards
-        List<Card> allCards = cardService.getAllCards();
-        Card card = allCards.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .orElse(null);
-        
-        if (card != null) {
-            return ResponseEntity.ok(card);
-        }
-        return ResponseEntity.notFound().build();
+        return cardService.findAnyById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -0,0 +1,56 @@
+package fin.kk.mcp.controller;
+
+import fin.kk.mcp.dto.ChatStreamEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Forwards a streamed chat response to the browser as server-sent events, one event per
+ * {@link ChatStreamEvent} named after its type
+ */
+final class ChatEventStreams {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatEventStreams.class);
+
+    private ChatEventStreams() {
+    }
+
+    /**
+     * Subscribe to the events and send them through a new emitter; the subscription is cancelled
+     * when the client goes away or the emitter times out
+     * @param events Events of one chat turn, ending with a done or error event
+     * @param timeout Maximum duration of the whole turn
+     */
+    static SseEmitter of(Flux<ChatStreamEvent> events, Duration timeout) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        // A swap disposes the subscription even if a send fails before subscribe returns
+        Disposable.Swap subscription = Disposables.swap();
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        emitter.onCompletion(subscription::dispose);
+        subscription.update(events.subscribe(
+                event -> {
+                    try {
+                        emitter.send(SseEmitter.event().name(event.getType()).data(event));
+                    } catch (IOException | IllegalStateException e) {
+                        // Client disconnected or emitter already completed: stop the OpenAI stream
+                        // and its tool calls; the emitter's own callbacks do not fire after a failed send
+                        logger.debug("Chat stream client went away: {}", e.getMessage());
+                        subscription.dispose();
+                    }
+                },
+                error -> {
+                    logger.error("Error streaming chat response: {}", error.getMessage(), error);
+                    emitter.completeWithError(error);
+                },
+                emitter::complete));
+        return emitter;
+    }
+}
@@ -2,15 +2,21 @@ package fin.kk.mcp.controller;
 
 import fin.kk.mcp.dto.ChatMessage;
 import fin.kk.mcp.dto.ChatResponse;
+import fin.kk.mcp.dto.ChatStreamEvent;
 import fin.kk.mcp.dto.ConversationContext;
 import fin.kk.mcp.service.IterativeAgentService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -29,45 +35,68 @@ public class IterativeAgentController {
     @Autowired
     private IterativeAgentService iterativeAgentService;
 
+    @Value("${agent.max-processing-time:PT5M}")
+    private Duration streamTimeout;
+
     /**
-     * Main chat endpoint for iterative agent
+     * Main chat endpoint for iterative agent, handled asynchronously while the agent loop runs
      */
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatMessage message) {
-        try {
-            logger.info("Received iterative agent chat message: {} (session: {})", 
-                       message.getMessage(), message.getSessionId());
-            
-            // Validate input
-            if (message.getMessage() == null || message.getMessage().trim().isEmpty()) {
-                ChatResponse errorResponse = new ChatResponse();
-                errorResponse.setSessionId(message.getSessionId());
-                errorResponse.setError("Message cannot be empty");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-            
-            if (message.getSessionId() == null || message.getSessionId().trim().isEmpty()) {
-                ChatResponse errorResponse = new ChatResponse();
-                errorResponse.setError("Session ID is required");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-            
-            // Process with iterative agent
-            ChatResponse response = iterativeAgentService.processMessage(message);
-            
-            logger.info("Iterative agent response generated in {}ms", response.getProcessingTimeMs());
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            logger.error("Error in iterative agent chat endpoint: {}", e.getMessage(), e);
-            
+    public Mono<ResponseEntity<ChatResponse>> chat(@RequestBody ChatMessage message) {
+        logger.info("Received iterative agent chat message: {} (session: {})", 
+                   message.getMessage(), message.getSessionId());
+        
+        // Validate input
+        if (message.getMessage() == null || message.getMessage().trim().isEmpty()) {
             ChatResponse errorResponse = new ChatResponse();
             errorResponse.setSessionId(message.getSessionId());
-            errorResponse.setError("Internal server error occurred while processing your request");
-            
-            return ResponseEntity.internalServerError().body(errorResponse);
+            errorResponse.setError("Message cannot be empty");
+            return Mono.just(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        if (message.getSessionId() == null || message.getSessionId().trim().isEmpty()) {
+            ChatResponse errorResponse = new ChatResponse();
+            errorResponse.setError("Session ID is required");
+            return Mono.just(ResponseEntity.badRequest().body(errorResponse));
         }
+        
+        // Process with iterative agent
+        return iterativeAgentService.processMessage(message)
+            .map(response -> {
+                logger.info("Iterative agent response generated in {}ms", response.getProcessingTimeMs());
+                
+                return ResponseEntity.ok(response);
+            })
+            .onErrorResume(e -> {
+                logger.error("Error in iterative agent chat endpoint: {}", e.getMessage(), e);
+                
+                ChatResponse errorResponse = new ChatResponse();
+                errorResponse.setSessionId(message.getSessionId());
+                errorResponse.setError("Internal server error occurred while processing your request");
+                
+                return Mono.just(ResponseEntity.internalServerError().body(errorResponse));
+            });
+    }
+
+    /**
+     * Chat endpoint streaming the agent's steps and the answer to the customer as server-sent
+     * events (step, token, done, error)
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatMessage message) {
+        logger.info("Received streaming iterative agent chat message: {} (session: {})", 
+                   message.getMessage(), message.getSessionId());
+        
+        // Validate input
+        if (message.getMessage() == null || message.getMessage().trim().isEmpty()) {
+            return ChatEventStreams.of(Flux.just(ChatStreamEvent.error(message.getSessionId(), "Message cannot be empty")), streamTimeout);
+        }
+        
+        if (message.getSessionId() == null || message.getSessionId().trim().isEmpty()) {
+            return ChatEventStreams.of(Flux.just(ChatStreamEvent.error(null, "Session ID is required")), streamTimeout);
+        }
+        
+        return ChatEventStreams.of(iterativeAgentService.streamMessage(message), streamTimeout);
     }
 
     /**
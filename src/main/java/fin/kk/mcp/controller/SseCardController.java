@@ -2,9 +2,11 @@ package fin.kk.mcp.controller;
 
 import fin.kk.mcp.model.ApplicationRequest;
 import fin.kk.mcp.model.Card;
+import fin.kk.mcp.service.CardResponseCache;
 import fin.kk.mcp.service.CardService;
 import fin.kk.mcp.service.McpCardService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -44,6 +46,9 @@ public class SseCardController {
     @Autowired
     private McpCardService mcpCardService;
 
+    @Autowired
+    private CardResponseCache cardResponseCache;
+
     private final List<SseEmitter> cardEmitters = new CopyOnWriteArrayList<>();
     private final List<SseEmitter> applicationEmitters = new CopyOnWriteArrayList<>();
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
@@ -58,13 +63,14 @@ public class SseCardController {
     }
 
     /**
-     * REST API endpoint to get all cards
+     * REST API endpoint to get all cards (served from the pre-serialized body)
      */
     @GetMapping("/api/cards")
     @ResponseBody
-    public ResponseEntity<List<Card>> getCards() {
-        List<Card> cards = cardService.findAll();
-        return ResponseEntity.ok(cards);
+    public ResponseEntity<byte[]> getCards(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CachedJsonResponses.of(cardResponseCache.getStaticCards(), ifNoneMatch, acceptEncoding);
     }
 
     /**
@@ -117,6 +123,7 @@ public class SseCardController {
                     }
                     card.setInterestRate(newRate.setScale(2, java.math.RoundingMode.HALF_UP));
                 });
+                cardResponseCache.refreshStaticCards();
                 
                 cardEmitters.forEach(sse -> {
                     try {
@@ -217,12 +224,13 @@ public class SseCardController {
     }
 
     /**
-     * Get bonuses endpoint
+     * Get bonuses endpoint (served from the pre-serialized body)
      */
     @GetMapping("/api/bonuses")
     @ResponseBody
-    public ResponseEntity<List<Map<String, String>>> getBonuses() {
-        List<Map<String, String>> bonuses = mcpCardService.getBonuses();
-        return ResponseEntity.ok(bonuses);
+    public ResponseEntity<byte[]> getBonuses(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CachedJsonResponses.of(cardResponseCache.getBonuses(), ifNoneMatch, acceptEncoding);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,120 @@
+package fin.kk.mcp.dto;
+
+/**
+ * DTO for the yearly total cost of ownership of one card in EUR, broken down by source
+ */
+public class CardCost {
+
+    private Long id;
+    private String bankName;
+    private String cardName;
+    private double annualFee;
+    private double interest;
+    private double paymentFees;
+    private double withdrawalFees;
+    private double bonusCredit;
+    private double totalCost;
+
+    public CardCost() {
+    }
+
+    public CardCost(Long id, String bankName, String cardName, double annualFee, double interest,
+                    double paymentFees, double withdrawalFees, double bonusCredit, double totalCost) {
+        this.id = id;
+        this.bankName = bankName;
+        this.cardName = cardName;
+        this.annualFee = annualFee;
+        this.interest = interest;
+        this.paymentFees = paymentFees;
+        this.withdrawalFees = withdrawalFees;
+        this.bonusCredit = bonusCredit;
+        this.totalCost = totalCost;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBankName() {
+        return bankName;
+    }
+
+    public void setBankName(String bankName) {
+        this.bankName = bankName;
+    }
+
+    public String getCardName() {
+        return cardName;
+    }
+
+    public void setCardName(String cardName) {
+        this.cardName = cardName;
+    }
+
+    public double getAnnualFee() {
+        return annualFee;
+    }
+
+    public void setAnnualFee(double annualFee) {
+        this.annualFee = annualFee;
+    }
+
+    /**
+     * Interest on the carried balance
+     */
+    public double getInterest() {
+        return interest;
+    }
+
+    public void setInterest(double interest) {
+        this.interest = interest;
+    }
+
+    /**
+     * Fees on payments in and outside the euro zone
+     */
+    public double getPaymentFees() {
+        return paymentFees;
+    }
+
+    public void setPaymentFees(double paymentFees) {
+        this.paymentFees = paymentFees;
+    }
+
+    /**
+     * Fees on cash withdrawals in and outside the euro zone
+     */
+    public double getWithdrawalFees() {
+        return withdrawalFees;
+    }
+
+    public void setWithdrawalFees(double withdrawalFees) {
+        this.withdrawalFees = withdrawalFees;
+    }
+
+    /**
+     * Share of the signup bonus credited to one year
+     */
+    public double getBonusCredit() {
+        return bonusCredit;
+    }
+
+    public void setBonusCredit(double bonusCredit) {
+        this.bonusCredit = bonusCredit;
+    }
+
+    /**
+     * Yearly cost in EUR: fee, interest and fees minus the bonus credit; negative if the card pays off
+     */
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+}
@@ -0,0 +1,84 @@
+package fin.kk.mcp.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO for one recommended card with its expected value for the customer
+ */
+public class CardRecommendation {
+
+    private Long id;
+    private String bankName;
+    private String cardName;
+    private BigDecimal annualFee;
+    private double expectedValue;
+    private List<String> reasons;
+
+    public CardRecommendation() {
+    }
+
+    public CardRecommendation(Long id, String bankName, String cardName, BigDecimal annualFee,
+                              double expectedValue, List<String> reasons) {
+        this.id = id;
+        this.bankName = bankName;
+        this.cardName = cardName;
+        this.annualFee = annualFee;
+        this.expectedValue = expectedValue;
+        this.reasons = reasons;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBankName() {
+        return bankName;
+    }
+
+    public void setBankName(String bankName) {
+        this.bankName = bankName;
+    }
+
+    public String getCardName() {
+        return cardName;
+    }
+
+    public void setCardName(String cardName) {
+        this.cardName = cardName;
+    }
+
+    public BigDecimal getAnnualFee() {
+        return annualFee;
+    }
+
+    public void setAnnualFee(BigDecimal annualFee) {
+        this.annualFee = annualFee;
+    }
+
+    /**
+     * Estimated net value in EUR for the customer's first year, signup bonus included
+     */
+    public double getExpectedValue() {
+        return expectedValue;
+    }
+
+    public void setExpectedValue(double expectedValue) {
+        this.expectedValue = expectedValue;
+    }
+
+    /**
+     * Largest contributions to the expected value, e.g. "+52 EUR free payments abroad"
+     */
+    public List<String> getReasons() {
+        return reasons;
+    }
+
+    public void setReasons(List<String> reasons) {
+        this.reasons = reasons;
+    }
+}
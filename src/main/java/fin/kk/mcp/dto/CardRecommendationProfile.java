@@ -0,0 +1,131 @@
+package fin.kk.mcp.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO describing a customer for card recommendations. Null fields fall back to the defaults of
+ * the recommendation engine or are not filtered on.
+ */
+public class CardRecommendationProfile {
+
+    private String customerName;
+    private BigDecimal salary;
+    private BigDecimal monthlySpend; // EUR paid by card per month
+    private BigDecimal foreignSpendPercent;
+    private Integer tripsPerYear;
+    private Integer cashWithdrawalsPerMonth;
+    private BigDecimal revolvingBalance;
+    private Boolean mobilePayment; // wants Apple Pay or Google Pay
+    private Boolean travelInsurance; // only cards with travel insurance
+    private String cardSystem; // VISA, MASTER, AMEX
+    private BigDecimal maxAnnualFee;
+    private Integer limit;
+
+    /**
+     * Customer whose salary is taken from their latest application
+     */
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    /**
+     * Annual salary in EUR, overrides the one from the applications
+     */
+    public BigDecimal getSalary() {
+        return salary;
+    }
+
+    public void setSalary(BigDecimal salary) {
+        this.salary = salary;
+    }
+
+    public BigDecimal getMonthlySpend() {
+        return monthlySpend;
+    }
+
+    public void setMonthlySpend(BigDecimal monthlySpend) {
+        this.monthlySpend = monthlySpend;
+    }
+
+    /**
+     * Share of the spend in foreign currencies, 0-100
+     */
+    public BigDecimal getForeignSpendPercent() {
+        return foreignSpendPercent;
+    }
+
+    public void setForeignSpendPercent(BigDecimal foreignSpendPercent) {
+        this.foreignSpendPercent = foreignSpendPercent;
+    }
+
+    public Integer getTripsPerYear() {
+        return tripsPerYear;
+    }
+
+    public void setTripsPerYear(Integer tripsPerYear) {
+        this.tripsPerYear = tripsPerYear;
+    }
+
+    public Integer getCashWithdrawalsPerMonth() {
+        return cashWithdrawalsPerMonth;
+    }
+
+    public void setCashWithdrawalsPerMonth(Integer cashWithdrawalsPerMonth) {
+        this.cashWithdrawalsPerMonth = cashWithdrawalsPerMonth;
+    }
+
+    /**
+     * Average balance paid off in instalments, in EUR
+     */
+    public BigDecimal getRevolvingBalance() {
+        return revolvingBalance;
+    }
+
+    public void setRevolvingBalance(BigDecimal revolvingBalance) {
+        this.revolvingBalance = revolvingBalance;
+    }
+
+    public Boolean getMobilePayment() {
+        return mobilePayment;
+    }
+
+    public void setMobilePayment(Boolean mobilePayment) {
+        this.mobilePayment = mobilePayment;
+    }
+
+    public Boolean getTravelInsurance() {
+        return travelInsurance;
+    }
+
+    public void setTravelInsurance(Boolean travelInsurance) {
+        this.travelInsurance = travelInsurance;
+    }
+
+    public String getCardSystem() {
+        return cardSystem;
+    }
+
+    public void setCardSystem(String cardSystem) {
+        this.cardSystem = cardSystem;
+    }
+
+    public BigDecimal getMaxAnnualFee() {
+        return maxAnnualFee;
+    }
+
+    public void setMaxAnnualFee(BigDecimal maxAnnualFee) {
+        this.maxAnnualFee = maxAnnualFee;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,275 @@
+package fin.kk.mcp.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for conjunctive card search filters, ordering and paging. Null fields are not filtered on.
+ */
+public class CardSearchCriteria {
+
+    private String cardSystem; // VISA, MASTER, AMEX
+    private String cardType; // CREDIT, DEBIT, CHARGE, PREPAID
+    private String paymentGrade; // WORLDWIDE, EURO_ZONE
+    private String withdrawGrade; // WORLDWIDE, EURO_ZONE, WITH_CONDITIONS, NO_FREE_WITHDRAW, ...
+    private String insuranceGrade; // VERY_GOOD, GOOD, AVAILABLE, NOT_AVAILABLE
+
+    private Boolean contactlessPayment;
+    private Boolean applePaySupported;
+    private Boolean googlePaySupported;
+    private Boolean freePaymentEuroZone;
+    private Boolean freePaymentWorldwide;
+    private Boolean freeWithdrawEuroZone;
+    private Boolean freeWithdrawWorldwide;
+    private Boolean travelInsurance;
+    private Boolean healthInsuranceAbroad;
+    private Boolean accidentInsuranceAbroad;
+
+    private BigDecimal minAnnualFee;
+    private BigDecimal maxAnnualFee;
+    private BigDecimal minInterestRate;
+    private BigDecimal maxInterestRate;
+    private BigDecimal minBonusValue;
+    private BigDecimal maxBonusValue;
+    private BigDecimal minCustomerRating;
+    private BigDecimal maxCustomerRating;
+    private BigDecimal minFirstYearValue; // signup bonus minus annual fee
+    private BigDecimal maxFirstYearValue;
+
+    private String sortBy; // annualFee, interestRate, bonusValue, customerRating, customerFeedbackCount, firstYearValue
+    private Boolean descending;
+    private Integer offset;
+    private Integer limit;
+
+    // Getters and setters
+    public String getCardSystem() {
+        return cardSystem;
+    }
+
+    public void setCardSystem(String cardSystem) {
+        this.cardSystem = cardSystem;
+    }
+
+    public String getCardType() {
+        return cardType;
+    }
+
+    public void setCardType(String cardType) {
+        this.cardType = cardType;
+    }
+
+    public String getPaymentGrade() {
+        return paymentGrade;
+    }
+
+    public void setPaymentGrade(String paymentGrade) {
+        this.paymentGrade = paymentGrade;
+    }
+
+    public String getWithdrawGrade() {
+        return withdrawGrade;
+    }
+
+    public void setWithdrawGrade(String withdrawGrade) {
+        this.withdrawGrade = withdrawGrade;
+    }
+
+    public String getInsuranceGrade() {
+        return insuranceGrade;
+    }
+
+    public void setInsuranceGrade(String insuranceGrade) {
+        this.insuranceGrade = insuranceGrade;
+    }
+
+    public Boolean getContactlessPayment() {
+        return contactlessPayment;
+    }
+
+    public void setContactlessPayment(Boolean contactlessPayment) {
+        this.contactlessPayment = contactlessPayment;
+    }
+
+    public Boolean getApplePaySupported() {
+        return applePaySupported;
+    }
+
+    public void setApplePaySupported(Boolean applePaySupported) {
+        this.applePaySupported = applePaySupported;
+    }
+
+    public Boolean getGooglePaySupported() {
+        return googlePaySupported;
+    }
+
+    public void setGooglePaySupported(Boolean googlePaySupported) {
+        this.googlePaySupported = googlePaySupported;
+    }
+
+    public Boolean getFreePaymentEuroZone() {
+        return freePaymentEuroZone;
+    }
+
+    public void setFreePaymentEuroZone(Boolean freePaymentEuroZone) {
+        this.freePaymentEuroZone = freePaymentEuroZone;
+    }
+
+    public Boolean getFreePaymentWorldwide() {
+        return freePaymentWorldwide;
+    }
+
+    public void setFreePaymentWorldwide(Boolean freePaymentWorldwide) {
+        this.freePaymentWorldwide = freePaymentWorldwide;
+    }
+
+    public Boolean getFreeWithdrawEuroZone() {
+        return freeWithdrawEuroZone;
+    }
+
+    public void setFreeWithdrawEuroZone(Boolean freeWithdrawEuroZone) {
+        this.freeWithdrawEuroZone = freeWithdrawEuroZone;
+    }
+
+    public Boolean getFreeWithdrawWorldwide() {
+        return freeWithdrawWorldwide;
+    }
+
+    public void setFreeWithdrawWorldwide(Boolean freeWithdrawWorldwide) {
+        this.freeWithdrawWorldwide = freeWithdrawWorldwide;
+    }
+
+    public Boolean getTravelInsurance() {
+        return travelInsurance;
+    }
+
+    public void setTravelInsurance(Boolean travelInsurance) {
+        this.travelInsurance = travelInsurance;
+    }
+
+    public Boolean getHealthInsuranceAbroad() {
+        return healthInsuranceAbroad;
+    }
+
+    public void setHealthInsuranceAbroad(Boolean healthInsuranceAbroad) {
+        this.healthInsuranceAbroad = healthInsuranceAbroad;
+    }
+
+    public Boolean getAccidentInsuranceAbroad() {
+        return accidentInsuranceAbroad;
+    }
+
+    public void setAccidentInsuranceAbroad(Boolean accidentInsuranceAbroad) {
+        this.accidentInsuranceAbroad = accidentInsuranceAbroad;
+    }
+
+    public BigDecimal getMinAnnualFee() {
+        return minAnnualFee;
+    }
+
+    public void setMinAnnualFee(BigDecimal minAnnualFee) {
+        this.minAnnualFee = minAnnualFee;
+    }
+
+    public BigDecimal getMaxAnnualFee() {
+        return maxAnnualFee;
+    }
+
+    public void setMaxAnnualFee(BigDecimal maxAnnualFee) {
+        this.maxAnnualFee = maxAnnualFee;
+    }
+
+    public BigDecimal getMinInterestRate() {
+        return minInterestRate;
+    }
+
+    public void setMinInterestRate(BigDecimal minInterestRate) {
+        this.minInterestRate = minInterestRate;
+    }
+
+    public BigDecimal getMaxInterestRate() {
+        return maxInterestRate;
+    }
+
+    public void setMaxInterestRate(BigDecimal maxInterestRate) {
+        this.maxInterestRate = maxInterestRate;
+    }
+
+    public BigDecimal getMinBonusValue() {
+        return minBonusValue;
+    }
+
+    public void setMinBonusValue(BigDecimal minBonusValue) {
+        this.minBonusValue = minBonusValue;
+    }
+
+    public BigDecimal getMaxBonusValue() {
+        return maxBonusValue;
+    }
+
+    public void setMaxBonusValue(BigDecimal maxBonusValue) {
+        this.maxBonusValue = maxBonusValue;
+    }
+
+    public BigDecimal getMinCustomerRating() {
+        return minCustomerRating;
+    }
+
+    public void setMinCustomerRating(BigDecimal minCustomerRating) {
+        this.minCustomerRating = minCustomerRating;
+    }
+
+    public BigDecimal getMaxCustomerRating() {
+        return maxCustomerRating;
+    }
+
+    public void setMaxCustomerRating(BigDecimal maxCustomerRating) {
+        this.maxCustomerRating = maxCustomerRating;
+    }
+
+    public BigDecimal getMinFirstYearValue() {
+        return minFirstYearValue;
+    }
+
+    public void setMinFirstYearValue(BigDecimal minFirstYearValue) {
+        this.minFirstYearValue = minFirstYearValue;
+    }
+
+    public BigDecimal getMaxFirstYearValue() {
+        return maxFirstYearValue;
+    }
+
+    public void setMaxFirstYearValue(BigDecimal maxFirstYearValue) {
+        this.maxFirstYearValue = maxFirstYearValue;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public void setSortBy(String sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    public Boolean getDescending() {
+        return descending;
+    }
+
+    public void setDescending(Boolean descending) {
+        this.descending = descending;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,57 @@
+package fin.kk.mcp.dto;
+
+/**
+ * DTO for one result of the full-text card search
+ */
+public class CardTextHit {
+
+    private Long id;
+    private String bankName;
+    private String cardName;
+    private double score;
+
+    public CardTextHit() {
+    }
+
+    public CardTextHit(Long id, String bankName, String cardName, double score) {
+        this.id = id;
+        this.bankName = bankName;
+        this.cardName = cardName;
+        this.score = score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBankName() {
+        return bankName;
+    }
+
+    public void setBankName(String bankName) {
+        this.bankName = bankName;
+    }
+
+    public String getCardName() {
+        return cardName;
+    }
+
+    public void setCardName(String cardName) {
+        this.cardName = cardName;
+    }
+
+    /**
+     * BM25 relevance score; only comparable between hits of the same query
+     */
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,92 @@
+package fin.kk.mcp.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO describing how a customer uses a card, for total-cost-of-ownership comparisons. Null
+ * fields count as 0 (years as 1).
+ */
+public class CardUsageProfile {
+
+    private BigDecimal monthlySpend;
+    private BigDecimal foreignSpendPerMonth;
+    private Integer cashWithdrawalsPerMonth;
+    private Integer foreignCashWithdrawalsPerMonth;
+    private BigDecimal carriedBalance;
+    private Integer years;
+    private Integer limit;
+
+    /**
+     * Amount paid by card per month in EUR, foreign spend included
+     */
+    public BigDecimal getMonthlySpend() {
+        return monthlySpend;
+    }
+
+    public void setMonthlySpend(BigDecimal monthlySpend) {
+        this.monthlySpend = monthlySpend;
+    }
+
+    /**
+     * Part of the monthly spend in foreign currencies, in EUR
+     */
+    public BigDecimal getForeignSpendPerMonth() {
+        return foreignSpendPerMonth;
+    }
+
+    public void setForeignSpendPerMonth(BigDecimal foreignSpendPerMonth) {
+        this.foreignSpendPerMonth = foreignSpendPerMonth;
+    }
+
+    /**
+     * Cash withdrawals per month in the euro zone
+     */
+    public Integer getCashWithdrawalsPerMonth() {
+        return cashWithdrawalsPerMonth;
+    }
+
+    public void setCashWithdrawalsPerMonth(Integer cashWithdrawalsPerMonth) {
+        this.cashWithdrawalsPerMonth = cashWithdrawalsPerMonth;
+    }
+
+    /**
+     * Cash withdrawals per month outside the euro zone
+     */
+    public Integer getForeignCashWithdrawalsPerMonth() {
+        return foreignCashWithdrawalsPerMonth;
+    }
+
+    public void setForeignCashWithdrawalsPerMonth(Integer foreignCashWithdrawalsPerMonth) {
+        this.foreignCashWithdrawalsPerMonth = foreignCashWithdrawalsPerMonth;
+    }
+
+    /**
+     * Average balance carried from month to month, in EUR
+     */
+    public BigDecimal getCarriedBalance() {
+        return carriedBalance;
+    }
+
+    public void setCarriedBalance(BigDecimal carriedBalance) {
+        this.carriedBalance = carriedBalance;
+    }
+
+    /**
+     * Years over which the one-time signup bonus is spread
+     */
+    public Integer getYears() {
+        return years;
+    }
+
+    public void setYears(Integer years) {
+        this.years = years;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,98 @@
+package fin.kk.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO for one server-sent event of a streamed chat response.
+ *
+ * The event name is the type: {@code token} carries the next piece of the answer,
+ * {@code tool} names a tool the agent started, {@code step} is a reasoning step of the
+ * iterative agent, {@code done} carries the complete answer and ends the stream,
+ * {@code error} ends the stream with an error message.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatStreamEvent {
+
+    public static final String TOKEN = "token";
+    public static final String TOOL = "tool";
+    public static final String STEP = "step";
+    public static final String DONE = "done";
+    public static final String ERROR = "error";
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("sessionId")
+    private String sessionId;
+
+    @JsonProperty("content")
+    private String content;
+
+    @JsonProperty("processingTimeMs")
+    private Long processingTimeMs;
+
+    public ChatStreamEvent() {
+    }
+
+    public ChatStreamEvent(String type, String sessionId, String content) {
+        this.type = type;
+        this.sessionId = sessionId;
+        this.content = content;
+    }
+
+    public static ChatStreamEvent token(String sessionId, String content) {
+        return new ChatStreamEvent(TOKEN, sessionId, content);
+    }
+
+    public static ChatStreamEvent tool(String sessionId, String toolName) {
+        return new ChatStreamEvent(TOOL, sessionId, toolName);
+    }
+
+    public static ChatStreamEvent step(String sessionId, String content) {
+        return new ChatStreamEvent(STEP, sessionId, content);
+    }
+
+    public static ChatStreamEvent done(String sessionId, String finalResponse, long processingTimeMs) {
+        ChatStreamEvent event = new ChatStreamEvent(DONE, sessionId, finalResponse);
+        event.setProcessingTimeMs(processingTimeMs);
+        return event;
+    }
+
+    public static ChatStreamEvent error(String sessionId, String message) {
+        return new ChatStreamEvent(ERROR, sessionId, message);
+    }
+
+    // Getters and setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Long getProcessingTimeMs() {
+        return processingTimeMs;
+    }
+
+    public void setProcessingTimeMs(Long processingTimeMs) {
+        this.processingTimeMs = processingTimeMs;
+    }
+}
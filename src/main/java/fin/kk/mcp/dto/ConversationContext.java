@@ -31,6 +31,9 @@ public class ConversationContext {
     @JsonProperty("toolsUsedInSession")
     private List<String> toolsUsedInSession;
     
+    @JsonProperty("catalogVersion")
+    private Long catalogVersion;
+    
     public ConversationContext() {
         this.messages = new ArrayList<>();
         this.customerContext = new HashMap<>();
@@ -126,4 +129,15 @@ public class ConversationContext {
     public void setToolsUsedInSession(List<String> toolsUsedInSession) {
         this.toolsUsedInSession = toolsUsedInSession;
     }
+    
+    /**
+     * Card catalog version the conversation is pinned to, null before its first turn
+     */
+    public Long getCatalogVersion() {
+        return catalogVersion;
+    }
+    
+    public void setCatalogVersion(Long catalogVersion) {
+        this.catalogVersion = catalogVersion;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,95 @@
+package fin.kk.mcp.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-pool bulkhead for calls to one upstream.
+ *
+ * Calls run on a small dedicated pool without a queue, so at most {@code maxConcurrentCalls}
+ * upstream calls are in progress and further calls are refused immediately. The caller waits
+ * at most {@code callTimeout} for the result; a call that takes longer is interrupted, which
+ * keeps request threads from being tied up by a slow upstream.
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final long timeoutNanos;
+    private final ThreadPoolExecutor executor;
+
+    public Bulkhead(String name, int maxConcurrentCalls, Duration callTimeout) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.timeoutNanos = callTimeout.toNanos();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-call-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run the call on the bulkhead pool and wait for its result
+     * @param call Upstream call
+     * @return Result of the call
+     * @throws CallNotPermittedException if all permits are in use
+     * @throws TimeoutException if the call did not finish within the call timeout
+     */
+    public <T> T execute(Callable<T> call) throws Exception {
+        Future<T> future;
+        try {
+            future = executor.submit(call);
+        } catch (RejectedExecutionException e) {
+            throw new CallNotPermittedException("Bulkhead '" + name + "' is full (" + maxConcurrentCalls + " calls in progress)");
+        }
+
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TimeoutException("Call through bulkhead '" + name + "' timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Number of calls currently running
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,88 @@
+package fin.kk.mcp.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A serialized JSON response body, kept as UTF-8 bytes together with a gzip variant and a
+ * strong ETag per variant, so it can be served repeatedly without touching Jackson.
+ *
+ * The byte arrays are shared between requests and must not be modified.
+ */
+public final class CachedJsonBody {
+
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+
+    private CachedJsonBody(byte[] identity, byte[] gzip, String etag, String gzipEtag) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.etag = etag;
+        this.gzipEtag = gzipEtag;
+    }
+
+    /**
+     * Build a body from serialized JSON, compressing it and hashing it once
+     * @param json UTF-8 JSON bytes; the array is not copied
+     * @return Cached body
+     */
+    public static CachedJsonBody of(byte[] json) {
+        String hash = hash(json);
+        return new CachedJsonBody(json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+    }
+
+    /**
+     * Uncompressed UTF-8 JSON
+     */
+    public byte[] getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Gzip-compressed UTF-8 JSON
+     */
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    /**
+     * Strong ETag of the uncompressed representation, including quotes
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Strong ETag of the gzip representation, including quotes
+     */
+    public String getGzipEtag() {
+        return gzipEtag;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen for an in-memory stream
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
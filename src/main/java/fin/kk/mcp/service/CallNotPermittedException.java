@@ -0,0 +1,12 @@
+package fin.kk.mcp.service;
+
+/**
+ * Thrown when an upstream call is refused without being attempted, because the circuit
+ * breaker is open or the bulkhead has no free capacity. Such calls do not count as failures.
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,391 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Stale-while-revalidate cache for the card catalog.
+ *
+ * Readers always get the last good card list immediately. Once the list is older
+ * than the configured TTL a single background refresh is started; if that refresh
+ * fails the stale list keeps being served until a later attempt succeeds.
+ * Cards are loaded from the {@link CardSource} named by {@code catalog.source}; concurrent
+ * loads of the same source are coalesced into one call through {@link SingleFlight}.
+ * A load that returns the very same card instances (e.g. after an HTTP 304) only marks the
+ * cached snapshot as fresh again; otherwise the new snapshot is published and change
+ * listeners receive the {@link CardCatalogChange} on the loading thread.
+ * Source calls go through a {@link CircuitBreaker} and a {@link Bulkhead}, so a slow or failing
+ * upstream is given up on after the call timeout, and is not called at all while the circuit
+ * is open; readers keep getting the cached catalog in the meantime.
+ * Every published snapshot gets the next catalog version and the last
+ * {@code catalog.cache.retained-versions} snapshots stay available by version, so a caller can
+ * {@link #pin} one for a whole agent turn or conversation and keep reading the same catalog
+ * while newer versions are published.
+ */
+@Service
+public class CardCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardCatalogCache.class);
+
+    private final CardSource cardSource;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration ttl;
+    private final Duration retryInterval;
+
+    private final AtomicReference<CardCatalogSnapshot> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final Deque<CardCatalogSnapshot> retained = new ArrayDeque<>();
+    private final int retainedVersions;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final SingleFlight<String, Boolean> loads = new SingleFlight<>();
+    private volatile long lastAttemptNanos;
+    private volatile long validatedAtNanos;
+    private final List<Consumer<CardCatalogChange>> changeListeners = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "card-catalog-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter hits;
+    private final Counter pinnedHits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter refreshSuccesses;
+    private final Counter refreshUnchanged;
+    private final Counter refreshFailures;
+    private final Counter rejectedLoads;
+    private final Counter timedOutLoads;
+
+    @Autowired
+    public CardCatalogCache(List<CardSource> cardSources,
+                            @Value("${catalog.source:check24}") String sourceName,
+                            MeterRegistry meterRegistry,
+                            @Value("${catalog.cache.ttl:PT5M}") Duration ttl,
+                            @Value("${catalog.cache.retry-interval:PT30S}") Duration retryInterval,
+                            @Value("${agent.circuit-breaker-failure-threshold:5}") int failureThreshold,
+                            @Value("${agent.circuit-breaker-timeout:PT5M}") Duration circuitOpenDuration,
+                            @Value("${catalog.upstream.max-concurrent-calls:2}") int maxConcurrentCalls,
+                            @Value("${catalog.upstream.call-timeout:PT10S}") Duration callTimeout,
+                            @Value("${catalog.cache.retained-versions:5}") int retainedVersions) {
+        this.cardSource = cardSources.stream()
+                .filter(source -> source.getName().equals(sourceName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown catalog.source: " + sourceName));
+        logger.info("Card catalog uses source '{}'", sourceName);
+        this.ttl = ttl;
+        this.retryInterval = retryInterval;
+        this.retainedVersions = Math.max(1, retainedVersions);
+        this.lastAttemptNanos = System.nanoTime() - retryInterval.toNanos();
+        this.circuitBreaker = new CircuitBreaker(sourceName, failureThreshold, circuitOpenDuration);
+        this.bulkhead = new Bulkhead("catalog-" + sourceName, maxConcurrentCalls, callTimeout);
+
+        this.hits = Counter.builder("catalog.cache.requests").tag("result", "hit")
+                .description("Catalog reads served from a fresh cache entry").register(meterRegistry);
+        this.pinnedHits = Counter.builder("catalog.cache.requests").tag("result", "pinned")
+                .description("Catalog reads served from a snapshot pinned by the caller").register(meterRegistry);
+        this.staleHits = Counter.builder("catalog.cache.requests").tag("result", "stale")
+                .description("Catalog reads served from a stale cache entry").register(meterRegistry);
+        this.misses = Counter.builder("catalog.cache.requests").tag("result", "miss")
+                .description("Catalog reads that had to load synchronously").register(meterRegistry);
+        this.refreshSuccesses = Counter.builder("catalog.cache.refreshes").tag("outcome", "success")
+                .description("Successful catalog loads from upstream").register(meterRegistry);
+        this.refreshUnchanged = Counter.builder("catalog.cache.refreshes").tag("outcome", "unchanged")
+                .description("Catalog loads that returned the cached cards unchanged").register(meterRegistry);
+        this.refreshFailures = Counter.builder("catalog.cache.refreshes").tag("outcome", "failure")
+                .description("Failed catalog loads from upstream").register(meterRegistry);
+        FunctionCounter.builder("catalog.source.loads", loads, SingleFlight::getExecutionCount).tag("result", "executed")
+                .description("Catalog loads that called the card source").register(meterRegistry);
+        FunctionCounter.builder("catalog.source.loads", loads, SingleFlight::getCoalescedCount).tag("result", "coalesced")
+                .description("Catalog loads that joined a load already in flight").register(meterRegistry);
+        this.rejectedLoads = Counter.builder("catalog.upstream.rejected")
+                .description("Catalog loads refused by the open circuit or the full bulkhead").register(meterRegistry);
+        this.timedOutLoads = Counter.builder("catalog.upstream.timeouts")
+                .description("Catalog loads abandoned after the call timeout").register(meterRegistry);
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("catalog.upstream.circuit.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                    .tag("state", state.name().toLowerCase())
+                    .description("1 for the current state of the catalog source circuit breaker").register(meterRegistry);
+        }
+        circuitBreaker.addTransitionListener((from, to) -> {
+            meterRegistry.counter("catalog.upstream.circuit.transitions",
+                    "from", from.name().toLowerCase(), "to", to.name().toLowerCase()).increment();
+            logger.warn("Catalog source '{}' circuit breaker {} -> {}", sourceName, from, to);
+        });
+        Gauge.builder("catalog.upstream.bulkhead.active", bulkhead, Bulkhead::getActiveCount)
+                .description("Catalog source calls in progress").register(meterRegistry);
+        Gauge.builder("catalog.cache.size", current, ref -> ref.get() != null ? ref.get().size() : 0)
+                .description("Number of cards in the cached catalog").register(meterRegistry);
+        Gauge.builder("catalog.cache.heap.bytes", current,
+                        ref -> ref.get() != null ? ref.get().getFootprint().getTotalBytes() : 0)
+                .description("Estimated heap size of the cached catalog and its indexes")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("catalog.cache.version", current, ref -> ref.get() != null ? ref.get().getVersion() : 0)
+                .description("Version of the latest catalog snapshot").register(meterRegistry);
+        Gauge.builder("catalog.cache.age.seconds", current,
+                        ref -> ref.get() != null ? (System.nanoTime() - validatedAtNanos) / 1e9 : 0)
+                .description("Time since the cached catalog was last loaded or confirmed unchanged").register(meterRegistry);
+    }
+
+    /**
+     * Refresh the catalog whenever the card source reports a change; registered once the cache
+     * is fully constructed, since a source may call back from another thread right away
+     */
+    @PostConstruct
+    public void listenForSourceChanges() {
+        cardSource.addChangeListener(this::refresh);
+    }
+
+    /**
+     * Get the cached card list, loading it synchronously only if nothing has been cached yet
+     * @return List of cards, empty if the catalog has never been loaded successfully
+     */
+    public List<Card> getCards() {
+        return getSnapshot().getCards();
+    }
+
+    /**
+     * Find a cached card by ID without scanning the card list
+     * @param id Card ID
+     * @return Card if found, null otherwise
+     */
+    public Card findById(long id) {
+        return getSnapshot().findById(id);
+    }
+
+    /**
+     * Get the current catalog snapshot, loading it synchronously only if nothing has been cached yet.
+     * Inside a {@link #pin} on the calling thread the pinned snapshot is returned instead.
+     * @return Current snapshot, empty if the catalog has never been loaded successfully
+     */
+    public CardCatalogSnapshot getSnapshot() {
+        CardCatalogSnapshot pinned = CatalogPin.pinnedSnapshot();
+        if (pinned != null) {
+            pinnedHits.increment();
+            return pinned;
+        }
+        return getLatestSnapshot();
+    }
+
+    /**
+     * Get the latest catalog snapshot, ignoring any pin on the calling thread
+     * @return Latest snapshot, empty if the catalog has never been loaded successfully
+     */
+    public CardCatalogSnapshot getLatestSnapshot() {
+        CardCatalogSnapshot cached = current.get();
+        if (cached == null) {
+            misses.increment();
+            return loadInitial();
+        }
+
+        if (isExpired()) {
+            staleHits.increment();
+            refreshAsync();
+        } else {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * The latest published snapshot as it is: nothing is loaded or refreshed and the read is not
+     * counted in the cache metrics. For caches derived from the catalog, whose callers have
+     * already read it through {@link #getSnapshot()}.
+     * @return Latest snapshot, empty if the catalog has never been loaded successfully
+     */
+    public CardCatalogSnapshot peekLatestSnapshot() {
+        CardCatalogSnapshot cached = current.get();
+        return cached != null ? cached : CardCatalogSnapshot.empty();
+    }
+
+    /**
+     * Get a recently published snapshot by version
+     * @param version Catalog version
+     * @return Snapshot, null if the version is unknown or no longer retained
+     */
+    public CardCatalogSnapshot getSnapshot(long version) {
+        synchronized (retained) {
+            for (CardCatalogSnapshot snapshot : retained) {
+                if (snapshot.getVersion() == version) {
+                    return snapshot;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Versions that can currently be read or pinned, newest first
+     */
+    public List<Long> getRetainedVersions() {
+        synchronized (retained) {
+            return retained.stream().map(CardCatalogSnapshot::getVersion).toList();
+        }
+    }
+
+    /**
+     * Pin a snapshot to the calling thread until the returned pin is closed
+     * @param snapshot Snapshot all catalog reads on this thread should see
+     * @return Pin to close when done
+     */
+    public CatalogPin pin(CardCatalogSnapshot snapshot) {
+        return CatalogPin.open(snapshot);
+    }
+
+    /**
+     * Get a version if it is still retained, otherwise the latest snapshot. Callers that keep a
+     * conversation on one catalog remember {@link CardCatalogSnapshot#getVersion()} for the next
+     * turn and {@link #pin} the snapshot on every thread that reads the catalog for it.
+     * @param version Version read before, null for the latest
+     * @return Snapshot to read
+     */
+    public CardCatalogSnapshot getSnapshotOrLatest(Long version) {
+        CardCatalogSnapshot snapshot = version != null ? getSnapshot(version) : null;
+        return snapshot != null ? snapshot : getLatestSnapshot();
+    }
+
+    /**
+     * Register a callback for every newly published snapshot, e.g. to precompute derived data
+     * @param listener Called with the change after the new snapshot has been published
+     */
+    public void addCatalogChangeListener(Consumer<CardCatalogChange> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Start a background refresh unless one is already running or the last attempt was too recent
+     */
+    public void refreshAsync() {
+        if (attemptedRecently()) {
+            return;
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            logger.warn("Could not schedule catalog refresh: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Load the catalog from the card source and replace the cached entry on success
+     * @return true if the cache was updated
+     */
+    public boolean refresh() {
+        return loads.execute(cardSource.getName(), this::load);
+    }
+
+    private boolean load() {
+        lastAttemptNanos = System.nanoTime();
+        try {
+            List<Card> cards = circuitBreaker.execute(() -> bulkhead.execute(cardSource::loadCards));
+            CardCatalogSnapshot previous = current.get();
+            if (previous != null && CardCatalogChange.sameCards(previous, cards)) {
+                validatedAtNanos = System.nanoTime();
+                refreshUnchanged.increment();
+                logger.debug("Card catalog unchanged with {} cards", cards.size());
+                return true;
+            }
+
+            CardCatalogSnapshot snapshot = CardCatalogSnapshot.of(cards, versions.incrementAndGet());
+            validatedAtNanos = snapshot.getLoadedAtNanos();
+            current.set(snapshot);
+            retain(snapshot);
+            refreshSuccesses.increment();
+            CardCatalogChange change = CardCatalogChange.between(
+                    previous != null ? previous : CardCatalogSnapshot.empty(), snapshot);
+            logger.debug("Card catalog version {} with {} cards: {} added, {} updated, {} removed", snapshot.getVersion(), cards.size(),
+                    change.getAdded().size(), change.getUpdated().size(), change.getRemovedIds().size());
+            notifyListeners(change);
+            return true;
+        } catch (Exception e) {
+            refreshFailures.increment();
+            if (e instanceof CallNotPermittedException) {
+                rejectedLoads.increment();
+            } else if (e instanceof TimeoutException) {
+                timedOutLoads.increment();
+            }
+            CardCatalogSnapshot cached = current.get();
+            if (cached != null) {
+                logger.warn("Card catalog refresh failed, serving {} cached cards: {}", cached.size(), e.getMessage());
+            } else {
+                logger.error("Card catalog load failed and no cached data is available: {}", e.getMessage(), e);
+            }
+            return false;
+        }
+    }
+
+    private void retain(CardCatalogSnapshot snapshot) {
+        synchronized (retained) {
+            retained.addFirst(snapshot);
+            while (retained.size() > retainedVersions) {
+                retained.removeLast();
+            }
+        }
+    }
+
+    private void notifyListeners(CardCatalogChange change) {
+        for (Consumer<CardCatalogChange> listener : changeListeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                logger.warn("Card catalog snapshot listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private CardCatalogSnapshot loadInitial() {
+        // Concurrent cold readers share one upstream load instead of each hitting the source
+        loads.execute(cardSource.getName(), () -> current.get() == null && !attemptedRecently() && load());
+        CardCatalogSnapshot cached = current.get();
+        return cached != null ? cached : CardCatalogSnapshot.empty();
+    }
+
+    private boolean attemptedRecently() {
+        return System.nanoTime() - lastAttemptNanos < retryInterval.toNanos();
+    }
+
+    private boolean isExpired() {
+        return System.nanoTime() - validatedAtNanos > ttl.toNanos();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        bulkhead.shutdown();
+    }
+}
@@ -0,0 +1,106 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Difference between two consecutive catalog snapshots.
+ *
+ * Card sources reuse the {@link Card} instance of every offer whose content did not change,
+ * so a card counts as updated when its ID maps to a different instance than before. Cards
+ * without an ID are not tracked.
+ */
+public final class CardCatalogChange {
+
+    private final CardCatalogSnapshot previous;
+    private final CardCatalogSnapshot current;
+    private final List<Card> added;
+    private final List<Card> updated;
+    private final List<Long> removedIds;
+
+    private CardCatalogChange(CardCatalogSnapshot previous, CardCatalogSnapshot current,
+                              List<Card> added, List<Card> updated, List<Long> removedIds) {
+        this.previous = previous;
+        this.current = current;
+        this.added = added;
+        this.updated = updated;
+        this.removedIds = removedIds;
+    }
+
+    /**
+     * Compare two snapshots by card ID
+     * @param previous Snapshot being replaced, empty on the first load
+     * @param current New snapshot
+     * @return Added, updated and removed cards
+     */
+    public static CardCatalogChange between(CardCatalogSnapshot previous, CardCatalogSnapshot current) {
+        List<Card> added = new ArrayList<>();
+        List<Card> updated = new ArrayList<>();
+        for (Card card : current.getCards()) {
+            if (card.getId() == null) {
+                continue;
+            }
+            Card before = previous.findById(card.getId());
+            if (before == null) {
+                added.add(card);
+            } else if (before != card) {
+                updated.add(card);
+            }
+        }
+
+        List<Long> removedIds = new ArrayList<>();
+        for (Card card : previous.getCards()) {
+            if (card.getId() != null && current.ordinalOf(card.getId()) < 0) {
+                removedIds.add(card.getId());
+            }
+        }
+        return new CardCatalogChange(previous, current, Collections.unmodifiableList(added),
+                Collections.unmodifiableList(updated), Collections.unmodifiableList(removedIds));
+    }
+
+    /**
+     * Whether a snapshot holds exactly the given card instances in the same order
+     */
+    static boolean sameCards(CardCatalogSnapshot previous, List<Card> cards) {
+        List<Card> before = previous.getCards();
+        if (before.size() != cards.size()) {
+            return false;
+        }
+        for (int i = 0; i < cards.size(); i++) {
+            if (before.get(i) != cards.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public CardCatalogSnapshot getPrevious() {
+        return previous;
+    }
+
+    public CardCatalogSnapshot getCurrent() {
+        return current;
+    }
+
+    public List<Card> getAdded() {
+        return added;
+    }
+
+    public List<Card> getUpdated() {
+        return updated;
+    }
+
+    public List<Long> getRemovedIds() {
+        return removedIds;
+    }
+
+    /**
+     * Whether no card was added, updated or removed (e.g. only the order changed)
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removedIds.isEmpty();
+    }
+}
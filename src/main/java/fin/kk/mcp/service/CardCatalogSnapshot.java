@@ -0,0 +1,205 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of the card catalog as loaded by one refresh.
+ *
+ * Holds the cards in upstream order together with an open-addressing index from the
+ * primitive card id to the card's position, so {@link #findById(long)} runs in constant
+ * time without boxing or iterating the list. Snapshots are built once and swapped
+ * atomically by {@link CardCatalogCache}; they are never modified afterwards (only the
+ * footprint estimate and the feature vectors are computed lazily). Search indexes
+ * and the column store over the same ordinals are built together with the snapshot.
+ */
+public final class CardCatalogSnapshot {
+
+    private static final CardCatalogSnapshot EMPTY = new CardCatalogSnapshot(Collections.emptyList(), 0L, 0L);
+
+    private final List<Card> cards;
+    private final long version;
+    private final long loadedAtNanos;
+
+    // Open-addressing table: keys[slot] holds the card id, slots[slot] the ordinal + 1 (0 = free)
+    private final long[] keys;
+    private final int[] slots;
+    private final int mask;
+
+    private final CardFacetIndex facetIndex;
+    private final CardRangeIndex rangeIndex;
+    private final CardColumnStore columnStore;
+
+    private volatile CatalogFootprint footprint;
+    private volatile CardFeatureVectors featureVectors;
+
+    private CardCatalogSnapshot(List<Card> cards, long version, long loadedAtNanos) {
+        this.cards = cards;
+        this.version = version;
+        this.loadedAtNanos = loadedAtNanos;
+
+        int capacity = Integer.highestOneBit(Math.max(2, cards.size() * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int ordinal = 0; ordinal < cards.size(); ordinal++) {
+            Long id = cards.get(ordinal).getId();
+            if (id != null) {
+                insert(id, ordinal);
+            }
+        }
+
+        this.facetIndex = CardFacetIndex.build(cards);
+        this.rangeIndex = CardRangeIndex.build(cards);
+        this.columnStore = CardColumnStore.build(cards);
+    }
+
+    /**
+     * Build a snapshot from a freshly loaded card list
+     * @param cards Cards in upstream order; the list is copied
+     * @return Immutable snapshot
+     */
+    public static CardCatalogSnapshot of(List<Card> cards) {
+        return of(cards, 0L);
+    }
+
+    /**
+     * Build a versioned snapshot from a freshly loaded card list
+     * @param cards Cards in upstream order; the list is copied
+     * @param version Catalog version, see {@link #getVersion()}
+     * @return Immutable snapshot
+     */
+    public static CardCatalogSnapshot of(List<Card> cards, long version) {
+        return new CardCatalogSnapshot(Collections.unmodifiableList(new ArrayList<>(cards)), version, System.nanoTime());
+    }
+
+    /**
+     * Snapshot without any cards, used before the first successful load
+     */
+    public static CardCatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Find card by ID
+     * @param id Card ID
+     * @return Card if found, null otherwise
+     */
+    public Card findById(long id) {
+        int ordinal = ordinalOf(id);
+        return ordinal >= 0 ? cards.get(ordinal) : null;
+    }
+
+    /**
+     * Position of a card in {@link #getCards()}, shared by all indexes of this snapshot
+     * @param id Card ID
+     * @return Ordinal if found, -1 otherwise
+     */
+    public int ordinalOf(long id) {
+        int slot = hash(id) & mask;
+        int ordinal;
+        while ((ordinal = slots[slot]) != 0) {
+            if (keys[slot] == id) {
+                return ordinal - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Get all cards in upstream order
+     * @return Unmodifiable list of cards
+     */
+    public List<Card> getCards() {
+        return cards;
+    }
+
+    /**
+     * Facet bitsets over this snapshot's card ordinals
+     */
+    public CardFacetIndex getFacetIndex() {
+        return facetIndex;
+    }
+
+    /**
+     * Sorted numeric columns over this snapshot's card ordinals
+     */
+    public CardRangeIndex getRangeIndex() {
+        return rangeIndex;
+    }
+
+    /**
+     * Numeric attributes as primitive columns over this snapshot's card ordinals
+     */
+    public CardColumnStore getColumnStore() {
+        return columnStore;
+    }
+
+    /**
+     * Per-card feature vectors for recommendations and cost comparisons, computed on first use
+     */
+    public CardFeatureVectors getFeatureVectors() {
+        CardFeatureVectors vectors = featureVectors;
+        if (vectors == null) {
+            vectors = CardFeatureVectors.build(this);
+            featureVectors = vectors;
+        }
+        return vectors;
+    }
+
+    /**
+     * Estimated heap footprint of the cards and indexes, computed on first use
+     */
+    public CatalogFootprint getFootprint() {
+        CatalogFootprint measured = footprint;
+        if (measured == null) {
+            long indexBytes = CatalogFootprint.longArray(keys.length) + CatalogFootprint.intArray(slots.length)
+                    + facetIndex.estimateBytes() + rangeIndex.estimateBytes() + columnStore.estimateBytes();
+            measured = CatalogFootprint.of(cards, indexBytes);
+            footprint = measured;
+        }
+        return measured;
+    }
+
+    public int size() {
+        return cards.size();
+    }
+
+    public boolean isEmpty() {
+        return cards.isEmpty();
+    }
+
+    /**
+     * Version assigned by {@link CardCatalogCache}, increasing with every published snapshot;
+     * 0 for the empty snapshot and snapshots built outside the cache
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLoadedAtNanos() {
+        return loadedAtNanos;
+    }
+
+    private void insert(long id, int ordinal) {
+        int slot = hash(id) & mask;
+        while (slots[slot] != 0) {
+            if (keys[slot] == id) {
+                return; // keep the first occurrence, like a linear findFirst would
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        slots[slot] = ordinal + 1;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
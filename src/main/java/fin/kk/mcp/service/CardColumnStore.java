@@ -0,0 +1,324 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar (struct-of-arrays) copy of the numeric card attributes of a catalog snapshot.
+ *
+ * Every attribute is a primitive {@code long[]} indexed by card ordinal, holding values scaled
+ * like {@link CardRangeIndex} (counts are unscaled), plus a presence bitset. The scan operators
+ * below run tight loops over these arrays and the selection bitsets of {@link CardFacetIndex}
+ * instead of dereferencing {@link Card} objects and boxed numbers per card, so bulk filters,
+ * aggregates and top-K queries over the whole catalog stay in a few cache lines per column.
+ * Columns are built once per snapshot and never modified.
+ */
+public final class CardColumnStore {
+
+    /** Signup bonus minus annual fee, i.e. what a card is worth in its first year */
+    public static final String FIRST_YEAR_VALUE = "firstYearValue";
+    public static final String CUSTOMER_FEEDBACK_COUNT = "customerFeedbackCount";
+
+    private static final List<String> ATTRIBUTES = List.of(CardRangeIndex.ANNUAL_FEE, CardRangeIndex.INTEREST_RATE,
+            CardRangeIndex.BONUS_VALUE, CardRangeIndex.CUSTOMER_RATING, CUSTOMER_FEEDBACK_COUNT, FIRST_YEAR_VALUE);
+
+    private static final int SCALE = 2;
+
+    private final int size;
+    private final Map<String, Column> columns;
+
+    private CardColumnStore(int size, Map<String, Column> columns) {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    /**
+     * Build the columns for a card list
+     * @param cards Cards in ordinal order
+     * @return Column store
+     */
+    public static CardColumnStore build(List<Card> cards) {
+        int size = cards.size();
+        int words = (size + 63) >>> 6;
+        Column annualFee = new Column(size, words, SCALE);
+        Column interestRate = new Column(size, words, SCALE);
+        Column bonusValue = new Column(size, words, SCALE);
+        Column customerRating = new Column(size, words, SCALE);
+        Column feedbackCount = new Column(size, words, 0);
+        Column firstYearValue = new Column(size, words, SCALE);
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            Card card = cards.get(ordinal);
+            annualFee.set(ordinal, card.getAnnualFee());
+            interestRate.set(ordinal, card.getInterestRate());
+            bonusValue.set(ordinal, card.getBonusValue());
+            customerRating.set(ordinal, card.getCustomerRating());
+            if (card.getCustomerFeedbackCount() != null) {
+                feedbackCount.set(ordinal, BigDecimal.valueOf(card.getCustomerFeedbackCount()));
+            }
+            if (card.getBonusValue() != null || card.getAnnualFee() != null) {
+                BigDecimal bonus = card.getBonusValue() != null ? card.getBonusValue() : BigDecimal.ZERO;
+                BigDecimal fee = card.getAnnualFee() != null ? card.getAnnualFee() : BigDecimal.ZERO;
+                firstYearValue.set(ordinal, bonus.subtract(fee));
+            }
+        }
+
+        Map<String, Column> columns = new LinkedHashMap<>();
+        columns.put(CardRangeIndex.ANNUAL_FEE, annualFee);
+        columns.put(CardRangeIndex.INTEREST_RATE, interestRate);
+        columns.put(CardRangeIndex.BONUS_VALUE, bonusValue);
+        columns.put(CardRangeIndex.CUSTOMER_RATING, customerRating);
+        columns.put(CUSTOMER_FEEDBACK_COUNT, feedbackCount);
+        columns.put(FIRST_YEAR_VALUE, firstYearValue);
+        return new CardColumnStore(size, columns);
+    }
+
+    /**
+     * Names of the available columns in a stable order
+     */
+    public static List<String> attributes() {
+        return ATTRIBUTES;
+    }
+
+    /**
+     * Whether the attribute name is backed by a column
+     */
+    public static boolean isAttribute(String attribute) {
+        return ATTRIBUTES.contains(attribute);
+    }
+
+    /**
+     * Filter operator: keep only cards whose attribute lies within [min, max]; a null bound is
+     * open. Cards without a value are dropped as soon as either bound is given.
+     */
+    public void filter(long[] selection, String attribute, BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return;
+        }
+        Column column = column(attribute);
+        long low = min != null ? column.scale(min, RoundingMode.CEILING) : Long.MIN_VALUE;
+        long high = max != null ? column.scale(max, RoundingMode.FLOOR) : Long.MAX_VALUE;
+        long[] values = column.values;
+        for (int word = 0; word < selection.length; word++) {
+            long selected = selection[word] & column.present[word];
+            if (selected == 0) {
+                continue;
+            }
+            // Evaluate the whole word without data-dependent branches, then mask
+            int base = word << 6;
+            int end = Math.min(64, size - base);
+            long matches = 0;
+            for (int bit = 0; bit < end; bit++) {
+                long value = values[base + bit];
+                matches |= (value >= low & value <= high ? 1L : 0L) << bit;
+            }
+            selection[word] = selected & matches;
+        }
+    }
+
+    /**
+     * Aggregate operator: count, minimum, maximum, sum and average of an attribute over the
+     * selected cards that have a value
+     */
+    public Summary aggregate(long[] selection, String attribute) {
+        Column column = column(attribute);
+        long[] values = column.values;
+        int count = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long sum = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word] & column.present[word];
+            while (bits != 0) {
+                long value = values[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                count++;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+                bits &= bits - 1;
+            }
+        }
+        return count == 0
+                ? new Summary(0, null, null, null, null)
+                : new Summary(count, column.unscale(min), column.unscale(max), column.unscale(sum),
+                        column.unscale(sum).divide(BigDecimal.valueOf(count), column.scale + 2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Top-K operator: the ordinals of the {@code k} selected cards with the lowest (or highest)
+     * values, best first, ties broken by ordinal. Selected cards without a value fill the
+     * remaining places in ordinal order, as in {@link CardRangeIndex#collectSorted}.
+     */
+    public int[] topK(long[] selection, String attribute, int k, boolean descending) {
+        Column column = column(attribute);
+        k = Math.min(k, CardFacetIndex.count(selection));
+        if (k <= 0) {
+            return new int[0];
+        }
+        long[] values = column.values;
+        // Bounded max-heap of packed (value, ordinal) keys; the root is the worst key kept so far
+        long[] heap = new long[k];
+        int heapSize = 0;
+        int[] missing = new int[k];
+        int missingCount = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            while (bits != 0) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if ((column.present[word] & (1L << ordinal)) == 0) {
+                    if (missingCount < k) {
+                        missing[missingCount++] = ordinal;
+                    }
+                    continue;
+                }
+                long value = descending ? -values[ordinal] : values[ordinal];
+                long key = (value << 32) | ordinal;
+                if (heapSize < k) {
+                    heap[heapSize] = key;
+                    siftUp(heap, heapSize++);
+                } else if (key < heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, heapSize);
+                }
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+
+        int total = Math.min(k, heapSize + missingCount);
+        int[] ordinals = new int[total];
+        for (int i = 0; i < heapSize; i++) {
+            ordinals[i] = (int) heap[i];
+        }
+        System.arraycopy(missing, 0, ordinals, heapSize, total - heapSize);
+        return ordinals;
+    }
+
+    /**
+     * Approximate heap size of the columns, see {@link CatalogFootprint}
+     */
+    long estimateBytes() {
+        long bytes = 0;
+        for (Column column : columns.values()) {
+            bytes += CatalogFootprint.longArray(column.values.length) + CatalogFootprint.longArray(column.present.length);
+        }
+        return bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private Column column(String attribute) {
+        Column column = columns.get(attribute);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + attribute);
+        }
+        return column;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int heapSize) {
+        long key = heap[0];
+        int index = 0;
+        int child;
+        while ((child = 2 * index + 1) < heapSize) {
+            if (child + 1 < heapSize && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    /**
+     * One attribute in ordinal order; missing values are stored as 0 with a clear presence bit
+     */
+    private static final class Column {
+        private final long[] values;
+        private final long[] present;
+        private final int scale;
+
+        private Column(int size, int words, int scale) {
+            this.values = new long[size];
+            this.present = new long[words];
+            this.scale = scale;
+        }
+
+        private void set(int ordinal, BigDecimal value) {
+            if (value != null) {
+                values[ordinal] = scale(value, RoundingMode.HALF_UP);
+                present[ordinal >>> 6] |= 1L << ordinal;
+            }
+        }
+
+        private long scale(BigDecimal value, RoundingMode roundingMode) {
+            return value.setScale(scale, roundingMode).unscaledValue().longValue();
+        }
+
+        private BigDecimal unscale(long value) {
+            return BigDecimal.valueOf(value, scale);
+        }
+    }
+
+    /**
+     * Result of {@link #aggregate}; all values are null when no selected card has a value
+     */
+    public static final class Summary {
+        private final int count;
+        private final BigDecimal min;
+        private final BigDecimal max;
+        private final BigDecimal sum;
+        private final BigDecimal average;
+
+        private Summary(int count, BigDecimal min, BigDecimal max, BigDecimal sum, BigDecimal average) {
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.average = average;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public BigDecimal getMin() {
+            return min;
+        }
+
+        public BigDecimal getMax() {
+            return max;
+        }
+
+        public BigDecimal getSum() {
+            return sum;
+        }
+
+        public BigDecimal getAverage() {
+            return average;
+        }
+    }
+}
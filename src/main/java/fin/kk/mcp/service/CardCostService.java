@@ -0,0 +1,176 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.dto.CardCost;
+import fin.kk.mcp.dto.CardUsageProfile;
+import fin.kk.mcp.model.Card;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Yearly total cost of ownership of every card for a usage profile.
+ *
+ * The cost of a card is linear in its {@link CardFeatureVectors}: the annual fee, interest on
+ * the carried balance, the foreign transaction fee on payments and the ATM fee on withdrawals
+ * wherever the card does not make them free, minus the signup bonus spread over the given
+ * years. The whole catalog is therefore costed with one dot product per card over the
+ * snapshot's primitive feature array, split over the fork-join pool from
+ * {@code catalog.cost.parallel-threshold} cards on, and ranked by sorting packed
+ * (cost, ordinal) keys.
+ */
+@Service
+public class CardCostService {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final CardCatalogCache cardCatalogCache;
+    private final float foreignFeeRate;
+    private final float withdrawalFee;
+    private final int parallelThreshold;
+
+    @Autowired
+    public CardCostService(CardCatalogCache cardCatalogCache,
+                           @Value("${recommendation.foreign-fee-rate:0.0175}") float foreignFeeRate,
+                           @Value("${recommendation.withdrawal-fee:5.00}") float withdrawalFee,
+                           @Value("${catalog.cost.parallel-threshold:4096}") int parallelThreshold) {
+        this.cardCatalogCache = cardCatalogCache;
+        this.foreignFeeRate = foreignFeeRate;
+        this.withdrawalFee = withdrawalFee;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Cost every card of the catalog for a usage profile
+     * @param profile How the customer uses the card
+     * @return The cheapest cards first, with their cost broken down
+     */
+    public List<CardCost> compare(CardUsageProfile profile) {
+        return compare(cardCatalogCache.getSnapshot(), profile);
+    }
+
+    List<CardCost> compare(CardCatalogSnapshot snapshot, CardUsageProfile profile) {
+        validate(profile);
+        CardFeatureVectors features = snapshot.getFeatureVectors();
+        float[] weights = weights(profile);
+        float baseline = baseline(weights);
+        boolean parallel = snapshot.size() >= parallelThreshold;
+        float[] scores = features.scoreAll(weights, parallel);
+
+        // Debit and charge cards cannot carry a balance at all
+        long[] selection = snapshot.getFacetIndex().allCards();
+        if (weights[CardFeatureVectors.INTEREST_RATE] != 0) {
+            snapshot.getFacetIndex().retain(selection, CardFacetIndex.CARD_TYPE, "CREDIT");
+        }
+        long[] keys = new long[CardFacetIndex.count(selection)];
+        int count = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            while (bits != 0) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                keys[count++] = ((long) sortable(baseline - scores[ordinal]) << 32) | ordinal;
+            }
+        }
+        if (parallel) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+
+        int limit = profile.getLimit() != null && profile.getLimit() > 0 ? profile.getLimit() : DEFAULT_LIMIT;
+        List<CardCost> costs = new ArrayList<>(Math.min(limit, keys.length));
+        for (int i = 0; i < keys.length && i < limit; i++) {
+            int ordinal = (int) keys[i];
+            costs.add(cost(snapshot.getCards().get(ordinal), features, ordinal, weights, baseline - scores[ordinal]));
+        }
+        return costs;
+    }
+
+    /**
+     * Weights such that a card's cost is {@link #baseline} minus its score: fee and interest
+     * count negatively, every "free" flag saves the fees it avoids, the bonus is credited
+     */
+    private float[] weights(CardUsageProfile profile) {
+        float monthlySpend = orZero(profile.getMonthlySpend());
+        float foreignSpend = orZero(profile.getForeignSpendPerMonth());
+        float euroZoneSpend = Math.max(0f, monthlySpend - foreignSpend);
+        int withdrawals = profile.getCashWithdrawalsPerMonth() != null ? profile.getCashWithdrawalsPerMonth() : 0;
+        int foreignWithdrawals = profile.getForeignCashWithdrawalsPerMonth() != null ? profile.getForeignCashWithdrawalsPerMonth() : 0;
+        int years = profile.getYears() != null ? profile.getYears() : 1;
+
+        float[] weights = new float[CardFeatureVectors.DIMENSIONS];
+        weights[CardFeatureVectors.ANNUAL_FEE] = -1f;
+        // Rates are in percent per year
+        weights[CardFeatureVectors.INTEREST_RATE] = -orZero(profile.getCarriedBalance()) / 100f;
+        weights[CardFeatureVectors.BONUS_VALUE] = 1f / years;
+        weights[CardFeatureVectors.FREE_PAYMENT_EURO_ZONE] = euroZoneSpend * 12 * foreignFeeRate;
+        weights[CardFeatureVectors.FREE_PAYMENT_WORLDWIDE] = foreignSpend * 12 * foreignFeeRate;
+        weights[CardFeatureVectors.FREE_WITHDRAW_EURO_ZONE] = withdrawals * 12 * withdrawalFee;
+        weights[CardFeatureVectors.FREE_WITHDRAW_WORLDWIDE] = foreignWithdrawals * 12 * withdrawalFee;
+        return weights;
+    }
+
+    /**
+     * Fees a card without any free payments or withdrawals would charge
+     */
+    private static float baseline(float[] weights) {
+        return weights[CardFeatureVectors.FREE_PAYMENT_EURO_ZONE] + weights[CardFeatureVectors.FREE_PAYMENT_WORLDWIDE]
+                + weights[CardFeatureVectors.FREE_WITHDRAW_EURO_ZONE] + weights[CardFeatureVectors.FREE_WITHDRAW_WORLDWIDE];
+    }
+
+    private static CardCost cost(Card card, CardFeatureVectors features, int ordinal, float[] weights, float total) {
+        float paymentFees = charged(features, ordinal, weights, CardFeatureVectors.FREE_PAYMENT_EURO_ZONE)
+                + charged(features, ordinal, weights, CardFeatureVectors.FREE_PAYMENT_WORLDWIDE);
+        float withdrawalFees = charged(features, ordinal, weights, CardFeatureVectors.FREE_WITHDRAW_EURO_ZONE)
+                + charged(features, ordinal, weights, CardFeatureVectors.FREE_WITHDRAW_WORLDWIDE);
+        return new CardCost(card.getId(), card.getBankName(), card.getCardName(),
+                round(-features.contribution(ordinal, CardFeatureVectors.ANNUAL_FEE, weights)),
+                round(-features.contribution(ordinal, CardFeatureVectors.INTEREST_RATE, weights)),
+                round(paymentFees), round(withdrawalFees),
+                round(features.contribution(ordinal, CardFeatureVectors.BONUS_VALUE, weights)),
+                round(total));
+    }
+
+    /**
+     * Fees behind a "free" flag that the card does not have
+     */
+    private static float charged(CardFeatureVectors features, int ordinal, float[] weights, int flag) {
+        return weights[flag] - features.contribution(ordinal, flag, weights);
+    }
+
+    /**
+     * Map a float to an int with the same order, so costs can be packed into sortable longs
+     */
+    private static int sortable(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    private static double round(float value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static float orZero(BigDecimal value) {
+        return value != null ? value.floatValue() : 0f;
+    }
+
+    private static void validate(CardUsageProfile profile) {
+        for (BigDecimal value : new BigDecimal[]{profile.getMonthlySpend(), profile.getForeignSpendPerMonth(), profile.getCarriedBalance()}) {
+            if (value != null && value.signum() < 0) {
+                throw new IllegalArgumentException("Spend and balance must not be negative");
+            }
+        }
+        if ((profile.getCashWithdrawalsPerMonth() != null && profile.getCashWithdrawalsPerMonth() < 0)
+                || (profile.getForeignCashWithdrawalsPerMonth() != null && profile.getForeignCashWithdrawalsPerMonth() < 0)) {
+            throw new IllegalArgumentException("Withdrawals must not be negative");
+        }
+        if (profile.getYears() != null && profile.getYears() < 1) {
+            throw new IllegalArgumentException("years must be at least 1");
+        }
+    }
+}
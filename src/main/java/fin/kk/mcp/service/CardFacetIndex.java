@@ -0,0 +1,219 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Per-facet bitset indexes over the ordinals of a catalog snapshot.
+ *
+ * Every enum-like facet value and every boolean feature owns a {@code long[]} bitset with one
+ * bit per card. A conjunctive filter starts from {@link #allCards()} and is narrowed with
+ * {@link #retain} / {@link #retainFlag}, which are plain word-wise ANDs, so answering a query
+ * costs a handful of machine words per facet no matter how many filters are combined.
+ */
+public final class CardFacetIndex {
+
+    public static final String CARD_SYSTEM = "cardSystem";
+    public static final String CARD_TYPE = "cardType";
+    public static final String PAYMENT_GRADE = "paymentGrade";
+    public static final String WITHDRAW_GRADE = "withdrawGrade";
+    public static final String INSURANCE_GRADE = "insuranceGrade";
+
+    public static final String CONTACTLESS_PAYMENT = "contactlessPayment";
+    public static final String APPLE_PAY = "applePaySupported";
+    public static final String GOOGLE_PAY = "googlePaySupported";
+    public static final String FREE_PAYMENT_EURO_ZONE = "freePaymentEuroZone";
+    public static final String FREE_PAYMENT_WORLDWIDE = "freePaymentWorldwide";
+    public static final String FREE_WITHDRAW_EURO_ZONE = "freeWithdrawEuroZone";
+    public static final String FREE_WITHDRAW_WORLDWIDE = "freeWithdrawWorldwide";
+    public static final String TRAVEL_INSURANCE = "travelInsurance";
+    public static final String HEALTH_INSURANCE_ABROAD = "healthInsuranceAbroad";
+    public static final String ACCIDENT_INSURANCE_ABROAD = "accidentInsuranceAbroad";
+
+    private static final Map<String, Function<Card, String>> VALUE_FACETS = new LinkedHashMap<>();
+    private static final Map<String, Predicate<Card>> FLAG_FACETS = new LinkedHashMap<>();
+
+    static {
+        VALUE_FACETS.put(CARD_SYSTEM, Card::getCardSystem);
+        VALUE_FACETS.put(CARD_TYPE, Card::getCardType);
+        VALUE_FACETS.put(PAYMENT_GRADE, Card::getPaymentGrade);
+        VALUE_FACETS.put(WITHDRAW_GRADE, Card::getWithdrawGrade);
+        VALUE_FACETS.put(INSURANCE_GRADE, Card::getInsuranceGrade);
+
+        FLAG_FACETS.put(CONTACTLESS_PAYMENT, Card::isContactlessPayment);
+        FLAG_FACETS.put(APPLE_PAY, Card::isApplePaySupported);
+        FLAG_FACETS.put(GOOGLE_PAY, Card::isGooglePaySupported);
+        FLAG_FACETS.put(FREE_PAYMENT_EURO_ZONE, Card::isFreePaymentEuroZone);
+        FLAG_FACETS.put(FREE_PAYMENT_WORLDWIDE, Card::isFreePaymentWorldwide);
+        FLAG_FACETS.put(FREE_WITHDRAW_EURO_ZONE, Card::isFreeWithdrawEuroZone);
+        FLAG_FACETS.put(FREE_WITHDRAW_WORLDWIDE, Card::isFreeWithdrawWorldwide);
+        FLAG_FACETS.put(TRAVEL_INSURANCE, Card::isTravelInsurance);
+        FLAG_FACETS.put(HEALTH_INSURANCE_ABROAD, Card::isHealthInsuranceAbroad);
+        FLAG_FACETS.put(ACCIDENT_INSURANCE_ABROAD, Card::isAccidentInsuranceAbroad);
+    }
+
+    private final int size;
+    private final long[] all;
+    private final Map<String, Map<String, long[]>> valueBits;
+    private final Map<String, long[]> flagBits;
+
+    private CardFacetIndex(int size, long[] all, Map<String, Map<String, long[]>> valueBits, Map<String, long[]> flagBits) {
+        this.size = size;
+        this.all = all;
+        this.valueBits = valueBits;
+        this.flagBits = flagBits;
+    }
+
+    /**
+     * Build the facet bitsets for a card list
+     * @param cards Cards in ordinal order
+     * @return Facet index
+     */
+    public static CardFacetIndex build(List<Card> cards) {
+        int size = cards.size();
+        int words = (size + 63) >>> 6;
+
+        long[] all = new long[words];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            all[ordinal >>> 6] |= 1L << ordinal;
+        }
+
+        Map<String, Map<String, long[]>> valueBits = new HashMap<>();
+        for (Map.Entry<String, Function<Card, String>> facet : VALUE_FACETS.entrySet()) {
+            Map<String, long[]> values = new HashMap<>();
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                String value = facet.getValue().apply(cards.get(ordinal));
+                if (value != null) {
+                    values.computeIfAbsent(normalize(value), key -> new long[words])[ordinal >>> 6] |= 1L << ordinal;
+                }
+            }
+            valueBits.put(facet.getKey(), values);
+        }
+
+        Map<String, long[]> flagBits = new HashMap<>();
+        for (Map.Entry<String, Predicate<Card>> flag : FLAG_FACETS.entrySet()) {
+            long[] bits = new long[words];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (flag.getValue().test(cards.get(ordinal))) {
+                    bits[ordinal >>> 6] |= 1L << ordinal;
+                }
+            }
+            flagBits.put(flag.getKey(), bits);
+        }
+
+        return new CardFacetIndex(size, all, valueBits, flagBits);
+    }
+
+    /**
+     * Get a fresh bitset with every card selected, to be narrowed by the retain methods
+     */
+    public long[] allCards() {
+        return all.clone();
+    }
+
+    /**
+     * Keep only cards whose facet equals the value (case-insensitive).
+     * Unknown facets or values leave nothing selected.
+     */
+    public void retain(long[] selection, String facet, String value) {
+        Map<String, long[]> values = valueBits.get(facet);
+        long[] bits = values != null && value != null ? values.get(normalize(value)) : null;
+        if (bits == null) {
+            Arrays.fill(selection, 0L);
+            return;
+        }
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] &= bits[i];
+        }
+    }
+
+    /**
+     * Keep only cards whose boolean feature has the expected value
+     */
+    public void retainFlag(long[] selection, String flag, boolean expected) {
+        long[] bits = flagBits.get(flag);
+        if (bits == null) {
+            throw new IllegalArgumentException("Unknown flag facet: " + flag);
+        }
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] &= expected ? bits[i] : ~bits[i] & all[i];
+        }
+    }
+
+    /**
+     * Collect the selected cards in ordinal order
+     * @param selection Bitset produced by this index
+     * @param cards Cards of the snapshot this index was built from
+     * @param limit Maximum number of cards to return
+     */
+    public List<Card> collect(long[] selection, List<Card> cards, int limit) {
+        List<Card> result = new ArrayList<>(Math.min(limit, count(selection)));
+        for (int word = 0; word < selection.length && result.size() < limit; word++) {
+            long bits = selection[word];
+            while (bits != 0 && result.size() < limit) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(bits);
+                result.add(cards.get(ordinal));
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of selected cards
+     */
+    public static int count(long[] selection) {
+        int count = 0;
+        for (long word : selection) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Distinct values per enum-like facet with the number of cards having each value
+     */
+    public Map<String, Map<String, Integer>> getFacetCounts() {
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        for (String facet : VALUE_FACETS.keySet()) {
+            Map<String, Integer> values = new LinkedHashMap<>();
+            valueBits.get(facet).forEach((value, bits) -> values.put(value, count(bits)));
+            counts.put(facet, Collections.unmodifiableMap(values));
+        }
+        return counts;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap size of the bitsets, see {@link CatalogFootprint}
+     */
+    long estimateBytes() {
+        long bytes = CatalogFootprint.longArray(all.length);
+        for (Map<String, long[]> values : valueBits.values()) {
+            for (long[] bits : values.values()) {
+                bytes += CatalogFootprint.longArray(bits.length);
+            }
+        }
+        for (long[] bits : flagBits.values()) {
+            bytes += CatalogFootprint.longArray(bits.length);
+        }
+        return bytes;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+}
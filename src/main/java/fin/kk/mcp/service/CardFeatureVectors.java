@@ -0,0 +1,206 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Per-card feature vectors of a catalog snapshot for the recommendation engine and the cost
+ * comparison.
+ *
+ * Every card is reduced to a fixed set of features (fee, rate, bonus, rating and the flags
+ * that save a customer money), stored row by row in one {@code float[]}. A customer profile
+ * becomes a weight vector over the same features expressed in EUR per year, so a card's
+ * expected value for that customer is a single dot product and ranking the whole catalog is
+ * one pass over the array. Missing numeric values count as 0. Built once per snapshot (see
+ * {@link CardCatalogSnapshot#getFeatureVectors()}) and never modified.
+ */
+public final class CardFeatureVectors {
+
+    static final int ANNUAL_FEE = 0;
+    static final int INTEREST_RATE = 1;
+    static final int BONUS_VALUE = 2;
+    static final int RATING = 3;
+    static final int FREE_PAYMENT_EURO_ZONE = 4;
+    static final int FREE_PAYMENT_WORLDWIDE = 5;
+    static final int FREE_WITHDRAW_EURO_ZONE = 6;
+    static final int FREE_WITHDRAW_WORLDWIDE = 7;
+    static final int TRAVEL_INSURANCE = 8;
+    static final int HEALTH_INSURANCE_ABROAD = 9;
+    static final int ACCIDENT_INSURANCE_ABROAD = 10;
+    static final int MOBILE_PAYMENT = 11;
+    static final int DIMENSIONS = 12;
+
+    // Ratings are trusted fully from this many reviews on, less below
+    private static final double CONFIDENT_FEEDBACK_COUNT = 100;
+    private static final float NEUTRAL_RATING = 3f;
+
+    private final CardCatalogSnapshot snapshot;
+    private final float[] features;
+
+    private CardFeatureVectors(CardCatalogSnapshot snapshot, float[] features) {
+        this.snapshot = snapshot;
+        this.features = features;
+    }
+
+    /**
+     * Compute the feature vectors of all cards of a snapshot
+     * @param snapshot Snapshot whose cards to encode
+     * @return Feature vectors in ordinal order
+     */
+    public static CardFeatureVectors build(CardCatalogSnapshot snapshot) {
+        List<Card> cards = snapshot.getCards();
+        float[] features = new float[cards.size() * DIMENSIONS];
+        for (int ordinal = 0; ordinal < cards.size(); ordinal++) {
+            Card card = cards.get(ordinal);
+            int row = ordinal * DIMENSIONS;
+            features[row + ANNUAL_FEE] = value(card.getAnnualFee());
+            features[row + INTEREST_RATE] = value(card.getInterestRate());
+            features[row + BONUS_VALUE] = value(card.getBonusValue());
+            features[row + RATING] = rating(card);
+            features[row + FREE_PAYMENT_EURO_ZONE] = flag(card.isFreePaymentEuroZone());
+            features[row + FREE_PAYMENT_WORLDWIDE] = flag(card.isFreePaymentWorldwide());
+            features[row + FREE_WITHDRAW_EURO_ZONE] = flag(card.isFreeWithdrawEuroZone());
+            features[row + FREE_WITHDRAW_WORLDWIDE] = flag(card.isFreeWithdrawWorldwide());
+            features[row + TRAVEL_INSURANCE] = flag(card.isTravelInsurance());
+            features[row + HEALTH_INSURANCE_ABROAD] = flag(card.isHealthInsuranceAbroad());
+            features[row + ACCIDENT_INSURANCE_ABROAD] = flag(card.isAccidentInsuranceAbroad());
+            features[row + MOBILE_PAYMENT] = flag(card.isApplePaySupported() || card.isGooglePaySupported());
+        }
+        return new CardFeatureVectors(snapshot, features);
+    }
+
+    /**
+     * Expected value of a card for the customer described by the weights
+     */
+    public float score(int ordinal, float[] weights) {
+        int row = ordinal * DIMENSIONS;
+        float score = 0;
+        for (int feature = 0; feature < DIMENSIONS; feature++) {
+            score += features[row + feature] * weights[feature];
+        }
+        return score;
+    }
+
+    /**
+     * {@link #score} of every card in ordinal order
+     * @param weights Weight per feature
+     * @param parallel Split the cards over the common fork-join pool; only pays off for large catalogs
+     * @return Score per ordinal
+     */
+    public float[] scoreAll(float[] weights, boolean parallel) {
+        float[] scores = new float[snapshot.size()];
+        IntStream ordinals = IntStream.range(0, scores.length);
+        (parallel ? ordinals.parallel() : ordinals).forEach(ordinal -> scores[ordinal] = score(ordinal, weights));
+        return scores;
+    }
+
+    /**
+     * Share of one feature in {@link #score}
+     */
+    public float contribution(int ordinal, int feature, float[] weights) {
+        return features[ordinal * DIMENSIONS + feature] * weights[feature];
+    }
+
+    /**
+     * Ordinals of the {@code k} selected cards with the highest scores, best first, ties broken
+     * by ordinal
+     * @param selection Bitset of candidate ordinals, see {@link CardFacetIndex}
+     * @param weights Weight per feature
+     * @param k Maximum number of ordinals
+     * @return Best ordinals
+     */
+    public int[] topK(long[] selection, float[] weights, int k) {
+        k = Math.min(k, CardFacetIndex.count(selection));
+        if (k <= 0) {
+            return new int[0];
+        }
+        float[] scores = new float[snapshot.size()];
+        // Bounded min-heap of ordinals; the root is the worst card kept so far
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            while (bits != 0) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                scores[ordinal] = score(ordinal, weights);
+                if (heapSize < k) {
+                    heap[heapSize] = ordinal;
+                    siftUp(heap, heapSize++, scores);
+                } else if (worse(heap[0], ordinal, scores)) {
+                    heap[0] = ordinal;
+                    siftDown(heap, heapSize, scores);
+                }
+            }
+        }
+        // Pop the worst card to the end until the heap is empty
+        for (int end = heapSize - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, end, scores);
+        }
+        return heap;
+    }
+
+    public CardCatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private static boolean worse(int a, int b, float[] scores) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && a > b);
+    }
+
+    private static void siftUp(int[] heap, int index, float[] scores) {
+        int ordinal = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(ordinal, heap[parent], scores)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = ordinal;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, float[] scores) {
+        int ordinal = heap[0];
+        int index = 0;
+        int child;
+        while ((child = 2 * index + 1) < heapSize) {
+            if (child + 1 < heapSize && worse(heap[child + 1], heap[child], scores)) {
+                child++;
+            }
+            if (!worse(heap[child], ordinal, scores)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = ordinal;
+    }
+
+    /**
+     * Stars above or below a neutral rating, damped for cards with few reviews
+     */
+    private static float rating(Card card) {
+        if (card.getCustomerRating() == null) {
+            return 0f;
+        }
+        int feedback = card.getCustomerFeedbackCount() != null ? card.getCustomerFeedbackCount() : 0;
+        double confidence = Math.min(1.0, Math.log1p(feedback) / Math.log1p(CONFIDENT_FEEDBACK_COUNT));
+        return (float) ((card.getCustomerRating().floatValue() - NEUTRAL_RATING) * confidence);
+    }
+
+    private static float value(BigDecimal value) {
+        return value != null ? value.floatValue() : 0f;
+    }
+
+    private static float flag(boolean value) {
+        return value ? 1f : 0f;
+    }
+}
@@ -0,0 +1,250 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.RawValue;
+import fin.kk.mcp.model.Card;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service for rendering cards as JSON restricted to a set of fields, for tool responses that
+ * end up in the model context.
+ *
+ * The JSON fragment of every card is rendered once per catalog snapshot and projection and
+ * kept until the snapshot is replaced; a response is then assembled by concatenating the
+ * fragments of the requested cards. When the snapshot is replaced, fragments of cards that
+ * are the same instances as before are carried over, so only changed cards are rendered
+ * again. Results are returned as {@link RawValue}, which Jackson
+ * writes verbatim, so callers can keep serializing tool results with their own ObjectMapper.
+ */
+@Service
+public class CardProjectionService {
+
+    /** Fields returned in summary mode */
+    public static final List<String> SUMMARY_FIELDS = List.of(
+            "id", "bankName", "cardName", "cardType", "cardSystem",
+            "annualFee", "interestRate", "bonusValue", "customerRating");
+
+    private static final String ALL_FIELDS_KEY = "*";
+    private static final String PROJECTION_FILTER = "cardProjection";
+
+    // Bounds the cache when callers ask for many different ad-hoc field lists
+    private static final int MAX_CACHED_PROJECTIONS = 16;
+
+    private final CardCatalogCache cardCatalogCache;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper projectionMapper;
+    private final List<String> cardFields;
+
+    private volatile FragmentCache fragmentCache = new FragmentCache(CardCatalogSnapshot.empty(), null);
+
+    @Autowired
+    public CardProjectionService(CardCatalogCache cardCatalogCache, ObjectMapper objectMapper) {
+        this.cardCatalogCache = cardCatalogCache;
+        this.objectMapper = objectMapper;
+        // Same settings as the application mapper, but Card goes through the projection filter
+        this.projectionMapper = objectMapper.copy().addMixIn(Card.class, ProjectionMixIn.class);
+
+        List<String> fields = new ArrayList<>();
+        for (BeanPropertyDefinition property : objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(Card.class)).findProperties()) {
+            if (property.couldSerialize()) {
+                fields.add(property.getName());
+            }
+        }
+        this.cardFields = List.copyOf(fields);
+    }
+
+    /**
+     * Render cards as a JSON array
+     * @param cards Cards of the current catalog, e.g. a search result
+     * @param fields Comma-separated field names; null or blank for all fields unless {@code summary} is set
+     * @param summary Use {@link #SUMMARY_FIELDS} if no explicit fields are given
+     * @return JSON array of the projected cards
+     */
+    public RawValue toJson(List<Card> cards, String fields, Boolean summary) {
+        List<String> projection = resolve(fields, summary);
+        String key = projection == null ? ALL_FIELDS_KEY : String.join(",", projection);
+        FragmentCache cache = currentCache();
+        String[] fragments = cache.fragments(key, projection);
+
+        StringBuilder json = new StringBuilder(cards.size() * 256).append('[');
+        for (int i = 0; i < cards.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(fragment(cards.get(i), cache.snapshot, fragments, projection));
+        }
+        return new RawValue(json.append(']').toString());
+    }
+
+    /**
+     * Render a single card as a JSON object
+     * @return JSON object of the projected card, or null if the card is null
+     */
+    public RawValue toJson(Card card, String fields, Boolean summary) {
+        if (card == null) {
+            return null;
+        }
+        List<String> projection = resolve(fields, summary);
+        String key = projection == null ? ALL_FIELDS_KEY : String.join(",", projection);
+        FragmentCache cache = currentCache();
+        return new RawValue(fragment(card, cache.snapshot, cache.fragments(key, projection), projection));
+    }
+
+    /**
+     * Serializable card field names, in the order they are rendered
+     */
+    public List<String> getCardFields() {
+        return cardFields;
+    }
+
+    /**
+     * Resolve the requested fields into card field order, or null for all fields
+     */
+    private List<String> resolve(String fields, Boolean summary) {
+        if (fields == null || fields.isBlank()) {
+            return Boolean.TRUE.equals(summary) ? SUMMARY_FIELDS : null;
+        }
+
+        Set<String> requested = new HashSet<>();
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            String match = cardFields.stream()
+                    .filter(candidate -> candidate.equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElse(null);
+            if (match == null) {
+                unknown.add(name);
+            } else {
+                requested.add(match);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown card field(s) " + unknown + "; available: " + cardFields);
+        }
+
+        List<String> projection = new ArrayList<>(requested.size());
+        for (String field : cardFields) {
+            if (requested.contains(field)) {
+                projection.add(field);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Fragment cache of the latest snapshot; the previous snapshot's fragments are dropped.
+     * Readers pinned to an older version use it too, fragments are only taken for identical cards.
+     * The caller has already read the catalog, so this lookup is not counted as another cache read.
+     */
+    private FragmentCache currentCache() {
+        CardCatalogSnapshot snapshot = cardCatalogCache.peekLatestSnapshot();
+        FragmentCache cache = fragmentCache;
+        if (cache.snapshot != snapshot) {
+            cache = new FragmentCache(snapshot, cache);
+            fragmentCache = cache;
+        }
+        return cache;
+    }
+
+    private String fragment(Card card, CardCatalogSnapshot snapshot, String[] fragments, List<String> projection) {
+        if (fragments != null && card.getId() != null) {
+            int ordinal = snapshot.ordinalOf(card.getId());
+            // Only reuse the fragment if it was rendered from this very card instance
+            if (ordinal >= 0 && snapshot.getCards().get(ordinal) == card) {
+                return fragments[ordinal];
+            }
+        }
+        return render(writer(projection), card);
+    }
+
+    /**
+     * Render the fragments of a snapshot, reusing those of unchanged cards from the previous one
+     */
+    private String[] render(CardCatalogSnapshot snapshot, List<String> projection,
+                            CardCatalogSnapshot previous, String[] previousFragments) {
+        ObjectWriter writer = writer(projection);
+        List<Card> cards = snapshot.getCards();
+        String[] fragments = new String[cards.size()];
+        for (int ordinal = 0; ordinal < fragments.length; ordinal++) {
+            Card card = cards.get(ordinal);
+            if (previousFragments != null && card.getId() != null) {
+                int previousOrdinal = previous.ordinalOf(card.getId());
+                if (previousOrdinal >= 0 && previous.getCards().get(previousOrdinal) == card) {
+                    fragments[ordinal] = previousFragments[previousOrdinal];
+                    continue;
+                }
+            }
+            fragments[ordinal] = render(writer, card);
+        }
+        return fragments;
+    }
+
+    private ObjectWriter writer(List<String> projection) {
+        if (projection == null) {
+            return objectMapper.writer();
+        }
+        return projectionMapper.writer(new SimpleFilterProvider().addFilter(PROJECTION_FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept(new HashSet<>(projection))));
+    }
+
+    private String render(ObjectWriter writer, Card card) {
+        try {
+            return writer.writeValueAsString(card);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize card " + card.getId() + ": " + e.getOriginalMessage(), e);
+        }
+    }
+
+    @JsonFilter(PROJECTION_FILTER)
+    private interface ProjectionMixIn {
+    }
+
+    /**
+     * Rendered fragments per projection key for one snapshot
+     */
+    private final class FragmentCache {
+        private final CardCatalogSnapshot snapshot;
+        private final Map<String, String[]> byProjection = new ConcurrentHashMap<>();
+        // Fragments of the replaced snapshot, kept until each projection has been rendered once
+        private final CardCatalogSnapshot previousSnapshot;
+        private final Map<String, String[]> previousByProjection;
+
+        private FragmentCache(CardCatalogSnapshot snapshot, FragmentCache previous) {
+            this.snapshot = snapshot;
+            this.previousSnapshot = previous != null ? previous.snapshot : null;
+            this.previousByProjection = previous != null ? previous.byProjection : Map.of();
+        }
+
+        /**
+         * Fragments of every card in the snapshot by ordinal, or null if the projection is not cached
+         */
+        String[] fragments(String key, List<String> projection) {
+            String[] fragments = byProjection.get(key);
+            if (fragments == null && byProjection.size() < MAX_CACHED_PROJECTIONS) {
+                fragments = byProjection.computeIfAbsent(key,
+                        k -> render(snapshot, projection, previousSnapshot, previousByProjection.get(k)));
+            }
+            return fragments;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sorted range indexes over the numeric card attributes of a catalog snapshot.
+ *
+ * Each attribute is stored as a primitive array of values scaled by 100 (cents, basis points,
+ * hundredths of a star) in ascending order, with a parallel array of card ordinals. Range
+ * filters are two binary searches and produce the same bitset format as {@link CardFacetIndex},
+ * so they combine with facet filters by AND; ordered results walk the sorted ordinals directly
+ * instead of comparing {@link BigDecimal}s per request. Cards without a value sort last.
+ */
+public final class CardRangeIndex {
+
+    public static final String ANNUAL_FEE = "annualFee";
+    public static final String INTEREST_RATE = "interestRate";
+    public static final String BONUS_VALUE = "bonusValue";
+    public static final String CUSTOMER_RATING = "customerRating";
+
+    private static final int SCALE = 2;
+
+    private static final Map<String, Function<Card, BigDecimal>> ATTRIBUTES = new LinkedHashMap<>();
+
+    static {
+        ATTRIBUTES.put(ANNUAL_FEE, Card::getAnnualFee);
+        ATTRIBUTES.put(INTEREST_RATE, Card::getInterestRate);
+        ATTRIBUTES.put(BONUS_VALUE, Card::getBonusValue);
+        ATTRIBUTES.put(CUSTOMER_RATING, Card::getCustomerRating);
+    }
+
+    private final int words;
+    private final Map<String, SortedColumn> columns;
+
+    private CardRangeIndex(int words, Map<String, SortedColumn> columns) {
+        this.words = words;
+        this.columns = columns;
+    }
+
+    /**
+     * Build the sorted columns for a card list
+     * @param cards Cards in ordinal order
+     * @return Range index
+     */
+    public static CardRangeIndex build(List<Card> cards) {
+        Map<String, SortedColumn> columns = new LinkedHashMap<>();
+        for (Map.Entry<String, Function<Card, BigDecimal>> attribute : ATTRIBUTES.entrySet()) {
+            columns.put(attribute.getKey(), SortedColumn.build(cards, attribute.getValue()));
+        }
+        return new CardRangeIndex((cards.size() + 63) >>> 6, columns);
+    }
+
+    /**
+     * Whether the attribute name is backed by a range index
+     */
+    public static boolean isAttribute(String attribute) {
+        return ATTRIBUTES.containsKey(attribute);
+    }
+
+    /**
+     * Keep only cards whose attribute lies within [min, max]; a null bound is open.
+     * Cards without a value are dropped as soon as either bound is given.
+     */
+    public void retainRange(long[] selection, String attribute, BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return;
+        }
+        SortedColumn column = column(attribute);
+        int from = min != null ? column.lowerBound(scale(min, RoundingMode.CEILING)) : 0;
+        int to = max != null ? column.upperBound(scale(max, RoundingMode.FLOOR)) : column.values.length;
+
+        long[] range = new long[words];
+        for (int i = from; i < to; i++) {
+            int ordinal = column.ordinals[i];
+            range[ordinal >>> 6] |= 1L << ordinal;
+        }
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] &= range[i];
+        }
+    }
+
+    /**
+     * Collect selected cards ordered by an attribute
+     * @param selection Bitset over the snapshot ordinals
+     * @param attribute Attribute to order by
+     * @param descending Highest values first if true
+     * @param offset Number of matching cards to skip
+     * @param limit Maximum number of cards to return
+     * @param cards Cards of the snapshot this index was built from
+     */
+    public List<Card> collectSorted(long[] selection, String attribute, boolean descending,
+                                    int offset, int limit, List<Card> cards) {
+        SortedColumn column = column(attribute);
+        List<Card> result = new ArrayList<>(Math.min(limit, 64));
+        int skipped = 0;
+        int valued = column.ordinals.length - column.missing;
+        for (int i = 0; i < column.ordinals.length && result.size() < limit; i++) {
+            // Walk valued entries in the requested direction, then the cards without a value
+            int position = i < valued && descending ? valued - 1 - i : i;
+            int ordinal = column.ordinals[position];
+            if ((selection[ordinal >>> 6] & (1L << ordinal)) == 0) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            result.add(cards.get(ordinal));
+        }
+        return result;
+    }
+
+    /**
+     * Approximate heap size of the sorted columns, see {@link CatalogFootprint}
+     */
+    long estimateBytes() {
+        long bytes = 0;
+        for (SortedColumn column : columns.values()) {
+            bytes += CatalogFootprint.longArray(column.values.length) + CatalogFootprint.intArray(column.ordinals.length);
+        }
+        return bytes;
+    }
+
+    private SortedColumn column(String attribute) {
+        SortedColumn column = columns.get(attribute);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown range attribute: " + attribute);
+        }
+        return column;
+    }
+
+    static long scale(BigDecimal value, RoundingMode roundingMode) {
+        return value.setScale(SCALE, roundingMode).unscaledValue().longValue();
+    }
+
+    /**
+     * Ascending scaled values with their ordinals; ordinals of cards without a value are
+     * stored after the valued entries.
+     */
+    private static final class SortedColumn {
+        private final long[] values;
+        private final int[] ordinals;
+        private final int missing;
+
+        private SortedColumn(long[] values, int[] ordinals, int missing) {
+            this.values = values;
+            this.ordinals = ordinals;
+            this.missing = missing;
+        }
+
+        static SortedColumn build(List<Card> cards, Function<Card, BigDecimal> getter) {
+            int size = cards.size();
+            long[] keys = new long[size];
+            int valued = 0;
+            int[] missingOrdinals = new int[size];
+            int missing = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                BigDecimal value = getter.apply(cards.get(ordinal));
+                if (value == null) {
+                    missingOrdinals[missing++] = ordinal;
+                } else {
+                    // Pack the value into the high bits and the ordinal into the low 32 bits so a
+                    // single primitive sort orders by value with a stable ordinal tie-break
+                    keys[valued++] = (scale(value, RoundingMode.HALF_UP) << 32) | ordinal;
+                }
+            }
+            Arrays.sort(keys, 0, valued);
+
+            long[] values = new long[valued];
+            int[] ordinals = new int[size];
+            for (int i = 0; i < valued; i++) {
+                values[i] = keys[i] >> 32;
+                ordinals[i] = (int) keys[i];
+            }
+            System.arraycopy(missingOrdinals, 0, ordinals, valued, missing);
+            return new SortedColumn(values, ordinals, missing);
+        }
+
+        /** First position whose value is >= key */
+        int lowerBound(long key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** First position whose value is > key */
+        int upperBound(long key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
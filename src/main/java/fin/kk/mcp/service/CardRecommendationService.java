@@ -0,0 +1,228 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.dto.CardRecommendation;
+import fin.kk.mcp.dto.CardRecommendationProfile;
+import fin.kk.mcp.dto.CardSearchCriteria;
+import fin.kk.mcp.model.ApplicationStatus;
+import fin.kk.mcp.model.Card;
+import fin.kk.mcp.model.CustomerProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic card recommendations for a customer profile.
+ *
+ * The profile (spend, share of foreign spend, trips, withdrawals, revolving balance and
+ * preferences) is turned into a weight per {@link CardFeatureVectors} feature, valued in EUR for
+ * the first year: an annual fee costs its amount, a free-payments-abroad flag saves the foreign
+ * transaction fee on the foreign spend, travel insurance is worth a fixed amount per trip, and
+ * so on. Cards are then ranked by the dot product of their precomputed feature vector with
+ * these weights. Hard constraints (network, travel insurance, a credit line for customers with
+ * a revolving balance, maximum fee and an annual fee affordable on the customer's salary)
+ * narrow the candidates through the catalog indexes first.
+ */
+@Service
+public class CardRecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardRecommendationService.class);
+
+    private static final int DEFAULT_LIMIT = 5;
+    private static final int MAX_REASONS = 4;
+
+    // Profile defaults for a typical customer when the agent does not know better
+    private static final BigDecimal DEFAULT_MONTHLY_SPEND = new BigDecimal("500");
+    private static final BigDecimal DEFAULT_FOREIGN_SPEND_PERCENT = new BigDecimal("10");
+    private static final int DEFAULT_TRIPS_PER_YEAR = 1;
+    private static final int DEFAULT_CASH_WITHDRAWALS_PER_MONTH = 2;
+
+    // Assumed value per trip of the insurances and withdrawals abroad per trip
+    private static final float TRAVEL_INSURANCE_VALUE_PER_TRIP = 20f;
+    private static final float HEALTH_INSURANCE_VALUE_PER_TRIP = 10f;
+    private static final float ACCIDENT_INSURANCE_VALUE_PER_TRIP = 5f;
+    private static final int WITHDRAWALS_PER_TRIP = 2;
+    // Value of one star above a neutral rating and of mobile payment when the customer wants it
+    private static final float RATING_VALUE = 15f;
+    private static final float MOBILE_PAYMENT_VALUE = 25f;
+
+    private static final String[] FEATURE_LABELS = new String[CardFeatureVectors.DIMENSIONS];
+
+    static {
+        FEATURE_LABELS[CardFeatureVectors.ANNUAL_FEE] = "annual fee";
+        FEATURE_LABELS[CardFeatureVectors.INTEREST_RATE] = "interest on revolving balance";
+        FEATURE_LABELS[CardFeatureVectors.BONUS_VALUE] = "signup bonus";
+        FEATURE_LABELS[CardFeatureVectors.RATING] = "customer rating";
+        FEATURE_LABELS[CardFeatureVectors.FREE_PAYMENT_WORLDWIDE] = "free payments abroad";
+        FEATURE_LABELS[CardFeatureVectors.FREE_WITHDRAW_WORLDWIDE] = "free withdrawals abroad";
+        FEATURE_LABELS[CardFeatureVectors.FREE_WITHDRAW_EURO_ZONE] = "free withdrawals in the euro zone";
+        FEATURE_LABELS[CardFeatureVectors.TRAVEL_INSURANCE] = "travel insurance";
+        FEATURE_LABELS[CardFeatureVectors.HEALTH_INSURANCE_ABROAD] = "health insurance abroad";
+        FEATURE_LABELS[CardFeatureVectors.ACCIDENT_INSURANCE_ABROAD] = "accident insurance abroad";
+        FEATURE_LABELS[CardFeatureVectors.MOBILE_PAYMENT] = "Apple Pay / Google Pay";
+    }
+
+    private final CardCatalogCache cardCatalogCache;
+    private final CardSearchService cardSearchService;
+    private final DemoDataService demoDataService;
+    private final float foreignFeeRate;
+    private final float withdrawalFee;
+    private final BigDecimal maxFeeShareOfSalary;
+
+    @Autowired
+    public CardRecommendationService(CardCatalogCache cardCatalogCache,
+                                     CardSearchService cardSearchService,
+                                     DemoDataService demoDataService,
+                                     @Value("${recommendation.foreign-fee-rate:0.0175}") float foreignFeeRate,
+                                     @Value("${recommendation.withdrawal-fee:5.00}") float withdrawalFee,
+                                     @Value("${recommendation.max-fee-share-of-salary:0.01}") BigDecimal maxFeeShareOfSalary) {
+        this.cardCatalogCache = cardCatalogCache;
+        this.cardSearchService = cardSearchService;
+        this.demoDataService = demoDataService;
+        this.foreignFeeRate = foreignFeeRate;
+        this.withdrawalFee = withdrawalFee;
+        this.maxFeeShareOfSalary = maxFeeShareOfSalary;
+    }
+
+    /**
+     * Rank the catalog for a customer
+     * @param profile Customer profile; missing spend figures use typical defaults
+     * @return Best cards first with their expected first-year value and the main reasons
+     */
+    public List<CardRecommendation> recommend(CardRecommendationProfile profile) {
+        return recommend(cardCatalogCache.getSnapshot(), profile);
+    }
+
+    List<CardRecommendation> recommend(CardCatalogSnapshot snapshot, CardRecommendationProfile profile) {
+        validate(profile);
+        CardFeatureVectors features = snapshot.getFeatureVectors();
+
+        CardSearchCriteria criteria = new CardSearchCriteria();
+        criteria.setCardSystem(profile.getCardSystem());
+        if (Boolean.TRUE.equals(profile.getTravelInsurance())) {
+            criteria.setTravelInsurance(true);
+        }
+        criteria.setMaxAnnualFee(maxAnnualFee(profile));
+        // Debit and charge cards show no interest but cannot carry a balance at all
+        if (profile.getRevolvingBalance() != null && profile.getRevolvingBalance().signum() > 0) {
+            criteria.setCardType("CREDIT");
+        }
+        long[] selection = cardSearchService.select(snapshot, criteria);
+
+        float[] weights = weights(profile);
+        int limit = profile.getLimit() != null && profile.getLimit() > 0 ? profile.getLimit() : DEFAULT_LIMIT;
+        List<CardRecommendation> recommendations = new ArrayList<>();
+        for (int ordinal : features.topK(selection, weights, limit)) {
+            Card card = snapshot.getCards().get(ordinal);
+            recommendations.add(new CardRecommendation(card.getId(), card.getBankName(), card.getCardName(),
+                    card.getAnnualFee(), Math.round(features.score(ordinal, weights) * 100) / 100.0,
+                    reasons(features, ordinal, weights)));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Weight per feature in EUR for the customer's first year
+     */
+    private float[] weights(CardRecommendationProfile profile) {
+        float monthlySpend = orDefault(profile.getMonthlySpend(), DEFAULT_MONTHLY_SPEND);
+        float foreignShare = orDefault(profile.getForeignSpendPercent(), DEFAULT_FOREIGN_SPEND_PERCENT) / 100f;
+        int trips = profile.getTripsPerYear() != null ? profile.getTripsPerYear() : DEFAULT_TRIPS_PER_YEAR;
+        int withdrawals = profile.getCashWithdrawalsPerMonth() != null
+                ? profile.getCashWithdrawalsPerMonth() : DEFAULT_CASH_WITHDRAWALS_PER_MONTH;
+        float revolvingBalance = orDefault(profile.getRevolvingBalance(), BigDecimal.ZERO);
+
+        float[] weights = new float[CardFeatureVectors.DIMENSIONS];
+        weights[CardFeatureVectors.ANNUAL_FEE] = -1f;
+        // Rates are in percent per year
+        weights[CardFeatureVectors.INTEREST_RATE] = -revolvingBalance / 100f;
+        weights[CardFeatureVectors.BONUS_VALUE] = 1f;
+        weights[CardFeatureVectors.RATING] = RATING_VALUE;
+        weights[CardFeatureVectors.FREE_PAYMENT_WORLDWIDE] = monthlySpend * 12 * foreignShare * foreignFeeRate;
+        weights[CardFeatureVectors.FREE_WITHDRAW_WORLDWIDE] = trips * WITHDRAWALS_PER_TRIP * withdrawalFee;
+        weights[CardFeatureVectors.FREE_WITHDRAW_EURO_ZONE] = withdrawals * 12 * withdrawalFee;
+        weights[CardFeatureVectors.TRAVEL_INSURANCE] = trips * TRAVEL_INSURANCE_VALUE_PER_TRIP;
+        weights[CardFeatureVectors.HEALTH_INSURANCE_ABROAD] = trips * HEALTH_INSURANCE_VALUE_PER_TRIP;
+        weights[CardFeatureVectors.ACCIDENT_INSURANCE_ABROAD] = trips * ACCIDENT_INSURANCE_VALUE_PER_TRIP;
+        weights[CardFeatureVectors.MOBILE_PAYMENT] = Boolean.TRUE.equals(profile.getMobilePayment()) ? MOBILE_PAYMENT_VALUE : 0f;
+        return weights;
+    }
+
+    /**
+     * The requested maximum fee, further limited to the share of the salary a customer can be
+     * expected to spend on a card
+     */
+    private BigDecimal maxAnnualFee(CardRecommendationProfile profile) {
+        BigDecimal maxFee = profile.getMaxAnnualFee();
+        BigDecimal salary = salary(profile);
+        if (salary != null) {
+            BigDecimal affordable = salary.multiply(maxFeeShareOfSalary);
+            maxFee = maxFee == null ? affordable : maxFee.min(affordable);
+        }
+        return maxFee;
+    }
+
+    private BigDecimal salary(CardRecommendationProfile profile) {
+        if (profile.getSalary() != null || profile.getCustomerName() == null || profile.getCustomerName().isBlank()) {
+            return profile.getSalary();
+        }
+        CustomerProfile customer = demoDataService.findCustomerByName(profile.getCustomerName());
+        if (customer == null) {
+            logger.debug("No customer '{}' to take the salary from", profile.getCustomerName());
+            return null;
+        }
+        return customer.getApplications().stream()
+                .filter(application -> application.getSalary() != null)
+                .max(Comparator.comparing(ApplicationStatus::getSubmissionDate))
+                .map(ApplicationStatus::getSalary)
+                .orElse(null);
+    }
+
+    private List<String> reasons(CardFeatureVectors features, int ordinal, float[] weights) {
+        List<Integer> relevant = new ArrayList<>();
+        for (int feature = 0; feature < CardFeatureVectors.DIMENSIONS; feature++) {
+            if (Math.abs(features.contribution(ordinal, feature, weights)) >= 1f) {
+                relevant.add(feature);
+            }
+        }
+        relevant.sort(Comparator.comparingDouble(feature -> -Math.abs(features.contribution(ordinal, feature, weights))));
+        List<String> reasons = new ArrayList<>();
+        for (int feature : relevant.subList(0, Math.min(MAX_REASONS, relevant.size()))) {
+            reasons.add(String.format(Locale.ROOT, "%+.0f EUR %s", features.contribution(ordinal, feature, weights),
+                    FEATURE_LABELS[feature]));
+        }
+        return reasons;
+    }
+
+    private void validate(CardRecommendationProfile profile) {
+        requireNonNegative(profile.getSalary(), "salary");
+        requireNonNegative(profile.getMonthlySpend(), "monthlySpend");
+        requireNonNegative(profile.getRevolvingBalance(), "revolvingBalance");
+        requireNonNegative(profile.getMaxAnnualFee(), "maxAnnualFee");
+        BigDecimal foreignSpendPercent = profile.getForeignSpendPercent();
+        if (foreignSpendPercent != null && (foreignSpendPercent.signum() < 0 || foreignSpendPercent.compareTo(new BigDecimal("100")) > 0)) {
+            throw new IllegalArgumentException("foreignSpendPercent must be between 0 and 100");
+        }
+        if ((profile.getTripsPerYear() != null && profile.getTripsPerYear() < 0)
+                || (profile.getCashWithdrawalsPerMonth() != null && profile.getCashWithdrawalsPerMonth() < 0)) {
+            throw new IllegalArgumentException("tripsPerYear and cashWithdrawalsPerMonth must not be negative");
+        }
+    }
+
+    private static void requireNonNegative(BigDecimal value, String name) {
+        if (value != null && value.signum() < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+    }
+
+    private static float orDefault(BigDecimal value, BigDecimal defaultValue) {
+        return (value != null ? value : defaultValue).floatValue();
+    }
+}
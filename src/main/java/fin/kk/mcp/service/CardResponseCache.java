@@ -0,0 +1,154 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fin.kk.mcp.model.Card;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Pre-serialized bodies of the read-only card REST endpoints.
+ *
+ * The Check24 and bonus lists are rendered once per catalog snapshot, on the refresh thread as
+ * soon as the snapshot is published (or on first use if a request gets there first); the
+ * federated list is rendered once per merged card list; the static card list is rendered at
+ * startup and again whenever it is changed through {@link #refreshStaticCards()}. Controllers
+ * serve the cached bytes directly, so a read request does no JSON serialization.
+ */
+@Service
+public class CardResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardResponseCache.class);
+
+    private final CardCatalogCache cardCatalogCache;
+    private final CardService cardService;
+    private final ObjectMapper objectMapper;
+
+    private volatile CachedJsonBody staticCards;
+    private volatile SnapshotBodies bodies;
+    private volatile FederatedBody federatedBody;
+
+    @Autowired
+    public CardResponseCache(CardCatalogCache cardCatalogCache, CardService cardService, ObjectMapper objectMapper) {
+        this.cardCatalogCache = cardCatalogCache;
+        this.cardService = cardService;
+        this.objectMapper = objectMapper;
+        this.staticCards = serialize(cardService.findAll());
+        cardCatalogCache.addCatalogChangeListener(change -> render(change.getCurrent()));
+    }
+
+    /**
+     * Body of the static demo card list
+     */
+    public CachedJsonBody getStaticCards() {
+        return staticCards;
+    }
+
+    /**
+     * Re-render the static card list after its cards have been modified in place; the
+     * federated list, which includes them, is re-rendered on next use
+     */
+    public void refreshStaticCards() {
+        staticCards = serialize(cardService.findAll());
+        federatedBody = null;
+    }
+
+    /**
+     * Body of the Check24 card list of the current snapshot
+     */
+    public CachedJsonBody getCheck24Cards() {
+        return current().check24Cards;
+    }
+
+    /**
+     * Body of the cards of a federated catalog
+     * @param catalog Result of {@link FederatedCardCatalog#getCatalog()}
+     */
+    public CachedJsonBody getAllCards(FederatedCatalog catalog) {
+        FederatedBody cached = federatedBody;
+        if (cached != null && cached.cards == catalog.getCards()) {
+            return cached.body;
+        }
+        FederatedBody rendered = new FederatedBody(catalog.getCards(), serialize(catalog.getCards()));
+        federatedBody = rendered;
+        return rendered.body;
+    }
+
+    /**
+     * Body of the card name and signup bonus list of the current snapshot
+     */
+    public CachedJsonBody getBonuses() {
+        return current().bonuses;
+    }
+
+    /**
+     * Render the bodies of a snapshot unless they are cached already, without reading the catalog
+     */
+    void prepare(CardCatalogSnapshot snapshot) {
+        bodiesFor(snapshot);
+    }
+
+    private SnapshotBodies current() {
+        return bodiesFor(cardCatalogCache.getSnapshot());
+    }
+
+    private SnapshotBodies bodiesFor(CardCatalogSnapshot snapshot) {
+        SnapshotBodies cached = bodies;
+        return cached != null && cached.snapshot == snapshot ? cached : render(snapshot);
+    }
+
+    private SnapshotBodies render(CardCatalogSnapshot snapshot) {
+        long start = System.nanoTime();
+        SnapshotBodies rendered = new SnapshotBodies(snapshot,
+                serialize(snapshot.getCards()),
+                serialize(cardService.toBonuses(snapshot.getCards())));
+        SnapshotBodies cached = bodies;
+        // A slow render of an older snapshot must not replace a newer one
+        if (cached == null || cached.snapshot.getLoadedAtNanos() - snapshot.getLoadedAtNanos() <= 0) {
+            bodies = rendered;
+        }
+        logger.debug("Rendered card response bodies for {} cards in {} ms",
+                snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+        return rendered;
+    }
+
+    private CachedJsonBody serialize(Object value) {
+        try {
+            return CachedJsonBody.of(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize card response: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * Rendered bodies of one snapshot
+     */
+    private static final class SnapshotBodies {
+        private final CardCatalogSnapshot snapshot;
+        private final CachedJsonBody check24Cards;
+        private final CachedJsonBody bonuses;
+
+        private SnapshotBodies(CardCatalogSnapshot snapshot, CachedJsonBody check24Cards, CachedJsonBody bonuses) {
+            this.snapshot = snapshot;
+            this.check24Cards = check24Cards;
+            this.bonuses = bonuses;
+        }
+    }
+
+    /**
+     * Rendered body of one merged federated card list
+     */
+    private static final class FederatedBody {
+        private final List<Card> cards;
+        private final CachedJsonBody body;
+
+        private FederatedBody(List<Card> cards, CachedJsonBody body) {
+            this.cards = cards;
+            this.body = body;
+        }
+    }
+}
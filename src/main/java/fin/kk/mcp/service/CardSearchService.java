@@ -0,0 +1,135 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.dto.CardSearchCriteria;
+import fin.kk.mcp.model.Card;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for filtering, ranking and aggregating the card catalog using the indexes and
+ * columns of the current snapshot
+ */
+@Service
+public class CardSearchService {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final CardCatalogCache cardCatalogCache;
+
+    @Autowired
+    public CardSearchService(CardCatalogCache cardCatalogCache) {
+        this.cardCatalogCache = cardCatalogCache;
+    }
+
+    /**
+     * Find cards matching all given facet and range filters
+     * @param criteria Filters, ordering and paging; null fields are ignored
+     * @return Matching cards, ordered by {@code sortBy} if given and catalog order otherwise
+     */
+    public List<Card> search(CardSearchCriteria criteria) {
+        return search(cardCatalogCache.getSnapshot(), criteria);
+    }
+
+    List<Card> search(CardCatalogSnapshot snapshot, CardSearchCriteria criteria) {
+        long[] selection = select(snapshot, criteria);
+
+        int limit = criteria.getLimit() != null && criteria.getLimit() > 0 ? criteria.getLimit() : DEFAULT_LIMIT;
+        int offset = criteria.getOffset() != null && criteria.getOffset() > 0 ? criteria.getOffset() : 0;
+        String sortBy = criteria.getSortBy() != null && !criteria.getSortBy().isBlank() ? criteria.getSortBy().trim() : null;
+        boolean descending = Boolean.TRUE.equals(criteria.getDescending());
+
+        if (sortBy == null) {
+            int end = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+            List<Card> page = snapshot.getFacetIndex().collect(selection, snapshot.getCards(), end);
+            return offset < page.size() ? page.subList(offset, page.size()) : List.of();
+        }
+        if (CardRangeIndex.isAttribute(sortBy)) {
+            return snapshot.getRangeIndex().collectSorted(selection, sortBy, descending, offset, limit, snapshot.getCards());
+        }
+        if (!CardColumnStore.isAttribute(sortBy)) {
+            throw new IllegalArgumentException("Cannot sort by " + sortBy + "; use one of "
+                    + String.join(", ", CardColumnStore.attributes()));
+        }
+        // Derived attributes have no sorted index; select the top offset + limit from the columns
+        int k = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        int[] ordinals = snapshot.getColumnStore().topK(selection, sortBy, k, descending);
+        List<Card> page = new ArrayList<>(Math.max(0, ordinals.length - offset));
+        for (int i = offset; i < ordinals.length; i++) {
+            page.add(snapshot.getCards().get(ordinals[i]));
+        }
+        return page;
+    }
+
+    /**
+     * Count, minimum, maximum, sum and average of every numeric attribute over the cards
+     * matching the filters of the criteria; ordering and paging are ignored
+     * @param criteria Filters; null fields are ignored
+     * @return Summary per attribute, in a stable order
+     */
+    public Map<String, CardColumnStore.Summary> summarize(CardSearchCriteria criteria) {
+        return summarize(cardCatalogCache.getSnapshot(), criteria);
+    }
+
+    Map<String, CardColumnStore.Summary> summarize(CardCatalogSnapshot snapshot, CardSearchCriteria criteria) {
+        long[] selection = select(snapshot, criteria);
+        CardColumnStore columns = snapshot.getColumnStore();
+
+        Map<String, CardColumnStore.Summary> summaries = new LinkedHashMap<>();
+        for (String attribute : CardColumnStore.attributes()) {
+            summaries.put(attribute, columns.aggregate(selection, attribute));
+        }
+        return summaries;
+    }
+
+    /**
+     * Bitset of the snapshot's cards matching all filters of the criteria
+     */
+    long[] select(CardCatalogSnapshot snapshot, CardSearchCriteria criteria) {
+        CardFacetIndex index = snapshot.getFacetIndex();
+        long[] selection = index.allCards();
+
+        retain(index, selection, CardFacetIndex.CARD_SYSTEM, criteria.getCardSystem());
+        retain(index, selection, CardFacetIndex.CARD_TYPE, criteria.getCardType());
+        retain(index, selection, CardFacetIndex.PAYMENT_GRADE, criteria.getPaymentGrade());
+        retain(index, selection, CardFacetIndex.WITHDRAW_GRADE, criteria.getWithdrawGrade());
+        retain(index, selection, CardFacetIndex.INSURANCE_GRADE, criteria.getInsuranceGrade());
+
+        retainFlag(index, selection, CardFacetIndex.CONTACTLESS_PAYMENT, criteria.getContactlessPayment());
+        retainFlag(index, selection, CardFacetIndex.APPLE_PAY, criteria.getApplePaySupported());
+        retainFlag(index, selection, CardFacetIndex.GOOGLE_PAY, criteria.getGooglePaySupported());
+        retainFlag(index, selection, CardFacetIndex.FREE_PAYMENT_EURO_ZONE, criteria.getFreePaymentEuroZone());
+        retainFlag(index, selection, CardFacetIndex.FREE_PAYMENT_WORLDWIDE, criteria.getFreePaymentWorldwide());
+        retainFlag(index, selection, CardFacetIndex.FREE_WITHDRAW_EURO_ZONE, criteria.getFreeWithdrawEuroZone());
+        retainFlag(index, selection, CardFacetIndex.FREE_WITHDRAW_WORLDWIDE, criteria.getFreeWithdrawWorldwide());
+        retainFlag(index, selection, CardFacetIndex.TRAVEL_INSURANCE, criteria.getTravelInsurance());
+        retainFlag(index, selection, CardFacetIndex.HEALTH_INSURANCE_ABROAD, criteria.getHealthInsuranceAbroad());
+        retainFlag(index, selection, CardFacetIndex.ACCIDENT_INSURANCE_ABROAD, criteria.getAccidentInsuranceAbroad());
+
+        CardRangeIndex ranges = snapshot.getRangeIndex();
+        ranges.retainRange(selection, CardRangeIndex.ANNUAL_FEE, criteria.getMinAnnualFee(), criteria.getMaxAnnualFee());
+        ranges.retainRange(selection, CardRangeIndex.INTEREST_RATE, criteria.getMinInterestRate(), criteria.getMaxInterestRate());
+        ranges.retainRange(selection, CardRangeIndex.BONUS_VALUE, criteria.getMinBonusValue(), criteria.getMaxBonusValue());
+        ranges.retainRange(selection, CardRangeIndex.CUSTOMER_RATING, criteria.getMinCustomerRating(), criteria.getMaxCustomerRating());
+
+        snapshot.getColumnStore().filter(selection, CardColumnStore.FIRST_YEAR_VALUE,
+                criteria.getMinFirstYearValue(), criteria.getMaxFirstYearValue());
+        return selection;
+    }
+
+    private void retain(CardFacetIndex index, long[] selection, String facet, String value) {
+        if (value != null && !value.isBlank()) {
+            index.retain(selection, facet, value);
+        }
+    }
+
+    private void retainFlag(CardFacetIndex index, long[] selection, String flag, Boolean expected) {
+        if (expected != null) {
+            index.retainFlag(selection, flag, expected);
+        }
+    }
+}
@@ -1,45 +1,30 @@
 package fin.kk.mcp.service;
 
-import fin.kk.mcp.dto.Check24ApiResponse;
 import fin.kk.mcp.model.Card;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.RestClientException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Collections;
 import java.util.stream.Collectors;
 
 @Service
 public class CardService {
 
-    private static final Logger logger = LoggerFactory.getLogger(CardService.class);
-    private static final String CHECK24_API_URL = "https://finanzen.check24.de/accounts/r/pas/result/CREDITCARD/NORMAL?deviceoutput=mobile&b2bid=50&cpid=checkbank&deviceOutput=mobile";
-
-    private final RestTemplate restTemplate;
-
-    // Static in-memory data for demonstration
-    private static final List<Card> CARDS = Arrays.asList(
-            new Card(1L, "Chase Bank", "Chase Sapphire Preferred", 
-                    new BigDecimal("95.00"), "60,000 points after spending $4,000 in first 3 months", 
-                    new BigDecimal("15.99")),
-            new Card(2L, "American Express", "Platinum Card", 
-                    new BigDecimal("695.00"), "100,000 points after spending $6,000 in first 6 months", 
-                    new BigDecimal("19.99")),
-            new Card(3L, "Capital One", "Venture X", 
-                    new BigDecimal("395.00"), "75,000 miles after spending $4,000 in first 3 months", 
-                    new BigDecimal("16.99"))
-    );
+    private final CardCatalogCache cardCatalogCache;
+    private final StaticCardSource staticCardSource;
+    private final FederatedCardCatalog federatedCardCatalog;
+    private final CardCatalogSnapshot staticCatalog;
 
     @Autowired
-    public CardService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public CardService(CardCatalogCache cardCatalogCache, StaticCardSource staticCardSource,
+                       FederatedCardCatalog federatedCardCatalog) {
+        this.cardCatalogCache = cardCatalogCache;
+        this.staticCardSource = staticCardSource;
+        this.federatedCardCatalog = federatedCardCatalog;
+        this.staticCatalog = CardCatalogSnapshot.of(staticCardSource.loadCards());
     }
 
     /**
@@ -47,7 +32,7 @@ public class CardService {
      * @return List of all cards
      */
     public List<Card> findAll() {
-        return CARDS;
+        return staticCardSource.loadCards();
     }
 
     /**
@@ -56,9 +41,7 @@ public class CardService {
      * @return Optional containing the card if found, empty otherwise
      */
     public Optional<Card> findById(Long id) {
-        return CARDS.stream()
-                .filter(card -> card.getId().equals(id))
-                .findFirst();
+        return id != null ? Optional.ofNullable(staticCatalog.findById(id)) : Optional.empty();
     }
 
     /**
@@ -71,141 +54,57 @@ public class CardService {
     }
 
     /**
-     * Fetch credit cards from Check24 API and map to Card objects
+     * Get credit cards from the Check24 API through the catalog cache
      * @return List of cards from Check24 API
      */
     public List<Card> fetchCardsFromCheck24Api() {
-        try {
-            logger.info("Fetching credit cards from Check24 API: {}", CHECK24_API_URL);
-            
-            Check24ApiResponse response = restTemplate.getForObject(CHECK24_API_URL, Check24ApiResponse.class);
-            
-            if (response == null || response.getOffers() == null) {
-                logger.warn("No offers received from Check24 API");
-                return Collections.emptyList();
-            }
-            
-            logger.info("Successfully fetched {} offers from Check24 API", response.getOffers().size());
-            
-            return response.getOffers().stream()
-                    .map(this::mapOfferToCard)
-                    .collect(Collectors.toList());
-                    
-        } catch (RestClientException e) {
-            logger.error("Error fetching data from Check24 API: {}", e.getMessage(), e);
-            return Collections.emptyList();
-        } catch (Exception e) {
-            logger.error("Unexpected error while fetching cards from Check24 API: {}", e.getMessage(), e);
-            return Collections.emptyList();
-        }
+        return cardCatalogCache.getCards();
     }
 
     /**
-     * Map Check24 API Offer to Card object
-     * @param offer Check24 API offer
-     * @return Mapped Card object
+     * Find a Check24 card by ID using the catalog snapshot index
+     * @param id Card ID
+     * @return Card if found, null otherwise
      */
-    private Card mapOfferToCard(Check24ApiResponse.Offer offer) {
-        Card card = new Card();
-        
-        if (offer.getProduct() != null) {
-            Check24ApiResponse.Product product = offer.getProduct();
-            
-            // Basic information
-            card.setId(product.getId());
-            card.setCardName(product.getName());
-            card.setBankName(product.getBank() != null ? product.getBank().getName() : "Unknown Bank");
-            card.setBenefits(product.getBenefits());
-            card.setDrawbacks(product.getDrawbacks());
-            
-            // Bonus information
-            if (product.getC24OpeningBonus() != null) {
-                card.setBonusValue(BigDecimal.valueOf(product.getC24OpeningBonus()));
-                card.setSignupBonus(product.getC24OpeningBonus() + " € Bonus bei CHECK24");
-            }
-            
-            // Product condition information
-            if (product.getProductCondition() != null) {
-                Check24ApiResponse.ProductCondition condition = product.getProductCondition();
-                
-                // Annual fee
-                if (condition.getCost() != null) {
-                    card.setAnnualFee(condition.getCost().getCost() != null ? 
-                        BigDecimal.valueOf(condition.getCost().getCost()) : BigDecimal.ZERO);
-                }
-                
-                // Interest rate
-                if (condition.getDebitInterest() != null) {
-                    card.setInterestRate(BigDecimal.valueOf(condition.getDebitInterest()));
-                }
-                
-                // Card system and type
-                card.setCardSystem(condition.getCardSystem());
-                card.setCardType(condition.getCardType());
-                card.setContactlessPayment(Boolean.TRUE.equals(condition.getContactlessPayment()));
-                
-                // Grades
-                card.setPaymentGrade(condition.getPaymentGrade());
-                card.setWithdrawGrade(condition.getWithdrawGrade());
-                card.setInsuranceGrade(condition.getInsuranceGrade());
-                
-                // Payment features
-                if (condition.getProductPayment() != null) {
-                    Check24ApiResponse.ProductPayment payment = condition.getProductPayment();
-                    card.setFreePaymentEuroZone(Boolean.TRUE.equals(payment.getFreeUseEuCurrency()));
-                    card.setFreePaymentWorldwide(Boolean.TRUE.equals(payment.getFreeUseWorldCurrency()));
-                    card.setFreeWithdrawEuroZone(Boolean.TRUE.equals(payment.getFreeWithdrawEu()));
-                    card.setFreeWithdrawWorldwide(Boolean.TRUE.equals(payment.getFreeWithdrawWorld()));
-                    
-                    // Mobile payment support
-                    if (payment.getMobilePaymentSystems() != null) {
-                        card.setApplePaySupported(payment.getMobilePaymentSystems().contains("APPLE_PAY"));
-                        card.setGooglePaySupported(payment.getMobilePaymentSystems().contains("GOOGLE_PAY"));
-                    }
-                }
-                
-                // Insurance features
-                if (condition.getProductInsurance() != null) {
-                    Check24ApiResponse.ProductInsurance insurance = condition.getProductInsurance();
-                    card.setHealthInsuranceAbroad(Boolean.TRUE.equals(insurance.getHealthInsuranceAbroad()));
-                    card.setAccidentInsuranceAbroad(Boolean.TRUE.equals(insurance.getAccidentInsuranceAbroad()));
-                    card.setTravelInsurance(Boolean.TRUE.equals(insurance.getTravelCancelInsurance()));
-                }
-            }
-            
-            // Customer feedback
-            if (product.getCustomerFeedbackSummary() != null) {
-                Check24ApiResponse.CustomerFeedbackSummary feedback = product.getCustomerFeedbackSummary();
-                if (feedback.getOverallStars() != null) {
-                    card.setCustomerRating(BigDecimal.valueOf(feedback.getOverallStars()));
-                }
-                card.setCustomerFeedbackCount(feedback.getCountFeedbacks());
-            }
-            
-            // Grade information
-            if (product.getGrade() != null) {
-                Check24ApiResponse.Grade grade = product.getGrade();
-                card.setGradeDescription(grade.getGradeDescription());
-            }
-        }
-        
-        return card;
+    public Card getCheck24CardById(Long id) {
+        return id != null ? cardCatalogCache.findById(id) : null;
+    }
+
+    /**
+     * Find a card by ID across Check24 and static data, preferring the Check24 card
+     * @param id Card ID
+     * @return Optional containing the card if found, empty otherwise
+     */
+    public Optional<Card> findAnyById(Long id) {
+        Card card = getCheck24CardById(id);
+        return card != null ? Optional.of(card) : findById(id);
     }
 
     /**
-     * Get all cards including both static and API data
-     * @return Combined list of cards
+     * Get all cards of the federated catalog (Check24 and static data by default)
+     * @return Merged list of cards; cards of sources that failed or were too slow are missing
      */
     public List<Card> getAllCards() {
-        List<Card> apiCards = fetchCardsFromCheck24Api();
-        List<Card> staticCards = findAll();
-        
-        // Add API cards first, then add static cards that don't have the same ID
-        List<Card> combinedCards = apiCards.stream().collect(Collectors.toList());
-        staticCards.stream()
-                .filter(card -> apiCards.stream().noneMatch(apiCard -> apiCard.getId().equals(card.getId())))
-                .forEach(combinedCards::add);
-        
-        return combinedCards;
+        return federatedCardCatalog.getCatalog().getCards();
+    }
+
+    /**
+     * Map cards to their names and signup bonuses
+     * @param cards Cards to map
+     * @return One entry per card with "cardName" and "bonus"
+     */
+    public List<Map<String, String>> toBonuses(List<Card> cards) {
+        if (cards == null) {
+            return List.of();
+        }
+
+        return cards.stream()
+                .map(card -> {
+                    Map<String, String> cardBonus = new HashMap<>();
+                    cardBonus.put("cardName", card.getCardName());
+                    cardBonus.put("bonus", card.getSignupBonus());
+                    return cardBonus;
+                })
+                .collect(Collectors.toList());
     }
 } 
\ No newline at end of file
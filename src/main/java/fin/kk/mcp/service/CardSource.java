@@ -0,0 +1,30 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.List;
+
+/**
+ * Source of credit card catalog data
+ */
+public interface CardSource {
+
+    /**
+     * Name used to select this source via the {@code catalog.source} property
+     */
+    String getName();
+
+    /**
+     * Load the full card list from this source
+     * @return List of cards
+     * @throws RuntimeException if the source is unavailable
+     */
+    List<Card> loadCards();
+
+    /**
+     * Register a callback invoked when the source knows its data has changed.
+     * Sources that can only be polled ignore the listener.
+     */
+    default void addChangeListener(Runnable listener) {
+    }
+}
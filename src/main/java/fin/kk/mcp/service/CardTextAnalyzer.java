@@ -0,0 +1,154 @@
+package fin.kk.mcp.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tokenizer for the German and English card texts and the queries run against them.
+ *
+ * Text is lower-cased, umlauts are folded (ä to ae, ß to ss), other accents dropped, and it is
+ * split on everything that is not a letter or digit. Stop words of both languages are removed
+ * and a light suffix stemmer maps plural and inflected forms to a common term. German compounds
+ * ending in a common head word (Reiseversicherung, Ratenzahlung) also yield the head, and query
+ * terms are expanded with a small bilingual synonym table so that English questions match the
+ * German Check24 texts.
+ */
+final class CardTextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "any", "are", "as", "at", "be", "by", "for", "from", "has", "have", "i", "in",
+            "is", "it", "me", "my", "no", "not", "of", "on", "or", "that", "the", "to", "with", "without",
+            "want", "need", "looking", "card", "cards", "credit", "karte", "kreditkarte",
+            "auch", "auf", "bei", "bis", "das", "dem", "den", "der", "des", "die", "ein", "eine", "einem",
+            "einen", "einer", "eines", "fuer", "ich", "im", "ist", "je", "kein", "keine", "mit",
+            "nicht", "nur", "oder", "ohne", "pro", "und", "von", "zu", "zum", "zur");
+
+    // Already stemmed, matched against the end of stemmed tokens
+    private static final List<String> COMPOUND_HEADS = List.of(
+            "versicherung", "gebuehr", "zahlung", "buchung", "geld", "bonus", "rabatt", "schutz", "kart");
+
+    private static final String[][] SYNONYMS = {
+            {"travel", "trip", "reise", "urlaub"},
+            {"insurance", "insured", "versicherung"},
+            {"fee", "fees", "cost", "charge", "gebuehr", "kosten"},
+            {"free", "kostenlos", "gratis", "gebuehrenfrei"},
+            {"foreign", "abroad", "international", "ausland", "fremdwaehrung"},
+            {"cash", "bargeld"},
+            {"withdrawal", "withdraw", "atm", "abhebung", "geldautomat"},
+            {"interest", "zins", "zinsen"},
+            {"instalment", "installment", "ratenzahlung", "raten"},
+            {"car", "rental", "mietwagen"},
+            {"hotel", "hotels"},
+            {"bonus", "praemie", "startguthaben"},
+            {"payment", "pay", "zahlung", "bezahlen"},
+            {"worldwide", "weltweit"},
+            {"best", "testsieger"},
+            {"good", "gut"}
+    };
+
+    private static final Map<String, List<String>> SYNONYM_TERMS = new HashMap<>();
+
+    static {
+        for (String[] group : SYNONYMS) {
+            Set<String> terms = new LinkedHashSet<>();
+            for (String word : group) {
+                terms.add(stem(word));
+            }
+            for (String term : terms) {
+                List<String> others = new ArrayList<>(terms);
+                others.remove(term);
+                SYNONYM_TERMS.merge(term, others, (existing, added) -> {
+                    List<String> merged = new ArrayList<>(existing);
+                    added.stream().filter(word -> !merged.contains(word)).forEach(merged::add);
+                    return merged;
+                });
+            }
+        }
+    }
+
+    private CardTextAnalyzer() {
+    }
+
+    /**
+     * Index terms of a text in order of occurrence, including the head words of compounds
+     */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokens(text)) {
+            terms.add(token);
+            for (String head : COMPOUND_HEADS) {
+                if (token.length() > head.length() + 2 && token.endsWith(head)) {
+                    terms.add(head);
+                    break;
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Distinct terms of a query, without synonyms
+     */
+    static List<String> queryTerms(String query) {
+        return new ArrayList<>(new LinkedHashSet<>(tokens(query)));
+    }
+
+    /**
+     * Synonyms of a stemmed term in the other language, empty if there are none
+     */
+    static List<String> synonyms(String term) {
+        return SYNONYM_TERMS.getOrDefault(term, List.of());
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, i);
+                if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                    tokens.add(stem(token));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT)
+                .replace("ä", "ae")
+                .replace("ö", "oe")
+                .replace("ü", "ue")
+                .replace("ß", "ss");
+        // Drop the remaining diacritics (é, à, ...) after decomposition
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    /**
+     * Light suffix stemmer shared by both languages: strips -en, -e, -n and -s
+     */
+    private static String stem(String token) {
+        if (token.length() > 5 && token.endsWith("en")) {
+            return token.substring(0, token.length() - 2);
+        }
+        if (token.length() > 4 && !token.endsWith("ss")
+                && (token.endsWith("e") || token.endsWith("s") || token.endsWith("n"))) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
@@ -0,0 +1,260 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted full-text index over the card texts of one catalog snapshot, scored with BM25.
+ *
+ * Indexed fields are the card name, bank name, benefits, drawbacks and grade description,
+ * weighted so that a match in the name counts more than one in a benefit and a drawback counts
+ * least. Terms are kept sorted, so a query term also matches every index term it is a prefix
+ * of (at a lower weight), and synonyms from {@link CardTextAnalyzer} match at full weight. For
+ * each query term only its best-scoring expansion counts per card.
+ *
+ * The analyzed terms of every card are kept with the index; when the next snapshot is indexed
+ * the cards whose instance did not change reuse them, so only added and updated cards are
+ * tokenized again.
+ */
+public final class CardTextIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float PREFIX_WEIGHT = 0.7f;
+    private static final int MIN_PREFIX_LENGTH = 4;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final float CARD_NAME_WEIGHT = 3f;
+    private static final float BANK_NAME_WEIGHT = 2f;
+    private static final float BENEFIT_WEIGHT = 1f;
+    private static final float GRADE_DESCRIPTION_WEIGHT = 1f;
+    private static final float DRAWBACK_WEIGHT = 0.5f;
+
+    private final CardCatalogSnapshot snapshot;
+    private final AnalyzedCard[] analyzed;
+    private final String[] terms;
+    private final int[][] postings;
+    private final float[][] frequencies;
+    private final float averageLength;
+    private final int reused;
+
+    private CardTextIndex(CardCatalogSnapshot snapshot, AnalyzedCard[] analyzed, int reused) {
+        this.snapshot = snapshot;
+        this.analyzed = analyzed;
+        this.reused = reused;
+
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        float totalLength = 0;
+        for (AnalyzedCard card : analyzed) {
+            totalLength += card.length;
+            for (String term : card.terms) {
+                documentFrequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        this.averageLength = analyzed.length > 0 ? Math.max(1f, totalLength / analyzed.length) : 1f;
+
+        this.terms = documentFrequencies.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        Map<String, Integer> termPositions = new HashMap<>(terms.length * 2);
+        this.postings = new int[terms.length][];
+        this.frequencies = new float[terms.length][];
+        for (int t = 0; t < terms.length; t++) {
+            termPositions.put(terms[t], t);
+            postings[t] = new int[documentFrequencies.get(terms[t])];
+            frequencies[t] = new float[postings[t].length];
+        }
+        // Filling in ordinal order keeps every posting list sorted
+        int[] filled = new int[terms.length];
+        for (int ordinal = 0; ordinal < analyzed.length; ordinal++) {
+            AnalyzedCard card = analyzed[ordinal];
+            for (int i = 0; i < card.terms.length; i++) {
+                int t = termPositions.get(card.terms[i]);
+                postings[t][filled[t]] = ordinal;
+                frequencies[t][filled[t]++] = card.frequencies[i];
+            }
+        }
+    }
+
+    /**
+     * Index the cards of a snapshot
+     * @param snapshot Snapshot to index
+     * @param previous Index of the previous snapshot whose analyzed cards may be reused, may be null
+     * @return Index over the snapshot's ordinals
+     */
+    public static CardTextIndex build(CardCatalogSnapshot snapshot, CardTextIndex previous) {
+        List<Card> cards = snapshot.getCards();
+        AnalyzedCard[] analyzed = new AnalyzedCard[cards.size()];
+        int reused = 0;
+        for (int ordinal = 0; ordinal < analyzed.length; ordinal++) {
+            Card card = cards.get(ordinal);
+            AnalyzedCard before = previous != null ? previous.analyzedCard(card) : null;
+            if (before != null) {
+                analyzed[ordinal] = before;
+                reused++;
+            } else {
+                analyzed[ordinal] = analyze(card);
+            }
+        }
+        return new CardTextIndex(snapshot, analyzed, reused);
+    }
+
+    /**
+     * Best matching cards for a free-text query
+     * @param query Words in German or English
+     * @param limit Maximum number of matches
+     * @return Matches ordered by descending score, ties by catalog order
+     */
+    public List<Match> search(String query, int limit) {
+        int size = analyzed.length;
+        float[] scores = new float[size];
+        float[] best = new float[size];
+        for (String queryTerm : CardTextAnalyzer.queryTerms(query)) {
+            Arrays.fill(best, 0f);
+            Map<Integer, Float> expansions = expand(queryTerm);
+            for (Map.Entry<Integer, Float> expansion : expansions.entrySet()) {
+                int t = expansion.getKey();
+                int[] ordinals = postings[t];
+                float idf = (float) Math.log(1 + (size - ordinals.length + 0.5) / (ordinals.length + 0.5));
+                float weight = expansion.getValue() * idf;
+                for (int i = 0; i < ordinals.length; i++) {
+                    int ordinal = ordinals[i];
+                    float tf = frequencies[t][i];
+                    float norm = K1 * (1 - B + B * analyzed[ordinal].length / averageLength);
+                    best[ordinal] = Math.max(best[ordinal], weight * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                scores[ordinal] += best[ordinal];
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (scores[ordinal] > 0) {
+                matches.add(new Match(snapshot.getCards().get(ordinal), scores[ordinal]));
+            }
+        }
+        // Stable sort keeps catalog order among equal scores
+        matches.sort((a, b) -> Float.compare(b.score, a.score));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    public CardCatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Number of cards whose analyzed terms were taken over from the previous index
+     */
+    public int getReusedCount() {
+        return reused;
+    }
+
+    /**
+     * Index terms matching a query term with their weight: the term itself and its synonyms at
+     * full weight, longer terms starting with any of them at {@link #PREFIX_WEIGHT}
+     */
+    private Map<Integer, Float> expand(String queryTerm) {
+        Map<Integer, Float> expansions = new HashMap<>();
+        List<String> variants = new ArrayList<>();
+        variants.add(queryTerm);
+        variants.addAll(CardTextAnalyzer.synonyms(queryTerm));
+        for (String variant : variants) {
+            int position = Arrays.binarySearch(terms, variant);
+            if (position >= 0) {
+                expansions.put(position, 1f);
+            }
+            if (variant.length() < MIN_PREFIX_LENGTH) {
+                continue;
+            }
+            int first = position >= 0 ? position + 1 : -position - 1;
+            for (int t = first; t < terms.length && t < first + MAX_PREFIX_EXPANSIONS && terms[t].startsWith(variant); t++) {
+                expansions.merge(t, PREFIX_WEIGHT, Math::max);
+            }
+        }
+        return expansions;
+    }
+
+    private AnalyzedCard analyzedCard(Card card) {
+        if (card.getId() == null) {
+            return null;
+        }
+        int ordinal = snapshot.ordinalOf(card.getId());
+        return ordinal >= 0 && snapshot.getCards().get(ordinal) == card ? analyzed[ordinal] : null;
+    }
+
+    private static AnalyzedCard analyze(Card card) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float[] length = new float[1];
+        add(frequencies, length, card.getCardName(), CARD_NAME_WEIGHT);
+        add(frequencies, length, card.getBankName(), BANK_NAME_WEIGHT);
+        if (card.getBenefits() != null) {
+            card.getBenefits().forEach(text -> add(frequencies, length, text, BENEFIT_WEIGHT));
+        }
+        if (card.getDrawbacks() != null) {
+            card.getDrawbacks().forEach(text -> add(frequencies, length, text, DRAWBACK_WEIGHT));
+        }
+        add(frequencies, length, card.getGradeDescription(), GRADE_DESCRIPTION_WEIGHT);
+
+        String[] terms = new String[frequencies.size()];
+        float[] values = new float[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            terms[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new AnalyzedCard(terms, values, length[0]);
+    }
+
+    private static void add(Map<String, Float> frequencies, float[] length, String text, float weight) {
+        for (String term : CardTextAnalyzer.terms(text)) {
+            frequencies.merge(term, weight, Float::sum);
+            length[0] += weight;
+        }
+    }
+
+    /**
+     * Weighted term frequencies and length of one card
+     */
+    private static final class AnalyzedCard {
+        private final String[] terms;
+        private final float[] frequencies;
+        private final float length;
+
+        private AnalyzedCard(String[] terms, float[] frequencies, float length) {
+            this.terms = terms;
+            this.frequencies = frequencies;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A card with its BM25 score for a query
+     */
+    public static final class Match {
+        private final Card card;
+        private final float score;
+
+        private Match(Card card, float score) {
+            this.card = card;
+            this.score = score;
+        }
+
+        public Card getCard() {
+            return card;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.dto.CardTextHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full-text search over the Check24 catalog.
+ *
+ * Keeps one {@link CardTextIndex} for the current snapshot. A new index is built on the refresh
+ * thread as soon as a snapshot is published (or on first use if a query gets there first),
+ * re-analyzing only the added and updated cards.
+ */
+@Service
+public class CardTextSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardTextSearchService.class);
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final CardCatalogCache cardCatalogCache;
+    private volatile CardTextIndex index;
+
+    @Autowired
+    public CardTextSearchService(CardCatalogCache cardCatalogCache) {
+        this.cardCatalogCache = cardCatalogCache;
+        cardCatalogCache.addCatalogChangeListener(change -> indexFor(change.getCurrent()));
+    }
+
+    /**
+     * Find the cards whose texts best match a free-text description
+     * @param query Wanted features in German or English, e.g. "travel insurance, no foreign fees"
+     * @param limit Maximum number of hits (default 10)
+     * @return Hits ordered by descending relevance; empty if nothing matches
+     */
+    public List<CardTextHit> search(String query, Integer limit) {
+        return search(cardCatalogCache.getSnapshot(), query, limit);
+    }
+
+    List<CardTextHit> search(CardCatalogSnapshot snapshot, String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be empty");
+        }
+        int max = limit != null && limit > 0 ? limit : DEFAULT_LIMIT;
+        List<CardTextHit> hits = new ArrayList<>();
+        for (CardTextIndex.Match match : indexFor(snapshot).search(query, max)) {
+            hits.add(new CardTextHit(match.getCard().getId(), match.getCard().getBankName(), match.getCard().getCardName(),
+                    Math.round(match.getScore() * 1000) / 1000.0));
+        }
+        return hits;
+    }
+
+    private CardTextIndex indexFor(CardCatalogSnapshot snapshot) {
+        CardTextIndex current = index;
+        if (current != null && current.getSnapshot() == snapshot) {
+            return current;
+        }
+        long start = System.nanoTime();
+        CardTextIndex built = CardTextIndex.build(snapshot, current);
+        // A slow build for an older snapshot must not replace a newer one
+        if (current == null || current.getSnapshot().getLoadedAtNanos() - snapshot.getLoadedAtNanos() <= 0) {
+            index = built;
+        }
+        logger.debug("Indexed {} cards ({} reused, {} terms) in {} ms", snapshot.size(), built.getReusedCount(),
+                built.getTermCount(), (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+}
@@ -0,0 +1,67 @@
+package fin.kk.mcp.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Intern table for the values of mapped cards.
+ *
+ * Enum-like grades, bank names, benefit texts and numeric values repeat across cards and
+ * across refreshes; interning them makes every card with the same value reference a single
+ * shared instance instead of its own copy. All interned values are immutable. The table
+ * stops growing at {@code maxEntries} per kind and then returns values as they are.
+ */
+final class CardValueInterner {
+
+    private final int maxEntries;
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Double, BigDecimal> decimals = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, List<String>> lists = new ConcurrentHashMap<>();
+
+    CardValueInterner(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String interned = strings.get(value);
+        if (interned != null) {
+            return interned;
+        }
+        return strings.size() < maxEntries ? strings.computeIfAbsent(value, key -> key) : value;
+    }
+
+    /**
+     * Shared {@link BigDecimal} for a parsed number, equal to {@code BigDecimal.valueOf(value)}
+     */
+    BigDecimal decimal(double value) {
+        BigDecimal interned = decimals.get(value);
+        if (interned != null) {
+            return interned;
+        }
+        return decimals.size() < maxEntries
+                ? decimals.computeIfAbsent(value, BigDecimal::valueOf)
+                : BigDecimal.valueOf(value);
+    }
+
+    /**
+     * Shared unmodifiable list with interned elements
+     */
+    List<String> list(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        values.replaceAll(this::intern);
+        List<String> interned = lists.get(values);
+        if (interned != null) {
+            return interned;
+        }
+        List<String> shared = Collections.unmodifiableList(values);
+        return lists.size() < maxEntries ? lists.computeIfAbsent(values, key -> shared) : shared;
+    }
+}
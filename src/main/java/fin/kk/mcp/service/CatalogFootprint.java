@@ -0,0 +1,199 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimated heap footprint of a catalog snapshot.
+ *
+ * Sizes assume a 64-bit HotSpot JVM with compressed oops and class pointers (12 byte object
+ * headers, 4 byte references, 8 byte alignment) and compact Latin-1 strings. Values shared
+ * between cards are counted once; {@link #getValueBytesWithoutSharing()} is what the same
+ * values would take if every card held its own copies.
+ */
+public final class CatalogFootprint {
+
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+
+    private static final List<Field> CARD_FIELDS = new ArrayList<>();
+    private static final long CARD_SHELL_BYTES;
+
+    static {
+        long shell = HEADER;
+        for (Field field : Card.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Class<?> type = field.getType();
+            if (type == long.class || type == double.class) {
+                shell += 8;
+            } else if (type == int.class || type == float.class) {
+                shell += 4;
+            } else if (type == short.class || type == char.class) {
+                shell += 2;
+            } else if (type == boolean.class || type == byte.class) {
+                shell += 1;
+            } else {
+                shell += REFERENCE;
+                field.setAccessible(true);
+                CARD_FIELDS.add(field);
+            }
+        }
+        CARD_SHELL_BYTES = align(shell);
+    }
+
+    private final int cardCount;
+    private final long cardBytes;
+    private final long valueBytes;
+    private final long valueBytesWithoutSharing;
+    private final int distinctValues;
+    private final long indexBytes;
+
+    private CatalogFootprint(int cardCount, long cardBytes, long valueBytes, long valueBytesWithoutSharing,
+                             int distinctValues, long indexBytes) {
+        this.cardCount = cardCount;
+        this.cardBytes = cardBytes;
+        this.valueBytes = valueBytes;
+        this.valueBytesWithoutSharing = valueBytesWithoutSharing;
+        this.distinctValues = distinctValues;
+        this.indexBytes = indexBytes;
+    }
+
+    /**
+     * Walk the cards of a snapshot
+     * @param cards Cards of the snapshot
+     * @param indexBytes Size of the snapshot's lookup and search indexes
+     */
+    static CatalogFootprint of(List<Card> cards, long indexBytes) {
+        Map<Object, Boolean> seen = new IdentityHashMap<>();
+        long values = 0;
+        long withoutSharing = 0;
+        for (Card card : cards) {
+            for (Field field : CARD_FIELDS) {
+                Object value;
+                try {
+                    value = field.get(card);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read Card." + field.getName(), e);
+                }
+                if (value == null) {
+                    continue;
+                }
+                withoutSharing += sizeOf(value, null);
+                values += sizeOf(value, seen);
+            }
+        }
+        // The snapshot's own card list: unmodifiable wrapper around an ArrayList
+        long listBytes = align(HEADER + REFERENCE) + align(HEADER + 8) + referenceArray(cards.size());
+        return new CatalogFootprint(cards.size(), CARD_SHELL_BYTES * cards.size() + listBytes,
+                values, withoutSharing, seen.size(), indexBytes);
+    }
+
+    /**
+     * Size of a value and the objects it owns; objects already in {@code seen} count as zero
+     */
+    private static long sizeOf(Object value, Map<Object, Boolean> seen) {
+        if (value == null || (seen != null && seen.put(value, Boolean.TRUE) != null)) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            boolean latin1 = string.chars().allMatch(c -> c <= 0xFF);
+            return align(HEADER + REFERENCE + 4 + 1 + 1 + 1) + byteArray(latin1 ? string.length() : string.length() * 2L);
+        }
+        if (value instanceof BigDecimal decimal) {
+            long bytes = align(HEADER + REFERENCE + 4 + 4 + REFERENCE + 8);
+            if (decimal.precision() > 18) {
+                bytes += align(HEADER + 4 * 4 + REFERENCE) + intArray(decimal.unscaledValue().bitLength() / 32 + 1);
+            }
+            return bytes;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return align(HEADER + 8);
+        }
+        if (value instanceof Integer || value instanceof Boolean) {
+            return align(HEADER + 4);
+        }
+        if (value instanceof List<?> list) {
+            // Unmodifiable wrapper around an ArrayList, as produced by the parser
+            long bytes = align(HEADER + REFERENCE) + align(HEADER + 8) + referenceArray(list.size());
+            for (Object element : list) {
+                bytes += sizeOf(element, seen);
+            }
+            return bytes;
+        }
+        return align(HEADER + REFERENCE);
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long byteArray(long length) {
+        return align(ARRAY_HEADER + length);
+    }
+
+    static long intArray(long length) {
+        return align(ARRAY_HEADER + length * 4);
+    }
+
+    static long longArray(long length) {
+        return align(ARRAY_HEADER + length * 8);
+    }
+
+    static long referenceArray(long length) {
+        return align(ARRAY_HEADER + length * REFERENCE);
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    /**
+     * Card objects and the snapshot's card list
+     */
+    public long getCardBytes() {
+        return cardBytes;
+    }
+
+    /**
+     * Strings, numbers and lists referenced by the cards, shared values counted once
+     */
+    public long getValueBytes() {
+        return valueBytes;
+    }
+
+    public long getValueBytesWithoutSharing() {
+        return valueBytesWithoutSharing;
+    }
+
+    /**
+     * Number of distinct value objects referenced by the cards
+     */
+    public int getDistinctValues() {
+        return distinctValues;
+    }
+
+    /**
+     * ID table, facet bitsets and range columns
+     */
+    public long getIndexBytes() {
+        return indexBytes;
+    }
+
+    public long getTotalBytes() {
+        return cardBytes + valueBytes + indexBytes;
+    }
+
+    public long getBytesPerCard() {
+        return cardCount > 0 ? getTotalBytes() / cardCount : 0;
+    }
+}
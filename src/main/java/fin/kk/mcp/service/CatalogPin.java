@@ -0,0 +1,58 @@
+package fin.kk.mcp.service;
+
+/**
+ * Binds a catalog snapshot to the current thread, see {@link CardCatalogCache#pin}.
+ *
+ * While the pin is open every catalog read on the thread (cards, lookups, searches and the
+ * indexes behind them) sees the pinned snapshot instead of the latest one. Pins nest; closing
+ * one restores the snapshot pinned before it. Use with try-with-resources on the thread that
+ * opened it.
+ */
+public final class CatalogPin implements AutoCloseable {
+
+    private static final ThreadLocal<CatalogPin> CURRENT = new ThreadLocal<>();
+
+    private final CardCatalogSnapshot snapshot;
+    private final CatalogPin outer;
+    private boolean closed;
+
+    private CatalogPin(CardCatalogSnapshot snapshot, CatalogPin outer) {
+        this.snapshot = snapshot;
+        this.outer = outer;
+    }
+
+    static CatalogPin open(CardCatalogSnapshot snapshot) {
+        CatalogPin pin = new CatalogPin(snapshot, CURRENT.get());
+        CURRENT.set(pin);
+        return pin;
+    }
+
+    /**
+     * Snapshot pinned on the current thread, null if none
+     */
+    static CardCatalogSnapshot pinnedSnapshot() {
+        CatalogPin pin = CURRENT.get();
+        return pin != null ? pin.snapshot : null;
+    }
+
+    public CardCatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (outer != null) {
+            CURRENT.set(outer);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fin.kk.mcp.dto.CardRecommendationProfile;
+import fin.kk.mcp.dto.CardSearchCriteria;
+import fin.kk.mcp.dto.CardUsageProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup warm-up of the card catalog and everything derived from it.
+ *
+ * Runs after the context has started and before Spring Boot publishes the application as
+ * ready, so the readiness probe ({@code /actuator/health/readiness}) only reports UP once the
+ * catalog is loaded (from the file source or upstream), its indexes, feature vectors, text
+ * index and pre-serialized bodies are built and the JSON mapping and query paths have run
+ * {@code catalog.warmup.iterations} times. The first customer request then no longer pays
+ * for the upstream call or for cold code. If the catalog cannot be loaded the application
+ * still becomes ready and the cache loads on first use, as before.
+ */
+@Service
+public class CatalogWarmupService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogWarmupService.class);
+
+    private final CardCatalogCache cardCatalogCache;
+    private final CardResponseCache cardResponseCache;
+    private final CardProjectionService cardProjectionService;
+    private final CardSearchService cardSearchService;
+    private final CardTextSearchService cardTextSearchService;
+    private final CardRecommendationService cardRecommendationService;
+    private final CardCostService cardCostService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int iterations;
+
+    private volatile boolean warm;
+
+    @Autowired
+    public CatalogWarmupService(CardCatalogCache cardCatalogCache,
+                                CardResponseCache cardResponseCache,
+                                CardProjectionService cardProjectionService,
+                                CardSearchService cardSearchService,
+                                CardTextSearchService cardTextSearchService,
+                                CardRecommendationService cardRecommendationService,
+                                CardCostService cardCostService,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalog.warmup.enabled:true}") boolean enabled,
+                                @Value("${catalog.warmup.iterations:100}") int iterations) {
+        this.cardCatalogCache = cardCatalogCache;
+        this.cardResponseCache = cardResponseCache;
+        this.cardProjectionService = cardProjectionService;
+        this.cardSearchService = cardSearchService;
+        this.cardTextSearchService = cardTextSearchService;
+        this.cardRecommendationService = cardRecommendationService;
+        this.cardCostService = cardCostService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.iterations = Math.max(0, iterations);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            logger.info("Catalog warm-up disabled");
+            return;
+        }
+        warmUp();
+    }
+
+    /**
+     * Load the catalog and build and exercise everything derived from it
+     * @return true if a non-empty catalog was warmed up
+     */
+    public boolean warmUp() {
+        long start = System.nanoTime();
+        String result;
+        try {
+            CardCatalogSnapshot snapshot = cardCatalogCache.getLatestSnapshot();
+            if (snapshot.isEmpty()) {
+                result = "empty";
+                logger.warn("Catalog warm-up found no cards, the catalog will be loaded on first use");
+            } else {
+                prepare(snapshot);
+                for (int i = 0; i < iterations; i++) {
+                    exercise(snapshot);
+                }
+                result = "success";
+                warm = true;
+            }
+        } catch (RuntimeException e) {
+            result = "failed";
+            logger.warn("Catalog warm-up failed: {}", e.getMessage(), e);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        Timer.builder("catalog.warmup.duration")
+                .tag("result", result)
+                .description("Time spent warming up the card catalog before the application became ready")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        logger.info("Catalog warm-up {} in {} ms ({} iterations)", result, elapsedNanos / 1_000_000, iterations);
+        return warm;
+    }
+
+    /**
+     * Whether the last warm-up completed on a non-empty catalog
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    /**
+     * Build the derived data of a snapshot that is otherwise built on first use
+     */
+    private void prepare(CardCatalogSnapshot snapshot) {
+        snapshot.getFeatureVectors();
+        snapshot.getFootprint();
+        // Normally rendered by the change listeners, again here in case the snapshot was already cached
+        cardResponseCache.prepare(snapshot);
+        cardProjectionService.toJson(snapshot.getCards(), null, true);
+        cardProjectionService.toJson(snapshot.getCards(), null, false);
+    }
+
+    /**
+     * One pass over the hot paths of the card tools, run against the snapshot directly so the
+     * warm-up does not show up in the catalog cache metrics
+     */
+    private void exercise(CardCatalogSnapshot snapshot) {
+        try {
+            objectMapper.writeValueAsBytes(snapshot.getCards());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cards: " + e.getOriginalMessage(), e);
+        }
+        cardProjectionService.toJson(snapshot.getCards(), "id,cardName,annualFee", false);
+
+        CardSearchCriteria criteria = new CardSearchCriteria();
+        criteria.setTravelInsurance(true);
+        cardSearchService.search(snapshot, criteria);
+        cardSearchService.summarize(snapshot, criteria);
+        cardTextSearchService.search(snapshot, "travel insurance abroad", null);
+
+        CardRecommendationProfile recommendation = new CardRecommendationProfile();
+        recommendation.setMonthlySpend(BigDecimal.valueOf(1000));
+        recommendation.setForeignSpendPercent(BigDecimal.valueOf(20));
+        cardRecommendationService.recommend(snapshot, recommendation);
+
+        CardUsageProfile usage = new CardUsageProfile();
+        usage.setMonthlySpend(BigDecimal.valueOf(1000));
+        usage.setForeignSpendPerMonth(BigDecimal.valueOf(200));
+        cardCostService.compare(snapshot, usage);
+    }
+}
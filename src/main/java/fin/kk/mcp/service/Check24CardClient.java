@@ -0,0 +1,109 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Client for the Check24 credit card offers endpoint.
+ * The response body is streamed through {@link Check24OfferParser} instead of being
+ * bound to the full {@link fin.kk.mcp.dto.Check24ApiResponse} tree first.
+ * Failures are propagated to the caller so that
+ * the catalog cache can decide whether to keep serving its last good result.
+ *
+ * Requests are conditional on the ETag / Last-Modified of the previous response; a 304
+ * returns the previous cards without reading a body, and on a 200 only offers whose JSON
+ * changed are mapped to new {@link Card} objects.
+ */
+@Service
+public class Check24CardClient implements CardSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(Check24CardClient.class);
+    private static final String CHECK24_API_URL = "https://finanzen.check24.de/accounts/r/pas/result/CREDITCARD/NORMAL?deviceoutput=mobile&b2bid=50&cpid=checkbank&deviceOutput=mobile";
+
+    private final RestTemplate restTemplate;
+    private final Check24OfferParser offerParser;
+
+    // Only written by fetchCards, which the catalog cache never runs concurrently
+    private volatile ParsedOffers lastOffers = ParsedOffers.empty();
+    private volatile String lastEtag;
+    private volatile long lastModified = -1;
+
+    @Autowired
+    public Check24CardClient(RestTemplate restTemplate, Check24OfferParser offerParser) {
+        this.restTemplate = restTemplate;
+        this.offerParser = offerParser;
+    }
+
+    @Override
+    public String getName() {
+        return "check24";
+    }
+
+    @Override
+    public List<Card> loadCards() {
+        return fetchCards();
+    }
+
+    /**
+     * Fetch credit cards from Check24 API and map to Card objects
+     * @return List of cards from Check24 API
+     * @throws org.springframework.web.client.RestClientException if the upstream call fails
+     * @throws IllegalStateException if the response contains no offers
+     */
+    public List<Card> fetchCards() {
+        logger.info("Fetching credit cards from Check24 API: {}", CHECK24_API_URL);
+
+        ParsedOffers previous = lastOffers;
+        String etag = lastEtag;
+        long modified = lastModified;
+        boolean conditional = !previous.getCards().isEmpty();
+
+        ParsedOffers offers = restTemplate.execute(CHECK24_API_URL, HttpMethod.GET,
+                request -> {
+                    if (conditional && etag != null) {
+                        request.getHeaders().setIfNoneMatch(etag);
+                    }
+                    if (conditional && modified >= 0) {
+                        request.getHeaders().setIfModifiedSince(modified);
+                    }
+                },
+                response -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return null;
+                    }
+                    ParsedOffers parsed = offerParser.parse(response.getBody(), previous);
+                    // Remember the validators only once the body they describe has been parsed and
+                    // accepted, so an empty body is not confirmed by a 304 on the next request
+                    if (!parsed.getCards().isEmpty()) {
+                        HttpHeaders headers = response.getHeaders();
+                        lastEtag = headers.getETag();
+                        lastModified = headers.getLastModified();
+                    }
+                    return parsed;
+                });
+
+        if (offers == null) {
+            logger.info("Check24 offers not modified, keeping {} cards", previous.getCards().size());
+            return previous.getCards();
+        }
+
+        List<Card> cards = offers.getCards();
+        if (cards.isEmpty()) {
+            // Fail the load so the catalog cache keeps serving its last good cards
+            throw new IllegalStateException("No offers received from Check24 API");
+        }
+        lastOffers = offers;
+
+        logger.info("Successfully fetched {} offers from Check24 API, {} new or changed", cards.size(), offers.getMappedCount());
+        return cards;
+    }
+}
@@ -0,0 +1,424 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fin.kk.mcp.model.Card;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser for the Check24 credit card offers payload.
+ *
+ * Walks the {@code offers} array with the Jackson token API and fills {@link Card} objects
+ * directly, skipping the large {@code parameters} filter section and every product field
+ * that is not mapped. Produces the same cards as binding the payload to
+ * {@link fin.kk.mcp.dto.Check24ApiResponse} and mapping each offer, without building the
+ * intermediate DTO tree.
+ *
+ * {@link #parse(InputStream, ParsedOffers)} additionally hashes the JSON of every offer and
+ * only maps offers whose hash is not known from the previous parse. Repeated values (grades,
+ * bank names, benefit texts, numbers) are shared between cards through an intern table.
+ */
+@Component
+public class Check24OfferParser {
+
+    private static final int MAX_INTERNED_VALUES = 10_000;
+
+    private final JsonFactory jsonFactory;
+    private final CardValueInterner interner = new CardValueInterner(MAX_INTERNED_VALUES);
+
+    @Autowired
+    public Check24OfferParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Parse the offers of a Check24 response body
+     * @param body Response body, not closed by this method
+     * @return Mapped cards, empty if the payload has no offers
+     */
+    public List<Card> parse(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parse the offers of a Check24 response body
+     * @param parser Parser positioned before the root object
+     * @return Mapped cards, empty if the payload has no offers
+     */
+    public List<Card> parse(JsonParser parser) throws IOException {
+        return findOffers(parser) ? readOffers(parser) : Collections.emptyList();
+    }
+
+    /**
+     * Parse the offers of a Check24 response body, reusing the cards of unchanged offers
+     * @param body Response body, not closed by this method
+     * @param previous Result of the previous parse of the same source
+     * @return Cards with their offer hashes, empty if the payload has no offers
+     */
+    public ParsedOffers parse(InputStream body, ParsedOffers previous) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return findOffers(parser) ? readOffers(parser, previous) : ParsedOffers.empty();
+        }
+    }
+
+    /**
+     * Advance to the start of the offers array
+     * @return true if the parser is positioned on the offers array, false if there is none
+     */
+    private boolean findOffers(JsonParser parser) throws IOException {
+        JsonToken root = parser.nextToken();
+        if (root == null) {
+            return false;
+        }
+        if (root != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected Check24 response object but found " + root);
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("offers".equals(field) && value == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private List<Card> readOffers(JsonParser parser) throws IOException {
+        List<Card> cards = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                cards.add(readOffer(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return cards;
+    }
+
+    private ParsedOffers readOffers(JsonParser parser, ParsedOffers previous) throws IOException {
+        List<Card> cards = new ArrayList<>();
+        Map<String, Card> cardsByHash = new HashMap<>();
+        int mapped = 0;
+
+        MessageDigest digest = sha256();
+        ByteArrayOutputStream offerJson = new ByteArrayOutputStream(4096);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            // Copy the offer token by token so its canonical JSON can be hashed
+            offerJson.reset();
+            try (JsonGenerator generator = jsonFactory.createGenerator(offerJson)) {
+                generator.copyCurrentStructure(parser);
+            }
+            byte[] json = offerJson.toByteArray();
+            String hash = HexFormat.of().formatHex(Arrays.copyOf(digest.digest(json), 16));
+
+            Card card = cardsByHash.get(hash);
+            if (card == null) {
+                card = previous.findByHash(hash);
+            }
+            if (card == null) {
+                try (JsonParser offerParser = jsonFactory.createParser(json)) {
+                    offerParser.nextToken();
+                    card = readOffer(offerParser);
+                }
+                mapped++;
+            }
+            cardsByHash.put(hash, card);
+            cards.add(card);
+        }
+        return new ParsedOffers(Collections.unmodifiableList(cards), cardsByHash, mapped);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private Card readOffer(JsonParser parser) throws IOException {
+        Card card = new Card();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && "product".equals(field)) {
+                readProduct(parser, card);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return card;
+    }
+
+    private void readProduct(JsonParser parser, Card card) throws IOException {
+        card.setBankName("Unknown Bank");
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> card.setId(readLong(parser));
+                case "name" -> card.setCardName(readText(parser));
+                case "bank" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        card.setBankName(readBankName(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "benefits" -> card.setBenefits(interner.list(readTextList(parser)));
+                case "drawbacks" -> card.setDrawbacks(interner.list(readTextList(parser)));
+                case "c24OpeningBonus" -> {
+                    Double bonus = readDouble(parser);
+                    if (bonus != null) {
+                        card.setBonusValue(interner.decimal(bonus));
+                        card.setSignupBonus(interner.intern(bonus + " € Bonus bei CHECK24"));
+                    }
+                }
+                case "productCondition" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readProductCondition(parser, card);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "customerFeedbackSummary" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readCustomerFeedback(parser, card);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "grade" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readGrade(parser, card);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private String readBankName(JsonParser parser) throws IOException {
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                name = interner.intern(readText(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+
+    private void readProductCondition(JsonParser parser, Card card) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "cost" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        Double cost = readCost(parser);
+                        card.setAnnualFee(cost != null ? interner.decimal(cost) : BigDecimal.ZERO);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "debitInterest" -> {
+                    Double interest = readDouble(parser);
+                    if (interest != null) {
+                        card.setInterestRate(interner.decimal(interest));
+                    }
+                }
+                case "cardSystem" -> card.setCardSystem(interner.intern(readText(parser)));
+                case "cardType" -> card.setCardType(interner.intern(readText(parser)));
+                case "contactlessPayment" -> card.setContactlessPayment(value == JsonToken.VALUE_TRUE);
+                case "paymentGrade" -> card.setPaymentGrade(interner.intern(readText(parser)));
+                case "withdrawGrade" -> card.setWithdrawGrade(interner.intern(readText(parser)));
+                case "insuranceGrade" -> card.setInsuranceGrade(interner.intern(readText(parser)));
+                case "productPayment" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readProductPayment(parser, card);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "productInsurance" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readProductInsurance(parser, card);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private Double readCost(JsonParser parser) throws IOException {
+        Double cost = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("cost".equals(field)) {
+                cost = readDouble(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return cost;
+    }
+
+    private void readProductPayment(JsonParser parser, Card card) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "freeUseEuCurrency" -> card.setFreePaymentEuroZone(value == JsonToken.VALUE_TRUE);
+                case "freeUseWorldCurrency" -> card.setFreePaymentWorldwide(value == JsonToken.VALUE_TRUE);
+                case "freeWithdrawEu" -> card.setFreeWithdrawEuroZone(value == JsonToken.VALUE_TRUE);
+                case "freeWithdrawWorld" -> card.setFreeWithdrawWorldwide(value == JsonToken.VALUE_TRUE);
+                case "mobilePaymentSystems" -> {
+                    List<String> systems = readTextList(parser);
+                    if (systems != null) {
+                        card.setApplePaySupported(systems.contains("APPLE_PAY"));
+                        card.setGooglePaySupported(systems.contains("GOOGLE_PAY"));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readProductInsurance(JsonParser parser, Card card) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "healthInsuranceAbroad" -> card.setHealthInsuranceAbroad(value == JsonToken.VALUE_TRUE);
+                case "accidentInsuranceAbroad" -> card.setAccidentInsuranceAbroad(value == JsonToken.VALUE_TRUE);
+                case "travelCancelInsurance" -> card.setTravelInsurance(value == JsonToken.VALUE_TRUE);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readCustomerFeedback(JsonParser parser, Card card) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "overallStars" -> {
+                    Double stars = readDouble(parser);
+                    if (stars != null) {
+                        card.setCustomerRating(interner.decimal(stars));
+                    }
+                }
+                case "countFeedbacks" -> {
+                    Long count = readLong(parser);
+                    card.setCustomerFeedbackCount(count != null ? count.intValue() : null);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readGrade(JsonParser parser, Card card) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("gradeDescription".equals(field)) {
+                card.setGradeDescription(interner.intern(readText(parser)));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private static List<String> readTextList(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(readText(parser));
+        }
+        return values;
+    }
+
+    private static Double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.valueOf(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static Long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token.isNumeric()) {
+            return (long) parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Long.valueOf(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
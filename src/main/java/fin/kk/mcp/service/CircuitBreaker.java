@@ -0,0 +1,123 @@
+package fin.kk.mcp.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Consecutive-failure circuit breaker for calls to one upstream.
+ *
+ * CLOSED lets every call through and opens after {@code failureThreshold} failures in a row.
+ * OPEN rejects calls with {@link CallNotPermittedException} until {@code openDuration} has
+ * passed, then moves to HALF_OPEN, which lets a single trial call through: success closes
+ * the circuit again, failure re-opens it for another {@code openDuration}.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final List<BiConsumer<State, State>> transitionListeners = new CopyOnWriteArrayList<>();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Run the call if the circuit allows it and record its outcome
+     * @param call Upstream call
+     * @return Result of the call
+     * @throws CallNotPermittedException if the circuit is open or a trial call is already running
+     */
+    public <T> T execute(Callable<T> call) throws Exception {
+        acquirePermission();
+        T result;
+        try {
+            result = call.call();
+        } catch (CallNotPermittedException e) {
+            releasePermission(); // refused further down, says nothing about upstream health
+            throw e;
+        } catch (Exception | Error e) {
+            onFailure();
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    /**
+     * Register a callback for state transitions, called with (from, to)
+     */
+    public void addTransitionListener(BiConsumer<State, State> listener) {
+        transitionListeners.add(listener);
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            return State.HALF_OPEN; // reported as half-open even before the next call moves it there
+        }
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                throw new CallNotPermittedException("Circuit breaker '" + name + "' is open");
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                throw new CallNotPermittedException("Circuit breaker '" + name + "' is half-open and a trial call is running");
+            }
+            trialInFlight = true;
+        }
+    }
+
+    private synchronized void releasePermission() {
+        trialInFlight = false;
+    }
+
+    private synchronized void onSuccess() {
+        trialInFlight = false;
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAtNanos = System.nanoTime();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        for (BiConsumer<State, State> listener : transitionListeners) {
+            listener.accept(previous, next);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Card catalog federated over several card sources.
+ *
+ * Every load queries all sources named by {@code catalog.federation.sources} in parallel on
+ * virtual threads and merges their cards by ID in a single pass, the first source listed
+ * winning on duplicate IDs. Each source has its own deadline
+ * ({@code catalog.federation.timeout.<name>}, default {@code catalog.federation.source-timeout});
+ * a source that fails or misses it is reported in the result and the cards of the other sources
+ * are returned as a partial catalog. A late source keeps running in the background, so the
+ * primary source, which is read through the {@link CardCatalogCache}, still fills the cache
+ * for later loads.
+ */
+@Service
+public class FederatedCardCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(FederatedCardCatalog.class);
+
+    private final List<Member> members = new ArrayList<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final MeterRegistry meterRegistry;
+    private final Counter partialLoads;
+
+    private volatile FederatedCatalog last;
+
+    @Autowired
+    public FederatedCardCatalog(List<CardSource> cardSources,
+                                CardCatalogCache cardCatalogCache,
+                                Environment environment,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalog.source:check24}") String primarySource,
+                                @Value("${catalog.federation.sources:${catalog.source:check24},static}") String sourceNames,
+                                @Value("${catalog.federation.source-timeout:PT2S}") Duration defaultTimeout) {
+        this.meterRegistry = meterRegistry;
+        for (String name : sourceNames.split(",")) {
+            String sourceName = name.trim();
+            if (sourceName.isEmpty()) {
+                continue;
+            }
+            Duration timeout = environment.getProperty("catalog.federation.timeout." + sourceName, Duration.class, defaultTimeout);
+            if (sourceName.equals(primarySource)) {
+                members.add(new Member(sourceName, cardCatalogCache::getCards, timeout));
+                continue;
+            }
+            CardSource source = cardSources.stream()
+                    .filter(candidate -> candidate.getName().equals(sourceName))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown catalog.federation source: " + sourceName));
+            members.add(new Member(sourceName, source::loadCards, timeout));
+        }
+        this.partialLoads = Counter.builder("catalog.federation.partial")
+                .description("Federated catalog loads missing at least one source").register(meterRegistry);
+        logger.info("Federated card catalog uses sources {}", members.stream().map(member -> member.name).toList());
+    }
+
+    /**
+     * Load and merge the cards of all sources, waiting at most each source's deadline
+     * @return Merged cards with the outcome per source
+     */
+    public FederatedCatalog getCatalog() {
+        long start = System.nanoTime();
+        List<CompletableFuture<Loaded>> futures = new ArrayList<>(members.size());
+        for (Member member : members) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                long loadStart = System.nanoTime();
+                List<Card> cards = member.loader.get();
+                return new Loaded(cards, System.nanoTime() - loadStart);
+            }, executor));
+        }
+
+        List<FederatedCatalog.SourceResult> results = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            FederatedCatalog.SourceResult result = await(member, futures.get(i), start);
+            Timer.builder("catalog.federation.source.duration")
+                    .tag("source", member.name)
+                    .tag("status", result.getStatus().name().toLowerCase())
+                    .description("Time until a federated catalog source answered or missed its deadline")
+                    .register(meterRegistry)
+                    .record(result.getElapsedMillis(), TimeUnit.MILLISECONDS);
+            results.add(result);
+        }
+
+        FederatedCatalog catalog = new FederatedCatalog(merge(results), Collections.unmodifiableList(results));
+        if (catalog.isPartial()) {
+            partialLoads.increment();
+        }
+        last = catalog;
+        return catalog;
+    }
+
+    private FederatedCatalog.SourceResult await(Member member, CompletableFuture<Loaded> future, long start) {
+        long remaining = start + member.timeout.toNanos() - System.nanoTime();
+        try {
+            Loaded loaded = future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            return new FederatedCatalog.SourceResult(member.name, FederatedCatalog.Status.OK, loaded.cards,
+                    TimeUnit.NANOSECONDS.toMillis(loaded.elapsedNanos), null);
+        } catch (TimeoutException e) {
+            logger.warn("Catalog source '{}' missed its {} deadline, returning partial catalog", member.name, member.timeout);
+            return new FederatedCatalog.SourceResult(member.name, FederatedCatalog.Status.TIMEOUT, null,
+                    member.timeout.toMillis(), "No response within " + member.timeout);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.warn("Catalog source '{}' failed, returning partial catalog: {}", member.name, cause.getMessage());
+            return new FederatedCatalog.SourceResult(member.name, FederatedCatalog.Status.FAILED, null,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FederatedCatalog.SourceResult(member.name, FederatedCatalog.Status.FAILED, null,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), "Interrupted");
+        }
+    }
+
+    /**
+     * Merge the cards of the successful sources in source order, keeping the first card per ID.
+     * If every source returned the same lists as in the previous load, the previous merged list
+     * is reused so that derived data (e.g. serialized bodies) can be cached by list identity.
+     */
+    private List<Card> merge(List<FederatedCatalog.SourceResult> results) {
+        FederatedCatalog previous = last;
+        if (previous != null && sameSources(previous.getSources(), results)) {
+            return previous.getCards();
+        }
+
+        int total = 0;
+        for (FederatedCatalog.SourceResult result : results) {
+            total += result.getCardCount();
+        }
+        List<Card> merged = new ArrayList<>(total);
+        Set<Long> seenIds = new HashSet<>(total * 2);
+        for (FederatedCatalog.SourceResult result : results) {
+            if (result.cards() == null) {
+                continue;
+            }
+            for (Card card : result.cards()) {
+                if (card.getId() == null || seenIds.add(card.getId())) {
+                    merged.add(card);
+                }
+            }
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    private static boolean sameSources(List<FederatedCatalog.SourceResult> previous, List<FederatedCatalog.SourceResult> current) {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (previous.get(i).cards() != current.get(i).cards()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Member {
+        private final String name;
+        private final Supplier<List<Card>> loader;
+        private final Duration timeout;
+
+        private Member(String name, Supplier<List<Card>> loader, Duration timeout) {
+            this.name = name;
+            this.loader = loader;
+            this.timeout = timeout;
+        }
+    }
+
+    private static final class Loaded {
+        private final List<Card> cards;
+        private final long elapsedNanos;
+
+        private Loaded(List<Card> cards, long elapsedNanos) {
+            this.cards = cards;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
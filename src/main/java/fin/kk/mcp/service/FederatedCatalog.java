@@ -0,0 +1,100 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.List;
+
+/**
+ * Merged card list of one federated catalog load together with the outcome per source.
+ *
+ * If a source failed or missed its deadline the cards of the other sources are still
+ * returned and the catalog is marked as partial.
+ */
+public final class FederatedCatalog {
+
+    /**
+     * Outcome of one source
+     */
+    public enum Status {
+        OK, TIMEOUT, FAILED
+    }
+
+    private final List<Card> cards;
+    private final List<SourceResult> sources;
+    private final boolean partial;
+
+    FederatedCatalog(List<Card> cards, List<SourceResult> sources) {
+        this.cards = cards;
+        this.sources = sources;
+        this.partial = sources.stream().anyMatch(source -> source.getStatus() != Status.OK);
+    }
+
+    /**
+     * Cards of all sources merged by ID, earlier sources winning
+     */
+    public List<Card> getCards() {
+        return cards;
+    }
+
+    public List<SourceResult> getSources() {
+        return sources;
+    }
+
+    /**
+     * Whether at least one source did not contribute its cards
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Outcome of one source within a federated load
+     */
+    public static final class SourceResult {
+        private final String name;
+        private final Status status;
+        private final int cardCount;
+        private final long elapsedMillis;
+        private final String error;
+        private final List<Card> cards;
+
+        SourceResult(String name, Status status, List<Card> cards, long elapsedMillis, String error) {
+            this.name = name;
+            this.status = status;
+            this.cards = cards;
+            this.cardCount = cards != null ? cards.size() : 0;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getCardCount() {
+            return cardCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Failure message, null unless the status is FAILED or TIMEOUT
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Card list as returned by the source, null unless the status is OK
+         */
+        List<Card> cards() {
+            return cards;
+        }
+    }
+}
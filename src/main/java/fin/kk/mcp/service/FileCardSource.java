@@ -0,0 +1,165 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import fin.kk.mcp.model.Card;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Card source backed by a Check24 response snapshot on disk (by default the bundled cards.json).
+ *
+ * The file is memory-mapped and parsed once at startup; a {@link WatchService} on the parent
+ * directory re-parses it whenever it changes and notifies registered listeners. If a reload
+ * fails the previously parsed cards are kept. Enabled with {@code catalog.source=file}, e.g.
+ * through the {@code offline} profile.
+ */
+@Service
+@ConditionalOnProperty(name = "catalog.source", havingValue = "file")
+public class FileCardSource implements CardSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileCardSource.class);
+
+    private final Check24OfferParser offerParser;
+    private final Path path;
+    private final boolean watchEnabled;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private volatile ParsedOffers offers = ParsedOffers.empty();
+    private volatile IOException lastError;
+    private WatchService watchService;
+
+    @Autowired
+    public FileCardSource(Check24OfferParser offerParser,
+                          @Value("${catalog.file.path:cards.json}") String path,
+                          @Value("${catalog.file.watch-enabled:true}") boolean watchEnabled) {
+        this.offerParser = offerParser;
+        this.path = Path.of(path).toAbsolutePath().normalize();
+        this.watchEnabled = watchEnabled;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        if (watchEnabled) {
+            startWatching();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public List<Card> loadCards() {
+        IOException error = lastError;
+        List<Card> cards = offers.getCards();
+        if (error != null && cards.isEmpty()) {
+            throw new UncheckedIOException("Card snapshot " + path + " could not be read", error);
+        }
+        return cards;
+    }
+
+    @Override
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Re-read the snapshot file, keeping the previous cards if it cannot be parsed
+     * @return true if the cards were replaced
+     */
+    public boolean reload() {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                throw new IOException("file is empty"); // typically caught mid-write
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ParsedOffers parsed;
+            try (InputStream in = new ByteBufferBackedInputStream(buffer)) {
+                parsed = offerParser.parse(in, offers);
+            }
+            offers = parsed;
+            lastError = null;
+            logger.info("Loaded {} cards ({} new or changed) from {} in {} ms", parsed.getCards().size(),
+                    parsed.getMappedCount(), path, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException e) {
+            lastError = e;
+            logger.error("Could not load card snapshot {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    private void startWatching() {
+        Path directory = path.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warn("Hot reload disabled, cannot watch {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(this::watchLoop, "card-file-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop() {
+        Path fileName = path.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+
+                if (changed && Files.isRegularFile(path) && reload()) {
+                    listeners.forEach(Runnable::run);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        } catch (RuntimeException e) {
+            logger.error("Card snapshot watcher stopped: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -1,23 +1,24 @@
 package fin.kk.mcp.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fin.kk.mcp.config.OpenAiConfig;
 import fin.kk.mcp.dto.ChatMessage;
 import fin.kk.mcp.dto.ChatResponse;
+import fin.kk.mcp.dto.ChatStreamEvent;
 import fin.kk.mcp.dto.ConversationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,9 +31,10 @@ public class IterativeAgentService {
 
     private static final Logger logger = LoggerFactory.getLogger(IterativeAgentService.class);
     
-    private final WebClient openAiWebClient;
+    private final OpenAiCompletions openAiCompletions;
     private final OpenAiConfig openAiConfig;
     private final McpCardService mcpCardService;
+    private final CardCatalogCache cardCatalogCache;
     private final ObjectMapper objectMapper;
     
     private final Map<String, ConversationContext> conversations = new ConcurrentHashMap<>();
@@ -43,6 +45,8 @@ public class IterativeAgentService {
     private final Map<String, String> sessionLogs = new ConcurrentHashMap<>();
     
     private static final int MAX_ITERATIONS = 8;
+
+    private static final String USAGE_AGENT = "iterative";
     
     private static final String SYSTEM_PROMPT = """
         You are Emma, an autonomous and highly intelligent customer service agent for KK Credit Cards.
@@ -66,6 +70,7 @@ public class IterativeAgentService {
         - getCard(id)
         - getBonuses()
         - submitApplication(name, surname, salary, birthday, cardId, cardName) - Use this to submit a new application for a specific card. Before using this, you might need to use getCards() to find the correct cardId for the card the user wants. Always look for other customer details (salary, birthday) from previous tool calls before asking the user.
+        - recommendCards(customerName, monthlySpend, foreignSpendPercent, tripsPerYear) - Use this when the customer asks which card suits them best; it ranks all cards server-side in one call. All arguments are optional (pass "" for unknown values).
         - getCustomerApplications(customerName)
         - getApplicationStatus(applicationId)
         - cancelApplication(applicationId)
@@ -86,60 +91,111 @@ public class IterativeAgentService {
         """;
 
     @Autowired
-    public IterativeAgentService(@Qualifier("openAiWebClient") WebClient openAiWebClient,
+    public IterativeAgentService(OpenAiCompletions openAiCompletions,
                                 OpenAiConfig openAiConfig,
                                 McpCardService mcpCardService,
+                                CardCatalogCache cardCatalogCache,
                                 ObjectMapper objectMapper) {
-        this.openAiWebClient = openAiWebClient;
+        this.openAiCompletions = openAiCompletions;
         this.openAiConfig = openAiConfig;
         this.mcpCardService = mcpCardService;
+        this.cardCatalogCache = cardCatalogCache;
         this.objectMapper = objectMapper;
     }
 
-    public ChatResponse processMessage(ChatMessage message) {
+    /**
+     * Run the agent loop for a customer message without blocking on the OpenAI calls; tool
+     * actions run on the bounded elastic scheduler
+     */
+    public Mono<ChatResponse> processMessage(ChatMessage message) {
+        return processMessage(message, null);
+    }
+
+    /**
+     * Run the agent loop for a customer message and stream its progress: a step event for every
+     * thought and action, the answer to the customer as tokens while the model writes it (with
+     * {@code openai.streaming-enabled}), and a final done event with the complete answer
+     */
+    public Flux<ChatStreamEvent> streamMessage(ChatMessage message) {
+        return Flux.create(sink -> {
+            Disposable turn = processMessage(message, sink::next).subscribe(
+                    response -> {
+                        sink.next(response.getError() != null
+                                ? ChatStreamEvent.error(response.getSessionId(), response.getError())
+                                : ChatStreamEvent.done(response.getSessionId(), response.getFinalResponse(), response.getProcessingTimeMs()));
+                        sink.complete();
+                    },
+                    sink::error);
+            sink.onDispose(turn);
+        });
+    }
+
+    /**
+     * @param events Receives the progress of the turn, null if nobody listens
+     */
+    private Mono<ChatResponse> processMessage(ChatMessage message, Consumer<ChatStreamEvent> events) {
         long startTime = System.currentTimeMillis();
         
-        try {
+        return Mono.defer(() -> {
             ConversationContext context = getOrCreateConversation(message.getSessionId());
             context.addMessage(message);
             // Extract and store facts from the new message
             extractAndStoreFacts(message.getSessionId(), message.getMessage());
-            String result = runAgentLoop(message.getMessage(), context, message.getSessionId());
-            
-            ChatResponse response = new ChatResponse(result, message.getSessionId());
-            response.setProcessingTimeMs(System.currentTimeMillis() - startTime);
+            // All tool calls of the conversation see the catalog version it started with while that is retained
+            CardCatalogSnapshot catalog = cardCatalogCache.getSnapshotOrLatest(context.getCatalogVersion());
+            context.setCatalogVersion(catalog.getVersion());
             
-            ChatMessage assistantMessage = new ChatMessage(result, message.getSessionId(), "assistant");
-            context.addMessage(assistantMessage);
-            
-            return response;
+            return runAgentLoop(message.getMessage(), context, message.getSessionId(), catalog, events).map(result -> {
+                ChatResponse response = new ChatResponse(result, message.getSessionId());
+                response.setProcessingTimeMs(System.currentTimeMillis() - startTime);
+                
+                ChatMessage assistantMessage = new ChatMessage(result, message.getSessionId(), "assistant");
+                context.addMessage(assistantMessage);
+                
+                return response;
+            });
             
-        } catch (Exception e) {
+        }).onErrorResume(e -> {
             logger.error("Error processing message: {}", e.getMessage(), e);
             ChatResponse errorResponse = new ChatResponse();
             errorResponse.setSessionId(message.getSessionId());
             errorResponse.setError("I apologize, but I encountered an error. Please try again.");
             errorResponse.setProcessingTimeMs(System.currentTimeMillis() - startTime);
-            return errorResponse;
-        }
+            return Mono.just(errorResponse);
+        });
     }
 
-    private String runAgentLoop(String userMessage, ConversationContext context, String sessionId) {
+    private Mono<String> runAgentLoop(String userMessage, ConversationContext context, String sessionId,
+                                      CardCatalogSnapshot catalog, Consumer<ChatStreamEvent> events) {
         StringBuilder conversationHistory = new StringBuilder();
         conversationHistory.append("<span class='log-user'><b>Customer:</b> ")
                 .append(escapeHtml(userMessage)).append("</span><br><br>");
         
-        int iteration = 0;
+        return iterate(conversationHistory, context, sessionId, catalog, events, 1);
+    }
+
+    /**
+     * One iteration of the agent loop: ask the model for the next step, then either respond or
+     * execute the action and continue with the next iteration
+     */
+    private Mono<String> iterate(StringBuilder conversationHistory, ConversationContext context, String sessionId,
+                                 CardCatalogSnapshot catalog, Consumer<ChatStreamEvent> events, int iteration) {
+        if (iteration > MAX_ITERATIONS) {
+            // No hardcoded fallback. The LLM will decide how to recover or clarify if needed.
+            sessionLogs.put(sessionId, conversationHistory.toString());
+            return Mono.just("");
+        }
         
-        while (iteration < MAX_ITERATIONS) {
-            iteration++;
-            
-            String prompt = buildPrompt(conversationHistory.toString(), context, sessionId);
-            String agentResponse = callOpenAi(prompt);
+        String prompt = buildPrompt(conversationHistory.toString(), context, sessionId);
+        Consumer<String> tokens = events != null
+                ? new RespondTokens(token -> events.accept(ChatStreamEvent.token(sessionId, token)))
+                : null;
+        return callOpenAi(prompt, tokens).flatMap(agentResponse -> {
             logger.info("[Agent][Session:{}][Iteration:{}] LLM Raw Output:\n{}", sessionId, iteration, agentResponse);
             
-            if (agentResponse == null || agentResponse.trim().isEmpty()) {
-                break;
+            if (agentResponse.trim().isEmpty()) {
+                sessionLogs.put(sessionId, conversationHistory.toString());
+                return Mono.just("");
             }
             
             // Parse the agent's response
@@ -147,12 +203,15 @@ public class IterativeAgentService {
             if (step == null) {
                 conversationHistory.append("<span class='log-error'><b>System:</b> Your last response was not in the correct format. Please respond with 'Think: ...' and 'Action: ...'.</span><br><br>");
                 logger.warn("[Agent][Session:{}][Iteration:{}] Invalid format. Prompting LLM to correct.", sessionId, iteration);
-                continue;
+                return iterate(conversationHistory, context, sessionId, catalog, events, iteration + 1);
             }
             
             conversationHistory.append("<span class='log-think'><b>Think:</b> ")
                 .append(escapeHtml(step.thought)).append("</span><br>");
             logger.info("[Agent][Session:{}][Iteration:{}] Think: {}", sessionId, iteration, step.thought);
+            if (events != null) {
+                events.accept(ChatStreamEvent.step(sessionId, "Think: " + step.thought));
+            }
             
             // Robust respond action detection
             String actionLower = step.action.trim().toLowerCase(Locale.ROOT);
@@ -164,7 +223,7 @@ public class IterativeAgentService {
                 conversationHistory.append("<span class='log-result'><b>Result:</b> ")
                     .append(escapeHtml(msg)).append("</span><br><br>");
                 sessionLogs.put(sessionId, conversationHistory.toString());
-                return msg;
+                return Mono.just(msg);
             }
             // If the action is a quoted string, treat it as a user response
             if (step.action.trim().startsWith("\"") && step.action.trim().endsWith("\"")) {
@@ -176,7 +235,7 @@ public class IterativeAgentService {
                 conversationHistory.append("<span class='log-result'><b>Result:</b> ")
                     .append(escapeHtml(msg)).append("</span><br><br>");
                 sessionLogs.put(sessionId, conversationHistory.toString());
-                return msg;
+                return Mono.just(msg);
             }
             // If the action is a plain sentence (not a tool call), treat it as a user response
             if (!step.action.contains("(") && !step.action.contains(")")) {
@@ -186,34 +245,57 @@ public class IterativeAgentService {
                 conversationHistory.append("<span class='log-result'><b>Result:</b> ")
                     .append(escapeHtml(msg)).append("</span><br><br>");
                 sessionLogs.put(sessionId, conversationHistory.toString());
-                return msg;
+                return Mono.just(msg);
             }
             
-            // Execute tool action
-            try {
-                String toolResult = executeActionFlexible(step.action);
-                conversationHistory.append("<span class='log-action'><b>Action:</b> ")
-                    .append(escapeHtml(step.action)).append("</span><br>");
-                conversationHistory.append("<span class='log-result'><b>Result:</b> ")
-                    .append(escapeHtml(toolResult)).append("</span><br><br>");
-                logger.info("[Agent][Session:{}][Iteration:{}] Action: {} | Result: {}", sessionId, iteration, step.action, toolResult);
-            } catch (Exception e) {
-                logger.error("[Agent][Session:{}][Iteration:{}] Error executing action: {}", sessionId, iteration, e.getMessage());
-                conversationHistory.append("<span class='log-action'><b>Action:</b> ")
-                    .append(escapeHtml(step.action)).append("</span><br>");
-                conversationHistory.append("<span class='log-error'><b>Error:</b> ")
-                    .append(escapeHtml(e.getMessage())).append("</span><br><br>");
-                // No hardcoded fallback. The LLM will see the error and decide how to recover in the next step.
+            // Execute tool action off the event loop, against the conversation's catalog version
+            if (events != null) {
+                events.accept(ChatStreamEvent.step(sessionId, "Action: " + step.action));
             }
-        }
-        
-        // No hardcoded fallback. The LLM will decide how to recover or clarify if needed.
-        sessionLogs.put(sessionId, conversationHistory.toString());
-        return "";
+            return Mono.fromCallable(() -> {
+                    try (CatalogPin pin = cardCatalogCache.pin(catalog)) {
+                        return executeActionFlexible(step.action);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(toolResult -> {
+                    conversationHistory.append("<span class='log-action'><b>Action:</b> ")
+                        .append(escapeHtml(step.action)).append("</span><br>");
+                    conversationHistory.append("<span class='log-result'><b>Result:</b> ")
+                        .append(escapeHtml(toolResult)).append("</span><br><br>");
+                    logger.info("[Agent][Session:{}][Iteration:{}] Action: {} | Result: {}", sessionId, iteration, step.action, toolResult);
+                })
+                .onErrorResume(e -> {
+                    logger.error("[Agent][Session:{}][Iteration:{}] Error executing action: {}", sessionId, iteration, e.getMessage());
+                    conversationHistory.append("<span class='log-action'><b>Action:</b> ")
+                        .append(escapeHtml(step.action)).append("</span><br>");
+                    conversationHistory.append("<span class='log-error'><b>Error:</b> ")
+                        .append(escapeHtml(e.getMessage())).append("</span><br><br>");
+                    // No hardcoded fallback. The LLM will see the error and decide how to recover in the next step.
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> iterate(conversationHistory, context, sessionId, catalog, events, iteration + 1)));
+        });
     }
 
+    /**
+     * Prompt for the next step. Parts that change least come first, so the prompts of one turn
+     * share a growing prefix for OpenAI's prompt cache: earlier messages, the customer's message,
+     * the steps of this turn (only ever appended to), then the known facts, which may change
+     * between steps.
+     */
     private String buildPrompt(String conversationHistory, ConversationContext context, String sessionId) {
         StringBuilder prompt = new StringBuilder();
+        // Add recent conversation context if available
+        List<ChatMessage> recentContext = context.getRecentMessages(5);
+        if (recentContext.size() > 1) {
+            prompt.append("Recent conversation context:\n");
+            for (int i = 0; i < recentContext.size() - 1; i++) {
+                ChatMessage msg = recentContext.get(i);
+                prompt.append(msg.getRole()).append(": ").append(msg.getMessage()).append("\n");
+            }
+            prompt.append("\n");
+        }
         // Add explicit user message only (no language detection)
         String lastUserMessage = "";
         List<ChatMessage> recentMessages = context.getRecentMessages(1);
@@ -221,28 +303,17 @@ public class IterativeAgentService {
             lastUserMessage = recentMessages.get(0).getMessage();
         }
         prompt.append("User's last message: \"").append(lastUserMessage).append("\"\n");
-        // Removed duplicate language instruction here
+        prompt.append("Current conversation:\n");
+        prompt.append(conversationHistory);
         // Add known facts
         Map<String, String> facts = sessionFacts.getOrDefault(sessionId, Collections.emptyMap());
         if (!facts.isEmpty()) {
             prompt.append("Known Facts (from this conversation):\n");
-            for (Map.Entry<String, String> entry : facts.entrySet()) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(facts).entrySet()) {
                 prompt.append("- ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
             }
             prompt.append("\n");
         }
-        // Add recent conversation context if available
-        List<ChatMessage> recentContext = context.getRecentMessages(5);
-        if (recentContext.size() > 1) {
-            prompt.append("Recent conversation context:\n");
-            for (int i = 0; i < recentContext.size() - 1; i++) {
-                ChatMessage msg = recentContext.get(i);
-                prompt.append(msg.getRole()).append(": ").append(msg.getMessage()).append("\n");
-            }
-            prompt.append("\n");
-        }
-        prompt.append("Current conversation:\n");
-        prompt.append(conversationHistory);
         prompt.append("What should you do next? Think about the customer's needs and respond appropriately.\n\n");
         return prompt.toString();
     }
@@ -295,19 +366,22 @@ public class IterativeAgentService {
     private Object executeToolCall(String toolName, String argsString) throws Exception {
         switch (toolName) {
             case "getCards":
-                return mcpCardService.getCards();
+                return mcpCardService.getCards(null, null, null);
                 
             case "getCard":
                 String idString = argsString.trim().replaceAll("\"", "");
                 Long id = Long.parseLong(idString);
-                return mcpCardService.getCard(id);
+                return mcpCardService.getCard(id, null, null, null);
                 
             case "getBonuses":
-                return mcpCardService.getBonuses();
+                return mcpCardService.getBonuses(null);
                 
             case "submitApplication":
                 return parseAndExecuteSubmitApplication(argsString);
                 
+            case "recommendCards":
+                return parseAndExecuteRecommendCards(argsString);
+                
             case "getCustomerApplications":
                 String customerName = argsString.trim().replaceAll("\"", "");
                 return mcpCardService.getCustomerApplications(customerName);
@@ -349,54 +423,93 @@ public class IterativeAgentService {
         return mcpCardService.submitApplication(name, surname, salary, birthday, cardId, cardName);
     }
 
-    private String callOpenAi(String prompt) {
-        try {
-            Map<String, Object> request = new HashMap<>();
-            request.put("model", openAiConfig.getModel());
-            request.put("temperature", 0.3);
-            request.put("max_tokens", 1000);
-
-            List<Map<String, Object>> messages = new ArrayList<>();
-            Map<String, Object> systemMessage = new HashMap<>();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", SYSTEM_PROMPT);
-            messages.add(systemMessage);
-
-            // Enforce English language
-            Map<String, Object> langInstruction = new HashMap<>();
-            langInstruction.put("role", "system");
-            langInstruction.put("content", "Always respond in English.");
-            messages.add(langInstruction);
-
-            Map<String, Object> userMessage = new HashMap<>();
-            userMessage.put("role", "user");
-            userMessage.put("content", prompt);
-            messages.add(userMessage);
-            request.put("messages", messages);
-
-            Mono<String> responseMono = openAiWebClient
-                .post()
-                .uri("/chat/completions")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(String.class)
-                .timeout(Duration.ofSeconds(30));
-
-            String responseBody = responseMono.block();
-            JsonNode responseJson = objectMapper.readTree(responseBody);
-            JsonNode choices = responseJson.get("choices");
-
-            if (choices != null && !choices.isEmpty()) {
-                JsonNode content = choices.get(0).get("message").get("content");
-                return content != null ? content.asText() : null;
-            }
+    private Object parseAndExecuteRecommendCards(String argsString) {
+        String[] parts = argsString.split(",");
+        String customerName = argument(parts, 0);
+        String monthlySpend = argument(parts, 1);
+        String foreignSpendPercent = argument(parts, 2);
+        String tripsPerYear = argument(parts, 3);
+        return mcpCardService.recommendCards(customerName,
+                null,
+                monthlySpend != null ? new java.math.BigDecimal(monthlySpend) : null,
+                foreignSpendPercent != null ? new java.math.BigDecimal(foreignSpendPercent) : null,
+                tripsPerYear != null ? Integer.valueOf(tripsPerYear) : null,
+                null, null, null, null, null, null, null, null);
+    }
 
+    private String argument(String[] parts, int index) {
+        if (index >= parts.length) {
             return null;
+        }
+        String value = parts[index].trim().replaceAll("\"", "");
+        return value.isEmpty() ? null : value;
+    }
 
-        } catch (Exception e) {
-            logger.error("Error calling OpenAI: {}", e.getMessage(), e);
-            return null;
+    /**
+     * Ask the model for the next step
+     * @param tokens Receives the answer while it is streamed, null to request it in one piece
+     * @return Its answer, empty if there is none or the call failed
+     */
+    private Mono<String> callOpenAi(String prompt, Consumer<String> tokens) {
+        // Keys in a fixed order and the system prompt (which already demands English) as the only
+        // system message, so every request starts with the same bytes for OpenAI's prompt cache
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", openAiConfig.getModel());
+        request.put("temperature", 0.3);
+        request.put("max_tokens", 1000);
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        Map<String, Object> systemMessage = new LinkedHashMap<>();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", SYSTEM_PROMPT);
+        messages.add(systemMessage);
+
+        Map<String, Object> userMessage = new LinkedHashMap<>();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+        request.put("messages", messages);
+
+        if (tokens != null && Boolean.TRUE.equals(openAiConfig.getStreamingEnabled())) {
+            return openAiCompletions.stream(USAGE_AGENT, request)
+                .map(this::deltaContent)
+                .filter(token -> !token.isEmpty())
+                .doOnNext(tokens)
+                .collect(StringBuilder::new, StringBuilder::append)
+                .map(StringBuilder::toString)
+                .onErrorResume(e -> {
+                    logger.error("Error streaming from OpenAI: {}", e.getMessage(), e);
+                    return Mono.just("");
+                });
         }
+
+        return openAiCompletions.complete(USAGE_AGENT, request)
+            .map(responseJson -> {
+                JsonNode choices = responseJson.get("choices");
+                
+                if (choices != null && !choices.isEmpty()) {
+                    JsonNode content = choices.get(0).get("message").get("content");
+                    return content != null ? content.asText() : "";
+                }
+                
+                return "";
+            })
+            .onErrorResume(e -> {
+                logger.error("Error calling OpenAI: {}", e.getMessage(), e);
+                return Mono.just("");
+            });
+    }
+
+    /**
+     * Content of one chunk of a streamed completion, empty if it has none
+     */
+    private String deltaContent(JsonNode chunk) {
+        JsonNode choices = chunk.get("choices");
+        if (choices != null && !choices.isEmpty()) {
+            JsonNode content = choices.get(0).path("delta").get("content");
+            return content != null && content.isTextual() ? content.asText() : "";
+        }
+        return "";
     }
 
     private ConversationContext getOrCreateConversation(String sessionId) {
@@ -461,4 +574,36 @@ public class IterativeAgentService {
                     .replace(">", "&gt;")
                     .replace("\"", "&quot;");
     }
-}
\ No newline at end of file
+
+    /**
+     * Forwards the part of a streamed agent answer that follows "Action: respond:", i.e. the
+     * message for the customer, and holds back the reasoning before it. Answers in any other
+     * form are not forwarded; the done event always carries the final message.
+     */
+    private static final class RespondTokens implements Consumer<String> {
+        private static final Pattern RESPOND = Pattern.compile("(?i)action:\\s*respond\\s*:\\s*");
+
+        private final Consumer<String> forward;
+        private final StringBuilder text = new StringBuilder();
+        private boolean responding;
+
+        private RespondTokens(Consumer<String> forward) {
+            this.forward = forward;
+        }
+
+        @Override
+        public void accept(String token) {
+            if (responding) {
+                forward.accept(token);
+                return;
+            }
+            text.append(token);
+            Matcher matcher = RESPOND.matcher(text);
+            // Wait for the first character of the message so the whitespace after the colon is skipped
+            if (matcher.find() && matcher.end() < text.length()) {
+                responding = true;
+                forward.accept(text.substring(matcher.end()));
+            }
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package fin.kk.mcp.service;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+import fin.kk.mcp.dto.CardCost;
+import fin.kk.mcp.dto.CardRecommendation;
+import fin.kk.mcp.dto.CardRecommendationProfile;
+import fin.kk.mcp.dto.CardSearchCriteria;
+import fin.kk.mcp.dto.CardTextHit;
+import fin.kk.mcp.dto.CardUsageProfile;
 import fin.kk.mcp.model.ApplicationRequest;
 import fin.kk.mcp.model.ApplicationStatus;
-import fin.kk.mcp.model.Card;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,38 +17,281 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 public class McpCardService {
 
+    // Parameter descriptions shared by several tools and by the OpenAI agent's tool schema
+    static final String CATALOG_VERSION_DESCRIPTION =
+            "Catalog version to read, from getCatalogVersion; pass the same version in every call of a conversation for consistent answers (default latest)";
+    static final String FIELDS_DESCRIPTION =
+            "Comma-separated card fields to return, e.g. id,cardName,annualFee (overrides summary)";
+    static final String SUMMARY_DESCRIPTION =
+            "Return only a compact summary of each card (id, bank, name, type, network, fee, rate, bonus value, rating)";
+    static final String CARD_SYSTEM_DESCRIPTION =
+            "Card network: VISA, MASTER or AMEX";
+    static final String CARD_TYPE_DESCRIPTION =
+            "Card type: CREDIT, DEBIT, CHARGE or PREPAID";
+    static final String PAYMENT_GRADE_DESCRIPTION =
+            "Where payments are free: WORLDWIDE or EURO_ZONE";
+    static final String WITHDRAW_GRADE_DESCRIPTION =
+            "Where cash withdrawals are free: WORLDWIDE, EURO_ZONE, EURO_ZONE_EXCEPT_GERMANY, WITH_CONDITIONS or NO_FREE_WITHDRAW";
+    static final String INSURANCE_GRADE_DESCRIPTION =
+            "Insurance rating: VERY_GOOD, GOOD, AVAILABLE or NOT_AVAILABLE";
+    static final String MAX_ANNUAL_FEE_DESCRIPTION =
+            "Maximum annual fee in EUR";
+
     @Autowired
     private CardService cardService;
     
     @Autowired
     private DemoDataService demoDataService;
 
+    @Autowired
+    private CardSearchService cardSearchService;
+
+    @Autowired
+    private CardProjectionService cardProjectionService;
+
+    @Autowired
+    private CardTextSearchService cardTextSearchService;
+
+    @Autowired
+    private CardRecommendationService cardRecommendationService;
+
+    @Autowired
+    private CardCostService cardCostService;
+
+    @Autowired
+    private CardCatalogCache cardCatalogCache;
+
+    /**
+     * MCP Tool: Get the current catalog version for consistent reads across tool calls
+     */
+    @Tool(name = "getCatalogVersion", description = "Get the version of the current card catalog. Pass it as catalogVersion to the card tools so that all calls of a conversation see the same cards, even if the catalog is updated in between")
+    public Map<String, Object> getCatalogVersion() {
+        CardCatalogSnapshot snapshot = cardCatalogCache.getLatestSnapshot();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("catalogVersion", snapshot.getVersion());
+        response.put("cardCount", snapshot.size());
+        response.put("availableVersions", cardCatalogCache.getRetainedVersions());
+        return response;
+    }
+
     /**
      * MCP Tool: Get all credit cards from Check24 API
      */
-    @Tool(name = "getCards", description = "Get a list of all available credit cards with their details")
-    public List<Card> getCards() {
-        return cardService.fetchCardsFromCheck24Api();
+    @Tool(name = "getCards", description = "Get a list of all available credit cards with their details. Use summary or fields to keep the response small")
+    public RawValue getCards(
+            @ToolParam(description = FIELDS_DESCRIPTION, required = false) String fields,
+            @ToolParam(description = SUMMARY_DESCRIPTION, required = false) Boolean summary,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            return cardProjectionService.toJson(cardService.fetchCardsFromCheck24Api(), fields, summary);
+        }
     }
 
     /**
      * MCP Tool: Get a single credit card by ID from Check24 API
      */
     @Tool(name = "getCard", description = "Get details for a single credit card by its ID")
-    public Card getCard(@ToolParam(description = "The unique ID of the credit card to retrieve") Long id) {
-        // Get from Check24 API only
-        List<Card> apiCards = cardService.fetchCardsFromCheck24Api();
-        return apiCards.stream()
-                .filter(card -> card.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+    public RawValue getCard(
+            @ToolParam(description = "The unique ID of the credit card to retrieve") Long id,
+            @ToolParam(description = FIELDS_DESCRIPTION, required = false) String fields,
+            @ToolParam(description = SUMMARY_DESCRIPTION, required = false) Boolean summary,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            // Get from Check24 API only
+            return cardProjectionService.toJson(cardService.getCheck24CardById(id), fields, summary);
+        }
+    }
+
+    /**
+     * MCP Tool: Search credit cards by features using the catalog facet indexes
+     */
+    @Tool(name = "searchCards", description = "Search credit cards by features. All filters are optional and combined with AND; only matching cards are returned")
+    public RawValue searchCards(
+            @ToolParam(description = CARD_SYSTEM_DESCRIPTION, required = false) String cardSystem,
+            @ToolParam(description = CARD_TYPE_DESCRIPTION, required = false) String cardType,
+            @ToolParam(description = PAYMENT_GRADE_DESCRIPTION, required = false) String paymentGrade,
+            @ToolParam(description = WITHDRAW_GRADE_DESCRIPTION, required = false) String withdrawGrade,
+            @ToolParam(description = INSURANCE_GRADE_DESCRIPTION, required = false) String insuranceGrade,
+            @ToolParam(description = "Contactless payment supported", required = false) Boolean contactlessPayment,
+            @ToolParam(description = "Apple Pay supported", required = false) Boolean applePaySupported,
+            @ToolParam(description = "Google Pay supported", required = false) Boolean googlePaySupported,
+            @ToolParam(description = "No fees for payments in the euro zone", required = false) Boolean freePaymentEuroZone,
+            @ToolParam(description = "No fees for payments worldwide (no foreign transaction fees)", required = false) Boolean freePaymentWorldwide,
+            @ToolParam(description = "Free cash withdrawals in the euro zone", required = false) Boolean freeWithdrawEuroZone,
+            @ToolParam(description = "Free cash withdrawals worldwide", required = false) Boolean freeWithdrawWorldwide,
+            @ToolParam(description = "Travel cancellation insurance included", required = false) Boolean travelInsurance,
+            @ToolParam(description = "Health insurance abroad included", required = false) Boolean healthInsuranceAbroad,
+            @ToolParam(description = "Accident insurance abroad included", required = false) Boolean accidentInsuranceAbroad,
+            @ToolParam(description = "Maximum number of cards to return (default 50)", required = false) Integer limit,
+            @ToolParam(description = FIELDS_DESCRIPTION, required = false) String fields,
+            @ToolParam(description = SUMMARY_DESCRIPTION, required = false) Boolean summary,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            CardSearchCriteria criteria = new CardSearchCriteria();
+            criteria.setCardSystem(cardSystem);
+            criteria.setCardType(cardType);
+            criteria.setPaymentGrade(paymentGrade);
+            criteria.setWithdrawGrade(withdrawGrade);
+            criteria.setInsuranceGrade(insuranceGrade);
+            criteria.setContactlessPayment(contactlessPayment);
+            criteria.setApplePaySupported(applePaySupported);
+            criteria.setGooglePaySupported(googlePaySupported);
+            criteria.setFreePaymentEuroZone(freePaymentEuroZone);
+            criteria.setFreePaymentWorldwide(freePaymentWorldwide);
+            criteria.setFreeWithdrawEuroZone(freeWithdrawEuroZone);
+            criteria.setFreeWithdrawWorldwide(freeWithdrawWorldwide);
+            criteria.setTravelInsurance(travelInsurance);
+            criteria.setHealthInsuranceAbroad(healthInsuranceAbroad);
+            criteria.setAccidentInsuranceAbroad(accidentInsuranceAbroad);
+            criteria.setLimit(limit);
+            return cardProjectionService.toJson(cardSearchService.search(criteria), fields, summary);
+        }
+    }
+
+    /**
+     * MCP Tool: Full-text search over card names, banks, benefits and drawbacks
+     */
+    @Tool(name = "searchCardsText", description = "Find the credit cards whose descriptions best match what the customer wants, in German or English (e.g. 'travel insurance, hotel and car rental'). Returns the IDs, names and relevance scores of the best matches; use getCard for details")
+    public List<CardTextHit> searchCardsText(
+            @ToolParam(description = "What the customer is looking for, in their own words") String query,
+            @ToolParam(description = "Maximum number of cards to return (default 10)", required = false) Integer limit,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            return cardTextSearchService.search(query, limit);
+        }
+    }
+
+    /**
+     * MCP Tool: Rank credit cards by a numeric attribute using the catalog range indexes
+     */
+    @Tool(name = "rankCards", description = "Rank credit cards by annual fee, interest rate, bonus value, customer rating, number of customer reviews or first-year value, optionally within value ranges. Use limit and offset to page through the results")
+    public RawValue rankCards(
+            @ToolParam(description = "Attribute to order by: annualFee, interestRate, bonusValue, customerRating, customerFeedbackCount or firstYearValue") String sortBy,
+            @ToolParam(description = "Highest values first if true (default false, lowest first)", required = false) Boolean descending,
+            @ToolParam(description = "Minimum annual fee in EUR", required = false) BigDecimal minAnnualFee,
+            @ToolParam(description = MAX_ANNUAL_FEE_DESCRIPTION, required = false) BigDecimal maxAnnualFee,
+            @ToolParam(description = "Minimum interest rate in percent", required = false) BigDecimal minInterestRate,
+            @ToolParam(description = "Maximum interest rate in percent", required = false) BigDecimal maxInterestRate,
+            @ToolParam(description = "Minimum signup bonus value in EUR", required = false) BigDecimal minBonusValue,
+            @ToolParam(description = "Maximum signup bonus value in EUR", required = false) BigDecimal maxBonusValue,
+            @ToolParam(description = "Minimum customer rating (0-5)", required = false) BigDecimal minCustomerRating,
+            @ToolParam(description = "Maximum customer rating (0-5)", required = false) BigDecimal maxCustomerRating,
+            @ToolParam(description = "Minimum first-year value in EUR (signup bonus minus annual fee)", required = false) BigDecimal minFirstYearValue,
+            @ToolParam(description = "Maximum number of cards to return (default 50)", required = false) Integer limit,
+            @ToolParam(description = "Number of ranked cards to skip (default 0)", required = false) Integer offset,
+            @ToolParam(description = FIELDS_DESCRIPTION, required = false) String fields,
+            @ToolParam(description = SUMMARY_DESCRIPTION, required = false) Boolean summary,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            CardSearchCriteria criteria = new CardSearchCriteria();
+            criteria.setSortBy(sortBy);
+            criteria.setDescending(descending);
+            criteria.setMinAnnualFee(minAnnualFee);
+            criteria.setMaxAnnualFee(maxAnnualFee);
+            criteria.setMinInterestRate(minInterestRate);
+            criteria.setMaxInterestRate(maxInterestRate);
+            criteria.setMinBonusValue(minBonusValue);
+            criteria.setMaxBonusValue(maxBonusValue);
+            criteria.setMinCustomerRating(minCustomerRating);
+            criteria.setMaxCustomerRating(maxCustomerRating);
+            criteria.setMinFirstYearValue(minFirstYearValue);
+            criteria.setLimit(limit);
+            criteria.setOffset(offset);
+            return cardProjectionService.toJson(cardSearchService.search(criteria), fields, summary);
+        }
+    }
+
+    /**
+     * MCP Tool: Aggregate the numeric card attributes using the catalog column store
+     */
+    @Tool(name = "getCardStatistics", description = "Get the number of cards and the minimum, maximum and average annual fee, interest rate, bonus value, customer rating, feedback count and first-year value, optionally for a subset of cards. Use this for market overviews instead of fetching all cards")
+    public Map<String, CardColumnStore.Summary> getCardStatistics(
+            @ToolParam(description = CARD_SYSTEM_DESCRIPTION, required = false) String cardSystem,
+            @ToolParam(description = CARD_TYPE_DESCRIPTION, required = false) String cardType,
+            @ToolParam(description = PAYMENT_GRADE_DESCRIPTION, required = false) String paymentGrade,
+            @ToolParam(description = WITHDRAW_GRADE_DESCRIPTION, required = false) String withdrawGrade,
+            @ToolParam(description = INSURANCE_GRADE_DESCRIPTION, required = false) String insuranceGrade,
+            @ToolParam(description = MAX_ANNUAL_FEE_DESCRIPTION, required = false) BigDecimal maxAnnualFee,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            CardSearchCriteria criteria = new CardSearchCriteria();
+            criteria.setCardSystem(cardSystem);
+            criteria.setCardType(cardType);
+            criteria.setPaymentGrade(paymentGrade);
+            criteria.setWithdrawGrade(withdrawGrade);
+            criteria.setInsuranceGrade(insuranceGrade);
+            criteria.setMaxAnnualFee(maxAnnualFee);
+            return cardSearchService.summarize(criteria);
+        }
+    }
+
+    /**
+     * MCP Tool: Recommend cards for a customer profile with the server-side scoring engine
+     */
+    @Tool(name = "recommendCards", description = "Recommend the best credit cards for a customer in one call. Scores every card by its expected value in EUR for the customer's first year (fee, bonus, foreign fees, withdrawals, insurance, rating) and returns the top cards with the main reasons. All parameters are optional; pass what you know about the customer")
+    public List<CardRecommendation> recommendCards(
+            @ToolParam(description = "Customer's full name; their salary is taken from their latest application", required = false) String customerName,
+            @ToolParam(description = "Annual salary in EUR; limits the annual fee to 1% of it", required = false) BigDecimal salary,
+            @ToolParam(description = "Amount paid by card per month in EUR (default 500)", required = false) BigDecimal monthlySpend,
+            @ToolParam(description = "Percentage of the spend in foreign currencies, 0-100 (default 10)", required = false) BigDecimal foreignSpendPercent,
+            @ToolParam(description = "Trips abroad per year (default 1)", required = false) Integer tripsPerYear,
+            @ToolParam(description = "Cash withdrawals per month (default 2)", required = false) Integer cashWithdrawalsPerMonth,
+            @ToolParam(description = "Average balance paid off in instalments in EUR (default 0)", required = false) BigDecimal revolvingBalance,
+            @ToolParam(description = "Customer wants Apple Pay or Google Pay", required = false) Boolean mobilePayment,
+            @ToolParam(description = "Only cards with travel insurance", required = false) Boolean travelInsurance,
+            @ToolParam(description = CARD_SYSTEM_DESCRIPTION, required = false) String cardSystem,
+            @ToolParam(description = MAX_ANNUAL_FEE_DESCRIPTION, required = false) BigDecimal maxAnnualFee,
+            @ToolParam(description = "Maximum number of cards to return (default 5)", required = false) Integer limit,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            CardRecommendationProfile profile = new CardRecommendationProfile();
+            profile.setCustomerName(customerName);
+            profile.setSalary(salary);
+            profile.setMonthlySpend(monthlySpend);
+            profile.setForeignSpendPercent(foreignSpendPercent);
+            profile.setTripsPerYear(tripsPerYear);
+            profile.setCashWithdrawalsPerMonth(cashWithdrawalsPerMonth);
+            profile.setRevolvingBalance(revolvingBalance);
+            profile.setMobilePayment(mobilePayment);
+            profile.setTravelInsurance(travelInsurance);
+            profile.setCardSystem(cardSystem);
+            profile.setMaxAnnualFee(maxAnnualFee);
+            profile.setLimit(limit);
+            return cardRecommendationService.recommend(profile);
+        }
+    }
+
+    /**
+     * MCP Tool: Compare the yearly total cost of ownership of all cards for a usage profile
+     */
+    @Tool(name = "compareCardCosts", description = "Compute the yearly total cost of every credit card for how the customer uses it (fee, interest on a carried balance, payment and ATM fees, minus the signup bonus) and return the cheapest cards with the cost breakdown. Use this instead of calculating costs yourself")
+    public List<CardCost> compareCardCosts(
+            @ToolParam(description = "Amount paid by card per month in EUR, foreign spend included", required = false) BigDecimal monthlySpend,
+            @ToolParam(description = "Part of the monthly spend in foreign currencies, in EUR", required = false) BigDecimal foreignSpendPerMonth,
+            @ToolParam(description = "Cash withdrawals per month in the euro zone", required = false) Integer cashWithdrawalsPerMonth,
+            @ToolParam(description = "Cash withdrawals per month outside the euro zone", required = false) Integer foreignCashWithdrawalsPerMonth,
+            @ToolParam(description = "Average balance carried from month to month in EUR", required = false) BigDecimal carriedBalance,
+            @ToolParam(description = "Years over which the one-time signup bonus is spread (default 1)", required = false) Integer years,
+            @ToolParam(description = "Maximum number of cards to return (default 10)", required = false) Integer limit,
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            CardUsageProfile profile = new CardUsageProfile();
+            profile.setMonthlySpend(monthlySpend);
+            profile.setForeignSpendPerMonth(foreignSpendPerMonth);
+            profile.setCashWithdrawalsPerMonth(cashWithdrawalsPerMonth);
+            profile.setForeignCashWithdrawalsPerMonth(foreignCashWithdrawalsPerMonth);
+            profile.setCarriedBalance(carriedBalance);
+            profile.setYears(years);
+            profile.setLimit(limit);
+            return cardCostService.compare(profile);
+        }
     }
 
     /**
@@ -119,21 +368,11 @@ public class McpCardService {
      * This is a new capability that doesn't exist in the legacy API
      */
     @Tool(name = "getBonuses", description = "Get a simplified list showing only card names and their signup bonuses")
-    public List<Map<String, String>> getBonuses() {
-        List<Card> apiCards = cardService.fetchCardsFromCheck24Api();
-        
-        if (apiCards == null) {
-            return List.of();
+    public List<Map<String, String>> getBonuses(
+            @ToolParam(description = CATALOG_VERSION_DESCRIPTION, required = false) Long catalogVersion) {
+        try (CatalogPin pin = pinVersion(catalogVersion)) {
+            return cardService.toBonuses(cardService.fetchCardsFromCheck24Api());
         }
-        
-        return apiCards.stream()
-                .map(card -> {
-                    Map<String, String> cardBonus = new HashMap<>();
-                    cardBonus.put("cardName", card.getCardName());
-                    cardBonus.put("bonus", card.getSignupBonus());
-                    return cardBonus;
-                })
-                .collect(Collectors.toList());
     }
 
     /**
@@ -176,5 +415,19 @@ public class McpCardService {
         return demoDataService.getApplicationsNeedingAttention();
     }
 
-
-} 
\ No newline at end of file
+    /**
+     * Pin the requested catalog version for the duration of a tool call
+     * @return Pin to close, null if no version was requested
+     */
+    private CatalogPin pinVersion(Long catalogVersion) {
+        if (catalogVersion == null) {
+            return null;
+        }
+        CardCatalogSnapshot snapshot = cardCatalogCache.getSnapshot(catalogVersion);
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Catalog version " + catalogVersion + " is no longer available; available versions: "
+                    + cardCatalogCache.getRetainedVersions());
+        }
+        return cardCatalogCache.pin(snapshot);
+    }
+}
@@ -0,0 +1,90 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fin.kk.mcp.config.OpenAiConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Chat completion calls to OpenAI shared by both agents, without blocking: one complete
+ * response or the chunks of a streamed one. Waits are bounded by {@code openai.request-timeout}
+ * and the usage of every completion is recorded in {@link OpenAiUsageMetrics}.
+ */
+@Service
+public class OpenAiCompletions {
+
+    private final WebClient openAiWebClient;
+    private final OpenAiConfig openAiConfig;
+    private final ObjectMapper objectMapper;
+    private final OpenAiUsageMetrics usageMetrics;
+
+    @Autowired
+    public OpenAiCompletions(@Qualifier("openAiWebClient") WebClient openAiWebClient,
+                             OpenAiConfig openAiConfig,
+                             ObjectMapper objectMapper,
+                             OpenAiUsageMetrics usageMetrics) {
+        this.openAiWebClient = openAiWebClient;
+        this.openAiConfig = openAiConfig;
+        this.objectMapper = objectMapper;
+        this.usageMetrics = usageMetrics;
+    }
+
+    /**
+     * Send a chat completion request
+     * @param agent Agent sending the request, for the usage metrics
+     * @return The decoded response
+     */
+    public Mono<JsonNode> complete(String agent, Map<String, Object> request) {
+        return openAiWebClient
+            .post()
+            .uri("/chat/completions")
+            .bodyValue(request)
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            .timeout(openAiConfig.getRequestTimeout())
+            .doOnNext(responseJson -> usageMetrics.record(agent, responseJson.get("usage")));
+    }
+
+    /**
+     * Send a chat completion request with {@code stream: true}
+     * @param agent Agent sending the request, for the usage metrics
+     * @return The parsed chunks up to {@code [DONE]}; the request timeout applies to each chunk,
+     *         not to the whole answer
+     */
+    public Flux<JsonNode> stream(String agent, Map<String, Object> request) {
+        Map<String, Object> streamRequest = new LinkedHashMap<>(request);
+        streamRequest.put("stream", true);
+        // The last chunk then carries the usage block
+        streamRequest.put("stream_options", Map.of("include_usage", true));
+
+        return openAiWebClient
+            .post()
+            .uri("/chat/completions")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .bodyValue(streamRequest)
+            .retrieve()
+            .bodyToFlux(String.class)
+            .timeout(openAiConfig.getRequestTimeout())
+            .takeWhile(data -> !"[DONE]".equals(data.trim()))
+            .map(this::readChunk)
+            .doOnNext(chunk -> usageMetrics.record(agent, chunk.get("usage")));
+    }
+
+    private JsonNode readChunk(String data) {
+        try {
+            return objectMapper.readTree(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid chunk in OpenAI stream: " + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -6,18 +6,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fin.kk.mcp.config.OpenAiConfig;
 import fin.kk.mcp.dto.ChatMessage;
 import fin.kk.mcp.dto.ChatResponse;
+import fin.kk.mcp.dto.ChatStreamEvent;
 import fin.kk.mcp.dto.ConversationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -29,14 +33,32 @@ public class OpenAiService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAiService.class);
     
-    private final WebClient openAiWebClient;
+    private final OpenAiCompletions openAiCompletions;
     private final OpenAiConfig openAiConfig;
     private final McpCardService mcpCardService;
+    private final CardCatalogCache cardCatalogCache;
     private final ObjectMapper objectMapper;
+    private final boolean parallelToolCalls;
+    private final int maxParallelToolCalls;
+    private final Duration toolExecutionTimeout;
+    private final int maxToolRounds;
+    private final Duration maxProcessingTime;
+    private final List<Map<String, Object>> toolDefinitions;
     
     // In-memory conversation storage (for demo purposes)
     private final Map<String, ConversationContext> conversations = new ConcurrentHashMap<>();
     
+    // Tools whose result only depends on their arguments and the pinned catalog version
+    private static final Set<String> IDEMPOTENT_TOOLS = Set.of(
+            "getCards", "getCard", "getBonuses", "getApplicationStatus",
+            "searchCards", "searchCardsText", "rankCards", "getCardStatistics", "recommendCards", "compareCardCosts");
+    
+    // Tools that change applications, and with them the result of getApplicationStatus; in a
+    // streamed completion they only run once the completion has arrived in full
+    private static final Set<String> MUTATING_TOOLS = Set.of("submitApplication", "cancelApplication");
+    
+    private static final String USAGE_AGENT = "openai";
+    
     private static final String SYSTEM_PROMPT = """
             You are Emma, a highly skilled and proactive customer service agent for KK Credit Cards. 
             You excel at understanding customer needs and using available tools intelligently to provide exceptional service.
@@ -63,8 +85,14 @@ public class OpenAiService {
             5. **Language Adaptation**: Respond in whatever language the customer uses, maintaining natural conversation flow
             
             ## Available Tools & When to Use Them:
-            - **getCards**: When customers ask about available cards, want to browse options, or need comprehensive card information
+            - **getCards**: When customers ask about available cards, want to browse options, or need comprehensive card information (use summary=true to browse, then getCard for details)
             - **getCard**: When customers ask about a specific card by ID or when you need detailed information about one card
+            - **searchCards**: When customers ask for cards with specific features (e.g. no foreign fees, free withdrawals, Apple Pay, travel insurance) - prefer this over getCards
+            - **searchCardsText**: When customers describe in their own words what they want from a card (e.g. "good for travel, with insurance") - then use getCard for the details of the best matches
+            - **rankCards**: When customers ask for the cheapest, best rated, most reviewed or highest bonus cards, the best first-year value, or give a fee, rate, bonus or rating range
+            - **recommendCards**: When customers ask which card suits them best - pass what you know about their spending, travel and preferences and present the returned ranking instead of comparing all cards yourself
+            - **compareCardCosts**: When customers ask what a card would cost them or which card is cheapest for their spending, travel and cash needs
+            - **getCardStatistics**: When customers ask about typical or average fees, rates, bonuses or ratings, or want a market overview
             - **getBonuses**: When customers want to compare signup bonuses, ask "which card has the best bonus", or want quick comparisons
             - **submitApplication**: When customers want to apply for a card and provide all required information
             - **getCustomerApplications**: CRITICAL - Use immediately when customer provides their name or asks about "my application"
@@ -119,26 +147,45 @@ public class OpenAiService {
             """;
 
     @Autowired
-    public OpenAiService(@Qualifier("openAiWebClient") WebClient openAiWebClient,
+    public OpenAiService(OpenAiCompletions openAiCompletions,
                         OpenAiConfig openAiConfig,
                         McpCardService mcpCardService,
-                        ObjectMapper objectMapper) {
-        this.openAiWebClient = openAiWebClient;
+                        CardCatalogCache cardCatalogCache,
+                        ObjectMapper objectMapper,
+                        @Value("${agent.parallel-execution-enabled:false}") boolean parallelToolCalls,
+                        @Value("${agent.max-parallel-executions:3}") int maxParallelToolCalls,
+                        @Value("${agent.tool-execution-timeout:PT30S}") Duration toolExecutionTimeout,
+                        @Value("${agent.max-iterations:10}") int maxToolRounds,
+                        @Value("${agent.max-processing-time:PT5M}") Duration maxProcessingTime) {
+        this.openAiCompletions = openAiCompletions;
         this.openAiConfig = openAiConfig;
         this.mcpCardService = mcpCardService;
+        this.cardCatalogCache = cardCatalogCache;
         this.objectMapper = objectMapper;
+        this.parallelToolCalls = parallelToolCalls;
+        this.maxParallelToolCalls = Math.max(1, maxParallelToolCalls);
+        this.toolExecutionTimeout = toolExecutionTimeout;
+        this.maxToolRounds = Math.max(0, maxToolRounds);
+        this.maxProcessingTime = maxProcessingTime;
+        this.toolDefinitions = Collections.unmodifiableList(buildToolDefinitions());
     }
 
     /**
-     * Process a chat message and generate a response using OpenAI
+     * Process a chat message and generate a response using OpenAI. Nothing blocks on the
+     * OpenAI calls: the returned Mono completes on the WebClient's event loop, and tool calls
+     * run on the bounded elastic scheduler.
      */
-    public ChatResponse processMessage(ChatMessage message) {
+    public Mono<ChatResponse> processMessage(ChatMessage message) {
         long startTime = System.currentTimeMillis();
         
-        try {
+        return Mono.defer(() -> {
             // Get or create conversation context
             ConversationContext context = getOrCreateConversation(message.getSessionId());
             
+            // Keep the conversation on the catalog version it started with while that is retained
+            CardCatalogSnapshot catalog = cardCatalogCache.getSnapshotOrLatest(context.getCatalogVersion());
+            context.setCatalogVersion(catalog.getVersion());
+            
             // Add user message to context
             context.addMessage(message);
             
@@ -146,26 +193,76 @@ public class OpenAiService {
             Map<String, Object> request = buildOpenAiRequest(context);
             
             // Call OpenAI API
-            String aiResponse = callOpenAiApi(request);
-            
-            // Create response
-            ChatResponse response = new ChatResponse(aiResponse, message.getSessionId());
-            response.setProcessingTimeMs(System.currentTimeMillis() - startTime);
-            
-            // Add assistant response to context
-            ChatMessage assistantMessage = new ChatMessage(aiResponse, message.getSessionId(), "assistant");
-            context.addMessage(assistantMessage);
-            
-            return response;
+            return callOpenAiApi(request, new ToolTurn(catalog, startTime)).map(aiResponse -> {
+                // Create response
+                ChatResponse response = new ChatResponse(aiResponse, message.getSessionId());
+                response.setProcessingTimeMs(System.currentTimeMillis() - startTime);
+                
+                // Add assistant response to context
+                ChatMessage assistantMessage = new ChatMessage(aiResponse, message.getSessionId(), "assistant");
+                context.addMessage(assistantMessage);
+                
+                return response;
+            });
             
-        } catch (Exception e) {
+        }).onErrorResume(e -> {
             logger.error("Error processing message: {}", e.getMessage(), e);
             ChatResponse errorResponse = new ChatResponse();
             errorResponse.setSessionId(message.getSessionId());
             errorResponse.setError("Sorry, I encountered an error processing your request. Please try again.");
             errorResponse.setProcessingTimeMs(System.currentTimeMillis() - startTime);
-            return errorResponse;
-        }
+            return Mono.just(errorResponse);
+        });
+    }
+
+    /**
+     * Process a chat message and stream the answer while it is generated. With
+     * {@code openai.streaming-enabled} the completion is requested with {@code stream: true}:
+     * content deltas are forwarded as tokens, streamed tool calls are executed as soon as their
+     * arguments are complete, and the follow-up answer is streamed as well. Otherwise the
+     * complete answer is sent as a single token.
+     */
+    public Flux<ChatStreamEvent> streamMessage(ChatMessage message) {
+        long startTime = System.currentTimeMillis();
+        String sessionId = message.getSessionId();
+        
+        return Flux.defer(() -> {
+            ConversationContext context = getOrCreateConversation(sessionId);
+            
+            // Keep the conversation on the catalog version it started with while that is retained
+            CardCatalogSnapshot catalog = cardCatalogCache.getSnapshotOrLatest(context.getCatalogVersion());
+            context.setCatalogVersion(catalog.getVersion());
+            
+            context.addMessage(message);
+            Map<String, Object> request = buildOpenAiRequest(context);
+            
+            if (!Boolean.TRUE.equals(openAiConfig.getStreamingEnabled())) {
+                return callOpenAiApi(request, new ToolTurn(catalog, startTime)).flatMapMany(aiResponse -> {
+                    context.addMessage(new ChatMessage(aiResponse, sessionId, "assistant"));
+                    return Flux.just(ChatStreamEvent.token(sessionId, aiResponse),
+                            ChatStreamEvent.done(sessionId, aiResponse, System.currentTimeMillis() - startTime));
+                });
+            }
+            
+            StringBuilder answer = new StringBuilder();
+            return streamCompletion(request, new ToolTurn(catalog, startTime), sessionId, answer)
+                .concatWith(Flux.defer(() -> {
+                    Flux<ChatStreamEvent> fallback = Flux.empty();
+                    if (answer.length() == 0) {
+                        answer.append("I retrieved the information but had trouble processing it. Please try again.");
+                        fallback = Flux.just(ChatStreamEvent.token(sessionId, answer.toString()));
+                    }
+                    String aiResponse = answer.toString();
+                    context.addMessage(new ChatMessage(aiResponse, sessionId, "assistant"));
+                    return fallback.concatWith(Flux.just(
+                            ChatStreamEvent.done(sessionId, aiResponse, System.currentTimeMillis() - startTime)));
+                }));
+            
+        }).onErrorResume(e -> {
+            logger.error("Error streaming message: {}", e.getMessage(), e);
+            return Flux.just(ChatStreamEvent.error(sessionId,
+                    "Sorry, I encountered an error processing your request. Please try again."));
+        });
     }
 
     /**
@@ -179,18 +276,26 @@ public class OpenAiService {
      * Build OpenAI API request with function calling
      */
     private Map<String, Object> buildOpenAiRequest(ConversationContext context) {
-        Map<String, Object> request = new HashMap<>();
+        // Keys in a fixed order and the constant parts (system prompt, tools) first, so every
+        // request of every session starts with the same bytes and hits OpenAI's prompt cache
+        Map<String, Object> request = new LinkedHashMap<>();
         
         // Model and basic parameters
         request.put("model", openAiConfig.getModel());
         request.put("temperature", openAiConfig.getTemperature());
         request.put("max_tokens", openAiConfig.getMaxTokens());
         
+        // Function definitions
+        if (openAiConfig.getFunctionCallingEnabled()) {
+            request.put("tools", toolDefinitions);
+            request.put("tool_choice", "auto");
+        }
+        
         // Messages
         List<Map<String, Object>> messages = new ArrayList<>();
         
         // System message
-        Map<String, Object> systemMessage = new HashMap<>();
+        Map<String, Object> systemMessage = new LinkedHashMap<>();
         systemMessage.put("role", "system");
         systemMessage.put("content", SYSTEM_PROMPT);
         messages.add(systemMessage);
@@ -198,7 +303,7 @@ public class OpenAiService {
         // Conversation history (last 10 messages to keep context manageable)
         List<ChatMessage> recentMessages = context.getRecentMessages(10);
         for (ChatMessage msg : recentMessages) {
-            Map<String, Object> openAiMessage = new HashMap<>();
+            Map<String, Object> openAiMessage = new LinkedHashMap<>();
             openAiMessage.put("role", msg.getRole());
             openAiMessage.put("content", msg.getMessage());
             messages.add(openAiMessage);
@@ -206,17 +311,11 @@ public class OpenAiService {
         
         request.put("messages", messages);
         
-        // Function definitions
-        if (openAiConfig.getFunctionCallingEnabled()) {
-            request.put("tools", buildToolDefinitions());
-            request.put("tool_choice", "auto");
-        }
-        
         return request;
     }
 
     /**
-     * Build tool definitions for OpenAI function calling
+     * Build tool definitions for OpenAI function calling; built once, as they never change
      */
     private List<Map<String, Object>> buildToolDefinitions() {
         List<Map<String, Object>> tools = new ArrayList<>();
@@ -224,55 +323,176 @@ public class OpenAiService {
         // getCards tool
         tools.add(createToolDefinition(
             "getCards",
-            "Get a list of all available credit cards with their details",
-            Map.of()
+            "Get a list of all available credit cards with their details. Use summary or fields to keep the response small",
+            projectionParameters(new LinkedHashMap<>()),
+            List.of()
         ));
         
         // getCard tool
+        Map<String, Object> cardParameters = new LinkedHashMap<>();
+        cardParameters.put("id", orderedMap(
+            "type", "integer",
+            "description", "The unique ID of the credit card to retrieve"
+        ));
         tools.add(createToolDefinition(
             "getCard",
             "Get details for a single credit card by its ID",
-            Map.of(
-                "id", Map.of(
-                    "type", "integer",
-                    "description", "The unique ID of the credit card to retrieve"
-                )
-            )
+            projectionParameters(cardParameters),
+            List.of("id")
+        ));
+        
+        // searchCards tool (all filters optional)
+        Map<String, Object> searchParameters = new LinkedHashMap<>();
+        searchParameters.put("cardSystem", orderedMap("type", "string", "enum", List.of("VISA", "MASTER", "AMEX"),
+            "description", McpCardService.CARD_SYSTEM_DESCRIPTION));
+        searchParameters.put("cardType", orderedMap("type", "string", "enum", List.of("CREDIT", "DEBIT", "CHARGE", "PREPAID"),
+            "description", McpCardService.CARD_TYPE_DESCRIPTION));
+        searchParameters.put("paymentGrade", orderedMap("type", "string", "enum", List.of("WORLDWIDE", "EURO_ZONE"),
+            "description", McpCardService.PAYMENT_GRADE_DESCRIPTION));
+        searchParameters.put("withdrawGrade", orderedMap("type", "string",
+            "enum", List.of("WORLDWIDE", "EURO_ZONE", "EURO_ZONE_EXCEPT_GERMANY", "WITH_CONDITIONS", "NO_FREE_WITHDRAW"),
+            "description", McpCardService.WITHDRAW_GRADE_DESCRIPTION));
+        searchParameters.put("insuranceGrade", orderedMap("type", "string",
+            "enum", List.of("VERY_GOOD", "GOOD", "AVAILABLE", "NOT_AVAILABLE"),
+            "description", McpCardService.INSURANCE_GRADE_DESCRIPTION));
+        searchParameters.put("contactlessPayment", orderedMap("type", "boolean", "description", "Contactless payment supported"));
+        searchParameters.put("applePaySupported", orderedMap("type", "boolean", "description", "Apple Pay supported"));
+        searchParameters.put("googlePaySupported", orderedMap("type", "boolean", "description", "Google Pay supported"));
+        searchParameters.put("freePaymentEuroZone", orderedMap("type", "boolean", "description", "No fees for payments in the euro zone"));
+        searchParameters.put("freePaymentWorldwide", orderedMap("type", "boolean", "description", "No fees for payments worldwide (no foreign transaction fees)"));
+        searchParameters.put("freeWithdrawEuroZone", orderedMap("type", "boolean", "description", "Free cash withdrawals in the euro zone"));
+        searchParameters.put("freeWithdrawWorldwide", orderedMap("type", "boolean", "description", "Free cash withdrawals worldwide"));
+        searchParameters.put("travelInsurance", orderedMap("type", "boolean", "description", "Travel cancellation insurance included"));
+        searchParameters.put("healthInsuranceAbroad", orderedMap("type", "boolean", "description", "Health insurance abroad included"));
+        searchParameters.put("accidentInsuranceAbroad", orderedMap("type", "boolean", "description", "Accident insurance abroad included"));
+        searchParameters.put("limit", orderedMap("type", "integer", "description", "Maximum number of cards to return (default 50)"));
+        tools.add(createToolDefinition(
+            "searchCards",
+            "Search credit cards by features. All filters are optional and combined with AND; only matching cards are returned",
+            projectionParameters(searchParameters),
+            List.of()
+        ));
+        
+        // searchCardsText tool
+        Map<String, Object> textParameters = new LinkedHashMap<>();
+        textParameters.put("query", orderedMap("type", "string", "description", "What the customer is looking for, in their own words"));
+        textParameters.put("limit", orderedMap("type", "integer", "description", "Maximum number of cards to return (default 10)"));
+        tools.add(createToolDefinition(
+            "searchCardsText",
+            "Find the credit cards whose descriptions best match what the customer wants, in German or English (e.g. 'travel insurance, hotel and car rental'). Returns the IDs, names and relevance scores of the best matches; use getCard for details",
+            textParameters,
+            List.of("query")
+        ));
+        
+        // rankCards tool
+        Map<String, Object> rankParameters = new LinkedHashMap<>();
+        rankParameters.put("sortBy", orderedMap("type", "string",
+            "enum", List.of("annualFee", "interestRate", "bonusValue", "customerRating", "customerFeedbackCount", "firstYearValue"),
+            "description", "Attribute to order by"));
+        rankParameters.put("descending", orderedMap("type", "boolean", "description", "Highest values first if true (default false, lowest first)"));
+        rankParameters.put("minAnnualFee", orderedMap("type", "number", "description", "Minimum annual fee in EUR"));
+        rankParameters.put("maxAnnualFee", orderedMap("type", "number", "description", McpCardService.MAX_ANNUAL_FEE_DESCRIPTION));
+        rankParameters.put("minInterestRate", orderedMap("type", "number", "description", "Minimum interest rate in percent"));
+        rankParameters.put("maxInterestRate", orderedMap("type", "number", "description", "Maximum interest rate in percent"));
+        rankParameters.put("minBonusValue", orderedMap("type", "number", "description", "Minimum signup bonus value in EUR"));
+        rankParameters.put("maxBonusValue", orderedMap("type", "number", "description", "Maximum signup bonus value in EUR"));
+        rankParameters.put("minCustomerRating", orderedMap("type", "number", "description", "Minimum customer rating (0-5)"));
+        rankParameters.put("maxCustomerRating", orderedMap("type", "number", "description", "Maximum customer rating (0-5)"));
+        rankParameters.put("minFirstYearValue", orderedMap("type", "number", "description", "Minimum first-year value in EUR (signup bonus minus annual fee)"));
+        rankParameters.put("limit", orderedMap("type", "integer", "description", "Maximum number of cards to return (default 50)"));
+        rankParameters.put("offset", orderedMap("type", "integer", "description", "Number of ranked cards to skip (default 0)"));
+        tools.add(createToolDefinition(
+            "rankCards",
+            "Rank credit cards by annual fee, interest rate, bonus value, customer rating, number of customer reviews or first-year value, optionally within value ranges. Use limit and offset to page through the results",
+            projectionParameters(rankParameters),
+            List.of("sortBy")
+        ));
+        
+        // getCardStatistics tool (all filters optional)
+        Map<String, Object> statisticsParameters = new LinkedHashMap<>();
+        statisticsParameters.put("cardSystem", searchParameters.get("cardSystem"));
+        statisticsParameters.put("cardType", searchParameters.get("cardType"));
+        statisticsParameters.put("paymentGrade", searchParameters.get("paymentGrade"));
+        statisticsParameters.put("withdrawGrade", searchParameters.get("withdrawGrade"));
+        statisticsParameters.put("insuranceGrade", searchParameters.get("insuranceGrade"));
+        statisticsParameters.put("maxAnnualFee", orderedMap("type", "number", "description", McpCardService.MAX_ANNUAL_FEE_DESCRIPTION));
+        tools.add(createToolDefinition(
+            "getCardStatistics",
+            "Get the number of cards and the minimum, maximum and average annual fee, interest rate, bonus value, customer rating, feedback count and first-year value, optionally for a subset of cards. Use this for market overviews instead of fetching all cards",
+            statisticsParameters,
+            List.of()
+        ));
+        
+        // recommendCards tool (all parameters optional)
+        Map<String, Object> recommendParameters = new LinkedHashMap<>();
+        recommendParameters.put("customerName", orderedMap("type", "string", "description", "Customer's full name; their salary is taken from their latest application"));
+        recommendParameters.put("salary", orderedMap("type", "number", "description", "Annual salary in EUR; limits the annual fee to 1% of it"));
+        recommendParameters.put("monthlySpend", orderedMap("type", "number", "description", "Amount paid by card per month in EUR (default 500)"));
+        recommendParameters.put("foreignSpendPercent", orderedMap("type", "number", "description", "Percentage of the spend in foreign currencies, 0-100 (default 10)"));
+        recommendParameters.put("tripsPerYear", orderedMap("type", "integer", "description", "Trips abroad per year (default 1)"));
+        recommendParameters.put("cashWithdrawalsPerMonth", orderedMap("type", "integer", "description", "Cash withdrawals per month (default 2)"));
+        recommendParameters.put("revolvingBalance", orderedMap("type", "number", "description", "Average balance paid off in instalments in EUR (default 0)"));
+        recommendParameters.put("mobilePayment", orderedMap("type", "boolean", "description", "Customer wants Apple Pay or Google Pay"));
+        recommendParameters.put("travelInsurance", orderedMap("type", "boolean", "description", "Only cards with travel insurance"));
+        recommendParameters.put("cardSystem", searchParameters.get("cardSystem"));
+        recommendParameters.put("maxAnnualFee", orderedMap("type", "number", "description", McpCardService.MAX_ANNUAL_FEE_DESCRIPTION));
+        recommendParameters.put("limit", orderedMap("type", "integer", "description", "Maximum number of cards to return (default 5)"));
+        tools.add(createToolDefinition(
+            "recommendCards",
+            "Recommend the best credit cards for a customer in one call. Scores every card by its expected value in EUR for the customer's first year (fee, bonus, foreign fees, withdrawals, insurance, rating) and returns the top cards with the main reasons. All parameters are optional; pass what you know about the customer",
+            recommendParameters,
+            List.of()
+        ));
+        
+        // compareCardCosts tool (all parameters optional)
+        Map<String, Object> costParameters = new LinkedHashMap<>();
+        costParameters.put("monthlySpend", orderedMap("type", "number", "description", "Amount paid by card per month in EUR, foreign spend included"));
+        costParameters.put("foreignSpendPerMonth", orderedMap("type", "number", "description", "Part of the monthly spend in foreign currencies, in EUR"));
+        costParameters.put("cashWithdrawalsPerMonth", orderedMap("type", "integer", "description", "Cash withdrawals per month in the euro zone"));
+        costParameters.put("foreignCashWithdrawalsPerMonth", orderedMap("type", "integer", "description", "Cash withdrawals per month outside the euro zone"));
+        costParameters.put("carriedBalance", orderedMap("type", "number", "description", "Average balance carried from month to month in EUR"));
+        costParameters.put("years", orderedMap("type", "integer", "description", "Years over which the one-time signup bonus is spread (default 1)"));
+        costParameters.put("limit", orderedMap("type", "integer", "description", "Maximum number of cards to return (default 10)"));
+        tools.add(createToolDefinition(
+            "compareCardCosts",
+            "Compute the yearly total cost of every credit card for how the customer uses it (fee, interest on a carried balance, payment and ATM fees, minus the signup bonus) and return the cheapest cards with the cost breakdown. Use this instead of calculating costs yourself",
+            costParameters,
+            List.of()
         ));
         
         // getBonuses tool
         tools.add(createToolDefinition(
             "getBonuses",
             "Get card names and signup bonuses",
-            Map.of()
+            orderedMap()
         ));
         
         // submitApplication tool
         tools.add(createToolDefinition(
             "submitApplication",
             "Submit a credit card application with personal and financial details",
-            Map.of(
-                "name", Map.of(
+            orderedMap(
+                "name", orderedMap(
                     "type", "string",
                     "description", "First name of the applicant"
                 ),
-                "surname", Map.of(
+                "surname", orderedMap(
                     "type", "string",
                     "description", "Last name of the applicant"
                 ),
-                "salary", Map.of(
+                "salary", orderedMap(
                     "type", "number",
                     "description", "Annual salary in USD (must be greater than 0)"
                 ),
-                "birthday", Map.of(
+                "birthday", orderedMap(
                     "type", "string",
                     "description", "Date of birth in YYYY-MM-DD format"
                 ),
-                "cardId", Map.of(
+                "cardId", orderedMap(
                     "type", "integer",
                     "description", "The unique ID of the card to apply for"
                 ),
-                "cardName", Map.of(
+                "cardName", orderedMap(
                     "type", "string",
                     "description", "The name of the card to apply for"
                 )
@@ -283,8 +503,8 @@ public class OpenAiService {
         tools.add(createToolDefinition(
             "getCustomerApplications",
             "Get all applications for a customer by name - USE THIS IMMEDIATELY when customer provides their name",
-            Map.of(
-                "customerName", Map.of(
+            orderedMap(
+                "customerName", orderedMap(
                     "type", "string",
                     "description", "Customer's full name (first and last name)"
                 )
@@ -295,8 +515,8 @@ public class OpenAiService {
         tools.add(createToolDefinition(
             "getApplicationStatus",
             "Get detailed status of a specific application",
-            Map.of(
-                "applicationId", Map.of(
+            orderedMap(
+                "applicationId", orderedMap(
                     "type", "string",
                     "description", "The unique application ID"
                 )
@@ -307,8 +527,8 @@ public class OpenAiService {
         tools.add(createToolDefinition(
             "cancelApplication",
             "Cancel a pending application",
-            Map.of(
-                "applicationId", Map.of(
+            orderedMap(
+                "applicationId", orderedMap(
                     "type", "string",
                     "description", "The unique application ID to cancel"
                 )
@@ -319,8 +539,8 @@ public class OpenAiService {
         tools.add(createToolDefinition(
             "estimateApprovalTime",
             "Estimate approval time for an application",
-            Map.of(
-                "applicationId", Map.of(
+            orderedMap(
+                "applicationId", orderedMap(
                     "type", "string",
                     "description", "The unique application ID"
                 )
@@ -331,28 +551,47 @@ public class OpenAiService {
         tools.add(createToolDefinition(
             "getApplicationsNeedingAttention",
             "Get applications that have been pending for a long time and might need follow-up",
-            Map.of()
+            orderedMap()
         ));
         
         return tools;
     }
 
+    /**
+     * Add the optional field projection parameters shared by the card tools
+     */
+    private Map<String, Object> projectionParameters(Map<String, Object> parameters) {
+        parameters.put("fields", orderedMap("type", "string",
+            "description", McpCardService.FIELDS_DESCRIPTION));
+        parameters.put("summary", orderedMap("type", "boolean",
+            "description", McpCardService.SUMMARY_DESCRIPTION));
+        return parameters;
+    }
+
     /**
      * Create a tool definition for OpenAI function calling
      */
     private Map<String, Object> createToolDefinition(String name, String description, Map<String, Object> parameters) {
-        Map<String, Object> function = new HashMap<>();
+        return createToolDefinition(name, description, parameters, new ArrayList<>(parameters.keySet()));
+    }
+
+    /**
+     * Create a tool definition for OpenAI function calling with an explicit list of required parameters
+     */
+    private Map<String, Object> createToolDefinition(String name, String description, Map<String, Object> parameters,
+                                                     List<String> required) {
+        Map<String, Object> function = new LinkedHashMap<>();
         function.put("name", name);
         function.put("description", description);
         
-        Map<String, Object> schema = new HashMap<>();
+        Map<String, Object> schema = new LinkedHashMap<>();
         schema.put("type", "object");
         schema.put("properties", parameters);
-        schema.put("required", new ArrayList<>(parameters.keySet()));
+        schema.put("required", required);
         
         function.put("parameters", schema);
         
-        Map<String, Object> tool = new HashMap<>();
+        Map<String, Object> tool = new LinkedHashMap<>();
         tool.put("type", "function");
         tool.put("function", function);
         
@@ -360,135 +599,253 @@ public class OpenAiService {
     }
 
     /**
-     * Call OpenAI API and handle function calling
+     * Map with the entries in the given order. Unlike {@code Map.of}, whose iteration order is
+     * randomized per JVM, the tool schema then serializes the same way on every instance.
      */
-    private String callOpenAiApi(Map<String, Object> request) {
-        try {
-            // Make the API call
-            Mono<String> responseMono = openAiWebClient
-                .post()
-                .uri("/chat/completions")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(String.class)
-                .timeout(Duration.ofSeconds(30));
-            
-            String responseBody = responseMono.block();
-            
-            // Parse response
-            JsonNode responseJson = objectMapper.readTree(responseBody);
-            JsonNode choices = responseJson.get("choices");
-            
-            if (choices == null || choices.isEmpty()) {
-                return "I apologize, but I didn't receive a proper response. Please try again.";
-            }
-            
-            JsonNode message = choices.get(0).get("message");
-            JsonNode toolCalls = message.get("tool_calls");
-            
-            // Handle function calls if present
-            if (toolCalls != null && !toolCalls.isEmpty()) {
-                return handleFunctionCallsWithFollowUp(toolCalls, request);
-            }
-            
-            // Return direct content if no function calls
-            JsonNode content = message.get("content");
-            return content != null ? content.asText() : "I'm here to help! How can I assist you with credit cards today?";
-            
-        } catch (Exception e) {
-            logger.error("Error calling OpenAI API: {}", e.getMessage(), e);
-            return "I apologize, but I'm having trouble processing your request right now. Please try again in a moment.";
+    private static Map<String, Object> orderedMap(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
         }
+        return map;
     }
 
     /**
-     * Handle function calls by executing them and making a follow-up call to OpenAI with the results
+     * Call OpenAI API and handle function calling
      */
-    private String handleFunctionCallsWithFollowUp(JsonNode toolCalls, Map<String, Object> originalRequest) {
-        try {
-            // Execute all tool calls and collect results
-            List<Map<String, Object>> toolResults = new ArrayList<>();
-            
-            for (JsonNode toolCall : toolCalls) {
-                JsonNode function = toolCall.get("function");
-                String functionName = function.get("name").asText();
-                String argumentsJson = function.get("arguments").asText();
-                String toolCallId = toolCall.get("id").asText();
+    private Mono<String> callOpenAiApi(Map<String, Object> request, ToolTurn turn) {
+        return completeTurn(request, turn)
+            .onErrorResume(e -> {
+                logger.error("Error calling OpenAI API: {}", e.getMessage(), e);
+                return Mono.just("I apologize, but I'm having trouble processing your request right now. Please try again in a moment.");
+            });
+    }
+
+    /**
+     * Request a completion; while the model answers with tool calls, execute them and request
+     * the next completion with their results, until it answers with content
+     */
+    private Mono<String> completeTurn(Map<String, Object> request, ToolTurn turn) {
+        boolean toolsAllowed = turn.mayCallTools();
+        return openAiCompletions.complete(USAGE_AGENT, turn.prepare(request))
+            .flatMap(responseJson -> {
+                // Parse response
+                JsonNode choices = responseJson.get("choices");
                 
-                logger.info("Executing function: {} with arguments: {}", functionName, argumentsJson);
+                if (choices == null || choices.isEmpty()) {
+                    return Mono.just("I apologize, but I didn't receive a proper response. Please try again.");
+                }
+                
+                JsonNode message = choices.get(0).get("message");
+                JsonNode toolCalls = message.get("tool_calls");
                 
-                try {
-                    // Parse arguments and execute function
-                    JsonNode arguments = objectMapper.readTree(argumentsJson);
-                    Object result = executeMcpFunction(functionName, arguments);
-                    
-                    // Create tool result message
-                    Map<String, Object> toolResult = new HashMap<>();
-                    toolResult.put("tool_call_id", toolCallId);
-                    toolResult.put("role", "tool");
-                    toolResult.put("content", objectMapper.writeValueAsString(result));
-                    
-                    toolResults.add(toolResult);
-                    
-                } catch (Exception e) {
-                    logger.error("Error executing function {}: {}", functionName, e.getMessage(), e);
-                    
-                    // Add error result
-                    Map<String, Object> errorResult = new HashMap<>();
-                    errorResult.put("tool_call_id", toolCallId);
-                    errorResult.put("role", "tool");
-                    errorResult.put("content", "{\"error\": \"Failed to execute " + functionName + "\"}");
-                    
-                    toolResults.add(errorResult);
+                // Handle function calls if present
+                if (toolsAllowed && toolCalls != null && !toolCalls.isEmpty()) {
+                    return handleFunctionCalls(toolCalls, request, turn);
                 }
+                
+                // Return direct content if no function calls
+                JsonNode content = message.get("content");
+                if (content != null && !content.isNull()) {
+                    return Mono.just(content.asText());
+                }
+                return Mono.just(turn.getRounds() > 0
+                        ? "I retrieved the information but had trouble processing it. Please try again."
+                        : "I'm here to help! How can I assist you with credit cards today?");
+            });
+    }
+
+    /**
+     * Handle function calls by executing them and continuing the turn with the results
+     */
+    private Mono<String> handleFunctionCalls(JsonNode toolCalls, Map<String, Object> request, ToolTurn turn) {
+        turn.startRound();
+        return executeToolCalls(toolCalls, turn)
+            .flatMap(toolResults -> {
+                // Add the assistant's tool call message to conversation
+                Map<String, Object> assistantMessage = new LinkedHashMap<>();
+                assistantMessage.put("role", "assistant");
+                assistantMessage.put("content", null);
+                assistantMessage.put("tool_calls", toolCalls);
+                
+                // Add tool results to conversation
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> messages = (List<Map<String, Object>>) request.get("messages");
+                messages.add(assistantMessage);
+                messages.addAll(toolResults);
+                
+                // Continue with the tool results
+                Map<String, Object> followUpRequest = new LinkedHashMap<>(request);
+                followUpRequest.put("messages", messages);
+                
+                return completeTurn(followUpRequest, turn);
+            });
+    }
+
+    /**
+     * Execute all tool calls of one assistant message against the conversation's catalog version.
+     * With {@code agent.parallel-execution-enabled} up to {@code agent.max-parallel-executions}
+     * calls run at the same time, otherwise one after another.
+     * @return Tool result messages in call order
+     */
+    private Mono<List<Map<String, Object>>> executeToolCalls(JsonNode toolCalls, ToolTurn turn) {
+        return Flux.fromIterable(toolCalls)
+            .flatMapSequential(toolCall -> {
+                JsonNode function = toolCall.get("function");
+                return executeToolCall(toolCall.get("id").asText(), function.get("name").asText(),
+                        function.get("arguments").asText(), turn);
+            }, toolCallConcurrency())
+            .collectList();
+    }
+
+    /**
+     * Number of tool calls of one assistant message that may run at the same time
+     */
+    private int toolCallConcurrency() {
+        return parallelToolCalls ? maxParallelToolCalls : 1;
+    }
+
+    /**
+     * Execute one tool call on the bounded elastic scheduler, since tools may block (catalog
+     * loads, demo data), pinned to the conversation's catalog version. Results of idempotent
+     * tools are shared within the turn.
+     * @return Tool result message, with an error content if the tool failed or exceeded
+     *         {@code agent.tool-execution-timeout}
+     */
+    private Mono<Map<String, Object>> executeToolCall(String toolCallId, String functionName, String argumentsJson,
+                                                      ToolTurn turn) {
+        return turn.invoke(functionName, argumentsJson, () -> Mono.fromCallable(() -> {
+                    try (CatalogPin pin = cardCatalogCache.pin(turn.catalog)) {
+                        return invokeTool(functionName, argumentsJson);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(toolExecutionTimeout))
+            .map(content -> {
+                // Create tool result message
+                Map<String, Object> toolResult = new LinkedHashMap<>();
+                toolResult.put("tool_call_id", toolCallId);
+                toolResult.put("role", "tool");
+                toolResult.put("content", content);
+                return toolResult;
+            })
+            .onErrorResume(TimeoutException.class, e -> {
+                logger.error("Function {} did not finish within {}", functionName, toolExecutionTimeout);
+                return Mono.just(toolError(toolCallId, "Timed out executing " + functionName));
+            })
+            .onErrorResume(e -> {
+                logger.error("Error executing function {}: {}", functionName, e.getMessage(), e);
+                return Mono.just(toolError(toolCallId, "Failed to execute " + functionName));
+            });
+    }
+
+    /**
+     * Execute one tool on the calling thread
+     * @return The tool's result as JSON
+     */
+    private String invokeTool(String functionName, String argumentsJson) throws JsonProcessingException {
+        logger.info("Executing function: {} with arguments: {}", functionName, argumentsJson);
+        
+        // Parse arguments and execute function
+        JsonNode arguments = objectMapper.readTree(argumentsJson);
+        Object result = executeMcpFunction(functionName, arguments);
+        return objectMapper.writeValueAsString(result);
+    }
+
+    private Map<String, Object> toolError(String toolCallId, String message) {
+        Map<String, Object> errorResult = new LinkedHashMap<>();
+        errorResult.put("tool_call_id", toolCallId);
+        errorResult.put("role", "tool");
+        errorResult.put("content", "{\"error\": \"" + message + "\"}");
+        return errorResult;
+    }
+
+    /**
+     * Stream one completion, and while it ends in tool calls, the next completion with their
+     * results
+     * @param answer Receives the streamed answer text
+     */
+    private Flux<ChatStreamEvent> streamCompletion(Map<String, Object> request, ToolTurn turn,
+                                                   String sessionId, StringBuilder answer) {
+        boolean toolsAllowed = turn.mayCallTools();
+        StreamedToolCalls toolCalls = new StreamedToolCalls(
+                (toolCallId, functionName, argumentsJson) -> executeToolCall(toolCallId, functionName, argumentsJson, turn),
+                toolCallConcurrency(), MUTATING_TOOLS);
+        
+        Flux<ChatStreamEvent> deltas = openAiCompletions.stream(USAGE_AGENT, turn.prepare(request))
+            .flatMapIterable(chunk -> onDelta(chunk, sessionId, answer, toolsAllowed ? toolCalls : null));
+        
+        return deltas.concatWith(Flux.defer(() -> {
+            if (!toolsAllowed || toolCalls.isEmpty()) {
+                return Flux.empty();
             }
+            turn.startRound();
+            // Starts the calls of tools that change data, and any left if the stream had no finish_reason
+            Flux<ChatStreamEvent> started = Flux.fromIterable(toolEvents(sessionId, toolCalls.complete()));
             
-            // Add the assistant's tool call message to conversation
-            Map<String, Object> assistantMessage = new HashMap<>();
-            assistantMessage.put("role", "assistant");
-            assistantMessage.put("content", null);
-            assistantMessage.put("tool_calls", toolCalls);
-            
-            // Add tool results to conversation
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> messages = (List<Map<String, Object>>) originalRequest.get("messages");
-            messages.add(assistantMessage);
-            messages.addAll(toolResults);
-            
-            // Make follow-up call to OpenAI with tool results
-            Map<String, Object> followUpRequest = new HashMap<>(originalRequest);
-            followUpRequest.put("messages", messages);
-            
-            // Make the follow-up API call
-            Mono<String> followUpMono = openAiWebClient
-                .post()
-                .uri("/chat/completions")
-                .bodyValue(followUpRequest)
-                .retrieve()
-                .bodyToMono(String.class)
-                .timeout(Duration.ofSeconds(30));
-            
-            String followUpResponse = followUpMono.block();
-            
-            // Parse follow-up response
-            JsonNode followUpJson = objectMapper.readTree(followUpResponse);
-            JsonNode followUpChoices = followUpJson.get("choices");
-            
-            if (followUpChoices != null && !followUpChoices.isEmpty()) {
-                JsonNode followUpMessage = followUpChoices.get(0).get("message");
-                JsonNode followUpContent = followUpMessage.get("content");
+            return started.concatWith(toolCalls.results().flatMapMany(toolResults -> {
+                // Add the assistant's tool call message and the tool results to the conversation
+                Map<String, Object> assistantMessage = new LinkedHashMap<>();
+                assistantMessage.put("role", "assistant");
+                assistantMessage.put("content", null);
+                assistantMessage.put("tool_calls", toolCalls.toMessages());
+                
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> messages = (List<Map<String, Object>>) request.get("messages");
+                messages.add(assistantMessage);
+                messages.addAll(toolResults);
                 
-                if (followUpContent != null) {
-                    return followUpContent.asText();
+                Map<String, Object> followUpRequest = new LinkedHashMap<>(request);
+                followUpRequest.put("messages", messages);
+                return streamCompletion(followUpRequest, turn, sessionId, answer);
+            }));
+        }))
+            // Started tool calls must not outlive the stream
+            .doOnCancel(toolCalls::cancel)
+            .doOnError(e -> toolCalls.cancel());
+    }
+
+    /**
+     * Turn one streamed chunk into events: a token for new content, a tool event for every tool
+     * call whose arguments became complete with it
+     */
+    private List<ChatStreamEvent> onDelta(JsonNode chunk, String sessionId, StringBuilder answer,
+                                          StreamedToolCalls toolCalls) {
+        List<ChatStreamEvent> events = new ArrayList<>(1);
+        JsonNode choices = chunk.get("choices");
+        if (choices == null || choices.isEmpty()) {
+            return events;
+        }
+        
+        JsonNode choice = choices.get(0);
+        JsonNode delta = choice.get("delta");
+        if (delta != null) {
+            JsonNode content = delta.get("content");
+            if (content != null && content.isTextual() && !content.asText().isEmpty()) {
+                answer.append(content.asText());
+                events.add(ChatStreamEvent.token(sessionId, content.asText()));
+            }
+            JsonNode fragments = delta.get("tool_calls");
+            if (fragments != null && toolCalls != null) {
+                for (JsonNode fragment : fragments) {
+                    events.addAll(toolEvents(sessionId, toolCalls.append(fragment)));
                 }
             }
-            
-            return "I retrieved the information but had trouble processing it. Please try again.";
-            
-        } catch (Exception e) {
-            logger.error("Error handling function calls: {}", e.getMessage(), e);
-            return "I encountered an error while processing your request. Please try again.";
         }
+        
+        JsonNode finishReason = choice.get("finish_reason");
+        if (finishReason != null && !finishReason.isNull() && toolCalls != null) {
+            events.addAll(toolEvents(sessionId, toolCalls.finish()));
+        }
+        return events;
+    }
+
+    private static List<ChatStreamEvent> toolEvents(String sessionId, List<String> toolNames) {
+        List<ChatStreamEvent> events = new ArrayList<>(toolNames.size());
+        for (String toolName : toolNames) {
+            events.add(ChatStreamEvent.tool(sessionId, toolName));
+        }
+        return events;
     }
 
     /**
@@ -497,14 +854,113 @@ public class OpenAiService {
     private Object executeMcpFunction(String functionName, JsonNode arguments) {
         switch (functionName) {
             case "getCards":
-                return mcpCardService.getCards();
+                return mcpCardService.getCards(
+                    optionalText(arguments, "fields"),
+                    optionalBoolean(arguments, "summary"),
+                    null
+                );
                 
             case "getCard":
                 Long id = arguments.get("id").asLong();
-                return mcpCardService.getCard(id);
+                return mcpCardService.getCard(
+                    id,
+                    optionalText(arguments, "fields"),
+                    optionalBoolean(arguments, "summary"),
+                    null
+                );
                 
             case "getBonuses":
-                return mcpCardService.getBonuses();
+                return mcpCardService.getBonuses(null);
+                
+            case "searchCards":
+                return mcpCardService.searchCards(
+                    optionalText(arguments, "cardSystem"),
+                    optionalText(arguments, "cardType"),
+                    optionalText(arguments, "paymentGrade"),
+                    optionalText(arguments, "withdrawGrade"),
+                    optionalText(arguments, "insuranceGrade"),
+                    optionalBoolean(arguments, "contactlessPayment"),
+                    optionalBoolean(arguments, "applePaySupported"),
+                    optionalBoolean(arguments, "googlePaySupported"),
+                    optionalBoolean(arguments, "freePaymentEuroZone"),
+                    optionalBoolean(arguments, "freePaymentWorldwide"),
+                    optionalBoolean(arguments, "freeWithdrawEuroZone"),
+                    optionalBoolean(arguments, "freeWithdrawWorldwide"),
+                    optionalBoolean(arguments, "travelInsurance"),
+                    optionalBoolean(arguments, "healthInsuranceAbroad"),
+                    optionalBoolean(arguments, "accidentInsuranceAbroad"),
+                    optionalInteger(arguments, "limit"),
+                    optionalText(arguments, "fields"),
+                    optionalBoolean(arguments, "summary"),
+                    null
+                );
+                
+            case "searchCardsText":
+                return mcpCardService.searchCardsText(
+                    arguments.get("query").asText(),
+                    optionalInteger(arguments, "limit"),
+                    null
+                );
+                
+            case "rankCards":
+                return mcpCardService.rankCards(
+                    arguments.get("sortBy").asText(),
+                    optionalBoolean(arguments, "descending"),
+                    optionalDecimal(arguments, "minAnnualFee"),
+                    optionalDecimal(arguments, "maxAnnualFee"),
+                    optionalDecimal(arguments, "minInterestRate"),
+                    optionalDecimal(arguments, "maxInterestRate"),
+                    optionalDecimal(arguments, "minBonusValue"),
+                    optionalDecimal(arguments, "maxBonusValue"),
+                    optionalDecimal(arguments, "minCustomerRating"),
+                    optionalDecimal(arguments, "maxCustomerRating"),
+                    optionalDecimal(arguments, "minFirstYearValue"),
+                    optionalInteger(arguments, "limit"),
+                    optionalInteger(arguments, "offset"),
+                    optionalText(arguments, "fields"),
+                    optionalBoolean(arguments, "summary"),
+                    null
+                );
+                
+            case "getCardStatistics":
+                return mcpCardService.getCardStatistics(
+                    optionalText(arguments, "cardSystem"),
+                    optionalText(arguments, "cardType"),
+                    optionalText(arguments, "paymentGrade"),
+                    optionalText(arguments, "withdrawGrade"),
+                    optionalText(arguments, "insuranceGrade"),
+                    optionalDecimal(arguments, "maxAnnualFee"),
+                    null
+                );
+                
+            case "recommendCards":
+                return mcpCardService.recommendCards(
+                    optionalText(arguments, "customerName"),
+                    optionalDecimal(arguments, "salary"),
+                    optionalDecimal(arguments, "monthlySpend"),
+                    optionalDecimal(arguments, "foreignSpendPercent"),
+                    optionalInteger(arguments, "tripsPerYear"),
+                    optionalInteger(arguments, "cashWithdrawalsPerMonth"),
+                    optionalDecimal(arguments, "revolvingBalance"),
+                    optionalBoolean(arguments, "mobilePayment"),
+                    optionalBoolean(arguments, "travelInsurance"),
+                    optionalText(arguments, "cardSystem"),
+                    optionalDecimal(arguments, "maxAnnualFee"),
+                    optionalInteger(arguments, "limit"),
+                    null
+                );
+                
+            case "compareCardCosts":
+                return mcpCardService.compareCardCosts(
+                    optionalDecimal(arguments, "monthlySpend"),
+                    optionalDecimal(arguments, "foreignSpendPerMonth"),
+                    optionalInteger(arguments, "cashWithdrawalsPerMonth"),
+                    optionalInteger(arguments, "foreignCashWithdrawalsPerMonth"),
+                    optionalDecimal(arguments, "carriedBalance"),
+                    optionalInteger(arguments, "years"),
+                    optionalInteger(arguments, "limit"),
+                    null
+                );
                 
             case "submitApplication":
                 return mcpCardService.submitApplication(
@@ -544,6 +1000,21 @@ public class OpenAiService {
         }
     }
 
+    private String optionalText(JsonNode arguments, String name) {
+        return arguments.hasNonNull(name) ? arguments.get(name).asText() : null;
+    }
+
+    private Boolean optionalBoolean(JsonNode arguments, String name) {
+        return arguments.hasNonNull(name) ? arguments.get(name).asBoolean() : null;
+    }
+
+    private Integer optionalInteger(JsonNode arguments, String name) {
+        return arguments.hasNonNull(name) ? arguments.get(name).asInt() : null;
+    }
+
+    private BigDecimal optionalDecimal(JsonNode arguments, String name) {
+        return arguments.hasNonNull(name) ? new BigDecimal(arguments.get(name).asText()) : null;
+    }
 
     /**
      * Get conversation history
@@ -565,4 +1036,53 @@ public class OpenAiService {
     public Set<String> getActiveSessions() {
         return conversations.keySet();
     }
-} 
\ No newline at end of file
+
+    /**
+     * State of the tool calls of one agent turn: the catalog version they run against, the number
+     * of tool rounds so far (at most {@code agent.max-iterations}, and none are started after
+     * {@code agent.max-processing-time}; after that the model has to answer) and the results of
+     * idempotent tools, see {@link ToolResultMemo}.
+     */
+    private final class ToolTurn {
+        private final CardCatalogSnapshot catalog;
+        private final long deadline;
+        private final ToolResultMemo memo = new ToolResultMemo(objectMapper, IDEMPOTENT_TOOLS, MUTATING_TOOLS);
+        private int rounds;
+
+        private ToolTurn(CardCatalogSnapshot catalog, long startTime) {
+            this.catalog = catalog;
+            this.deadline = startTime + maxProcessingTime.toMillis();
+        }
+
+        boolean mayCallTools() {
+            return rounds < maxToolRounds && System.currentTimeMillis() < deadline;
+        }
+
+        void startRound() {
+            rounds++;
+        }
+
+        int getRounds() {
+            return rounds;
+        }
+
+        /**
+         * The request for the next completion, which must not call tools once the limits are reached
+         */
+        Map<String, Object> prepare(Map<String, Object> request) {
+            Map<String, Object> prepared = new LinkedHashMap<>(request);
+            if (prepared.containsKey("tools") && !mayCallTools()) {
+                prepared.put("tool_choice", "none");
+            }
+            return prepared;
+        }
+
+        /**
+         * Run a tool, or share the result of an identical earlier call in this turn
+         * @param execution Runs the tool and returns its result as JSON
+         */
+        Mono<String> invoke(String functionName, String argumentsJson, Supplier<Mono<String>> execution) {
+            return memo.invoke(functionName, argumentsJson, execution);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prompt caching metrics from the {@code usage} block of OpenAI chat completions.
+ *
+ * OpenAI reuses the longest cached prefix of a prompt (from 1024 tokens on) and reports the
+ * reused part as {@code prompt_tokens_details.cached_tokens}. Per agent, prompt tokens are
+ * counted in {@code openai.prompt.tokens} with {@code cache=hit} for the cached and
+ * {@code cache=miss} for the other tokens, so hit / (hit + miss) is the cached-token ratio;
+ * {@code openai.prompt.cache.ratio} records that ratio per request.
+ */
+@Service
+public class OpenAiUsageMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiUsageMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AgentMeters> metersByAgent = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OpenAiUsageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record the usage of one completion
+     * @param agent Agent that sent the request, used as tag
+     * @param usage The response's usage block; ignored if absent, as in stream chunks before the last
+     */
+    public void record(String agent, JsonNode usage) {
+        if (usage == null || !usage.has("prompt_tokens")) {
+            return;
+        }
+        long promptTokens = usage.get("prompt_tokens").asLong();
+        long cachedTokens = usage.path("prompt_tokens_details").path("cached_tokens").asLong(0);
+        if (promptTokens <= 0) {
+            return;
+        }
+
+        AgentMeters meters = metersByAgent.computeIfAbsent(agent, this::register);
+        meters.cached.increment(cachedTokens);
+        meters.uncached.increment(promptTokens - cachedTokens);
+        meters.ratio.record((double) cachedTokens / promptTokens);
+        logger.debug("OpenAI prompt for {}: {} tokens, {} cached", agent, promptTokens, cachedTokens);
+    }
+
+    private AgentMeters register(String agent) {
+        return new AgentMeters(
+                Counter.builder("openai.prompt.tokens").tag("agent", agent).tag("cache", "hit")
+                        .description("Prompt tokens served from OpenAI's prompt cache").register(meterRegistry),
+                Counter.builder("openai.prompt.tokens").tag("agent", agent).tag("cache", "miss")
+                        .description("Prompt tokens OpenAI had to process").register(meterRegistry),
+                DistributionSummary.builder("openai.prompt.cache.ratio").tag("agent", agent)
+                        .description("Share of the prompt tokens of a request served from the prompt cache")
+                        .register(meterRegistry));
+    }
+
+    private static final class AgentMeters {
+        private final Counter cached;
+        private final Counter uncached;
+        private final DistributionSummary ratio;
+
+        private AgentMeters(Counter cached, Counter uncached, DistributionSummary ratio) {
+            this.cached = cached;
+            this.uncached = uncached;
+            this.ratio = ratio;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of parsing a Check24 offers payload incrementally: the cards in payload order plus
+ * the content hash of every offer, so the next parse can reuse the {@link Card} of each
+ * offer whose JSON did not change.
+ */
+public final class ParsedOffers {
+
+    private static final ParsedOffers EMPTY = new ParsedOffers(Collections.emptyList(), Collections.emptyMap(), 0);
+
+    private final List<Card> cards;
+    private final Map<String, Card> cardsByHash;
+    private final int mappedCount;
+
+    ParsedOffers(List<Card> cards, Map<String, Card> cardsByHash, int mappedCount) {
+        this.cards = cards;
+        this.cardsByHash = cardsByHash;
+        this.mappedCount = mappedCount;
+    }
+
+    /**
+     * Result without any offers, used before the first parse
+     */
+    public static ParsedOffers empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Cards in payload order; unchanged offers yield the same instances as the previous parse
+     */
+    public List<Card> getCards() {
+        return cards;
+    }
+
+    /**
+     * Number of offers that were new or changed and had to be mapped
+     */
+    public int getMappedCount() {
+        return mappedCount;
+    }
+
+    Card findByHash(String hash) {
+        return cardsByHash.get(hash);
+    }
+}
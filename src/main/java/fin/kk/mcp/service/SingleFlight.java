@@ -0,0 +1,79 @@
+package fin.kk.mcp.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution.
+ *
+ * The first caller for a key runs the supplier; callers arriving while it is still running
+ * wait for and share its result (or exception) instead of starting their own call. Once the
+ * call completes the key is released, so later callers trigger a new execution. Calls are not
+ * reentrant: a supplier must not call {@link #execute} for its own key.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run the supplier for the key, or join the call already in flight for it
+     * @param key Identifies the shared resource
+     * @param supplier Work to run if no call for the key is in flight
+     * @return Result of the (possibly shared) call
+     */
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = supplier.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Number of calls that actually ran their supplier
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * Number of calls that joined a call already in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Card source holding the static in-memory demo cards.
+ *
+ * Always available; the federated catalog merges these cards with the Check24 catalog, and
+ * {@code catalog.source=static} serves them alone.
+ */
+@Service
+public class StaticCardSource implements CardSource {
+
+    // Static in-memory data for demonstration
+    private static final List<Card> CARDS = Arrays.asList(
+            new Card(1L, "Chase Bank", "Chase Sapphire Preferred",
+                    new BigDecimal("95.00"), "60,000 points after spending $4,000 in first 3 months",
+                    new BigDecimal("15.99")),
+            new Card(2L, "American Express", "Platinum Card",
+                    new BigDecimal("695.00"), "100,000 points after spending $6,000 in first 6 months",
+                    new BigDecimal("19.99")),
+            new Card(3L, "Capital One", "Venture X",
+                    new BigDecimal("395.00"), "75,000 miles after spending $4,000 in first 3 months",
+                    new BigDecimal("16.99"))
+    );
+
+    @Override
+    public String getName() {
+        return "static";
+    }
+
+    /**
+     * The static cards; always the same list and card instances, which callers may update in place
+     */
+    @Override
+    public List<Card> loadCards() {
+        return CARDS;
+    }
+}
@@ -0,0 +1,164 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tool calls of one streamed completion. OpenAI streams the calls one after another, each as
+ * a fragment with index, id and name followed by fragments of its arguments, so a call is
+ * complete once a call with a higher index starts or the completion finishes. Complete calls
+ * are started right away while the rest of the completion is still streaming, each once the
+ * call {@code concurrency} places before it has finished.
+ *
+ * Calls of deferred tools (those that change data) only start once the completion has finished
+ * without error, and {@link #cancel()} stops all calls still running or waiting, so nothing is
+ * left running when the stream is cancelled or fails.
+ */
+final class StreamedToolCalls {
+
+    /**
+     * Executes one tool call
+     */
+    @FunctionalInterface
+    interface Executor {
+        /**
+         * @return Tool result message; must not fail
+         */
+        Mono<Map<String, Object>> execute(String toolCallId, String functionName, String argumentsJson);
+    }
+
+    private final Executor executor;
+    private final int concurrency;
+    private final Set<String> deferredTools;
+    private final List<StreamedToolCall> calls = new ArrayList<>();
+    private final List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+    private final List<Disposable> executions = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * @param concurrency Number of calls that may run at the same time
+     * @param deferredTools Tools only started by {@link #complete()}
+     */
+    StreamedToolCalls(Executor executor, int concurrency, Set<String> deferredTools) {
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+        this.deferredTools = deferredTools;
+    }
+
+    /**
+     * Add a tool_calls fragment
+     * @return Names of the tools started because their calls are now complete
+     */
+    synchronized List<String> append(JsonNode fragment) {
+        int index = fragment.path("index").asInt(Math.max(0, calls.size() - 1));
+        while (calls.size() <= index) {
+            calls.add(new StreamedToolCall());
+        }
+        StreamedToolCall call = calls.get(index);
+        if (fragment.hasNonNull("id")) {
+            call.id = fragment.get("id").asText();
+        }
+        JsonNode function = fragment.get("function");
+        if (function != null) {
+            if (function.hasNonNull("name")) {
+                call.name = function.get("name").asText();
+            }
+            if (function.hasNonNull("arguments")) {
+                call.arguments.append(function.get("arguments").asText());
+            }
+        }
+        return startUpTo(index, false);
+    }
+
+    /**
+     * Start the calls not started yet once the model has sent its finish_reason, except those
+     * of deferred tools
+     */
+    synchronized List<String> finish() {
+        return startUpTo(calls.size(), false);
+    }
+
+    /**
+     * Start all calls not started yet, once the completion has finished without error
+     */
+    synchronized List<String> complete() {
+        return startUpTo(calls.size(), true);
+    }
+
+    /**
+     * Stop all running calls and start no further ones
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        executions.forEach(Disposable::dispose);
+    }
+
+    synchronized boolean isEmpty() {
+        return calls.isEmpty();
+    }
+
+    /**
+     * Tool result messages in call order, once all calls are done; call after {@link #complete()}
+     */
+    synchronized Mono<List<Map<String, Object>>> results() {
+        return Flux.fromIterable(new ArrayList<>(results)).concatMap(Mono::fromFuture).collectList();
+    }
+
+    /**
+     * The calls in the format of an assistant message's tool_calls
+     */
+    synchronized List<Map<String, Object>> toMessages() {
+        List<Map<String, Object>> messages = new ArrayList<>(calls.size());
+        for (StreamedToolCall call : calls) {
+            Map<String, Object> function = new LinkedHashMap<>();
+            function.put("name", call.name);
+            function.put("arguments", call.arguments.toString());
+            Map<String, Object> toolCall = new LinkedHashMap<>();
+            toolCall.put("id", call.id);
+            toolCall.put("type", "function");
+            toolCall.put("function", function);
+            messages.add(toolCall);
+        }
+        return messages;
+    }
+
+    private List<String> startUpTo(int end, boolean includeDeferred) {
+        List<String> started = new ArrayList<>();
+        while (!cancelled && results.size() < end) {
+            StreamedToolCall call = calls.get(results.size());
+            if (!includeDeferred && deferredTools.contains(call.name)) {
+                // Later calls wait too, so the results stay in call order
+                break;
+            }
+            Mono<Map<String, Object>> execution = Mono.defer(
+                    () -> executor.execute(call.id, call.name, call.arguments.toString()));
+            int previous = results.size() - concurrency;
+            if (previous >= 0) {
+                execution = Mono.fromFuture(results.get(previous)).then(execution);
+            }
+            CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+            executions.add(execution.subscribe(result::complete, result::completeExceptionally));
+            results.add(result);
+            started.add(call.name);
+        }
+        return started;
+    }
+
+    /**
+     * A tool call assembled from stream fragments
+     */
+    private static final class StreamedToolCall {
+        private String id;
+        private String name;
+        private final StringBuilder arguments = new StringBuilder();
+    }
+}
@@ -0,0 +1,118 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Results of idempotent tool calls within one agent turn, by tool and canonical arguments, so
+ * repeated calls are answered without running the tool again. A call of a mutating tool
+ * forgets all results, since they may depend on the data it changes.
+ */
+final class ToolResultMemo {
+
+    private static final Logger logger = LoggerFactory.getLogger(ToolResultMemo.class);
+
+    private final ObjectMapper objectMapper;
+    private final Set<String> idempotentTools;
+    private final Set<String> mutatingTools;
+    private final Map<String, CompletableFuture<String>> results = new ConcurrentHashMap<>();
+
+    /**
+     * @param idempotentTools Tools whose result only depends on their arguments
+     * @param mutatingTools Tools that change data read by the idempotent tools
+     */
+    ToolResultMemo(ObjectMapper objectMapper, Set<String> idempotentTools, Set<String> mutatingTools) {
+        this.objectMapper = objectMapper;
+        this.idempotentTools = idempotentTools;
+        this.mutatingTools = mutatingTools;
+    }
+
+    /**
+     * Run a tool, or share the result of an identical earlier call. Failed or cancelled calls
+     * are not remembered.
+     * @param execution Runs the tool and returns its result as JSON
+     */
+    Mono<String> invoke(String functionName, String argumentsJson, Supplier<Mono<String>> execution) {
+        if (mutatingTools.contains(functionName)) {
+            results.clear();
+        }
+        String key = key(functionName, argumentsJson);
+        if (key == null) {
+            return execution.get();
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> earlier = results.putIfAbsent(key, result);
+        if (earlier != null) {
+            logger.info("Reusing result of {} with arguments: {}", functionName, argumentsJson);
+            return Mono.fromFuture(earlier);
+        }
+        return execution.get()
+            .doOnNext(result::complete)
+            .doOnError(e -> {
+                results.remove(key, result);
+                result.completeExceptionally(e);
+            })
+            .doOnCancel(() -> {
+                results.remove(key, result);
+                result.cancel(false);
+            });
+    }
+
+    /**
+     * Key of a call: the tool name with its arguments with sorted keys and without null values,
+     * so equivalent calls get the same key
+     * @return The key, or null if the call's result must not be shared: the tool is not
+     *         idempotent or its arguments are invalid, which the tool reports itself
+     */
+    String key(String functionName, String argumentsJson) {
+        if (!idempotentTools.contains(functionName)) {
+            return null;
+        }
+        try {
+            JsonNode arguments = argumentsJson == null || argumentsJson.isBlank()
+                    ? objectMapper.createObjectNode()
+                    : objectMapper.readTree(argumentsJson);
+            return functionName + objectMapper.writeValueAsString(canonical(arguments));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private JsonNode canonical(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode sorted = objectMapper.createObjectNode();
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            for (String name : names) {
+                JsonNode value = node.get(name);
+                if (!value.isNull()) {
+                    sorted.set(name, canonical(value));
+                }
+            }
+            return sorted;
+        }
+        if (node.isArray()) {
+            ArrayNode elements = objectMapper.createArrayNode();
+            node.forEach(element -> elements.add(canonical(element)));
+            return elements;
+        }
+        return node;
+    }
+}
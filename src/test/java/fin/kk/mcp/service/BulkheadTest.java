@@ -0,0 +1,83 @@
+package fin.kk.mcp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+	private Bulkhead bulkhead;
+
+	@AfterEach
+	void shutdown() {
+		if (bulkhead != null) {
+			bulkhead.shutdown();
+		}
+	}
+
+	@Test
+	void returnsTheResultOfTheCall() throws Exception {
+		bulkhead = new Bulkhead("check24", 2, Duration.ofSeconds(5));
+
+		assertEquals("cards", bulkhead.execute(() -> "cards"));
+	}
+
+	@Test
+	void rethrowsTheCallsException() {
+		bulkhead = new Bulkhead("check24", 2, Duration.ofSeconds(5));
+
+		assertThrows(IOException.class, () -> bulkhead.execute(() -> {
+			throw new IOException("upstream down");
+		}));
+	}
+
+	@Test
+	void refusesCallsBeyondTheLimit() throws Exception {
+		bulkhead = new Bulkhead("check24", 1, Duration.ofSeconds(5));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> running = caller.submit(() -> bulkhead.execute(() -> {
+				started.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				return "cards";
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			assertThrows(CallNotPermittedException.class, () -> bulkhead.execute(() -> "cards"));
+			release.countDown();
+			assertEquals("cards", running.get(5, TimeUnit.SECONDS));
+		} finally {
+			caller.shutdownNow();
+		}
+	}
+
+	@Test
+	void interruptsCallsThatTimeOut() throws Exception {
+		bulkhead = new Bulkhead("check24", 1, Duration.ofMillis(50));
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		assertThrows(TimeoutException.class, () -> bulkhead.execute(() -> {
+			try {
+				Thread.sleep(5_000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return "cards";
+		}));
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+}
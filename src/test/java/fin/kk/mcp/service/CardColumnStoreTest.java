@@ -0,0 +1,174 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardColumnStoreTest {
+
+	// Annual fee and signup bonus by ordinal; ordinal 2 has neither
+	private static final List<Card> CARDS = List.of(
+			card(0, "19.99", "50"),
+			card(1, "0", null),
+			card(2, null, null),
+			card(3, "99", "200"),
+			card(4, "19.99", null),
+			card(5, "45.50", "30"));
+
+	@Test
+	void filterKeepsValuesWithinInclusiveBounds() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+		long[] selection = allCards(CARDS);
+
+		store.filter(selection, CardRangeIndex.ANNUAL_FEE, new BigDecimal("19.99"), new BigDecimal("45.50"));
+
+		assertArrayEquals(new long[] {0b110001}, selection);
+	}
+
+	@Test
+	void filterWithOneBoundDropsCardsWithoutValue() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+		long[] selection = allCards(CARDS);
+
+		store.filter(selection, CardRangeIndex.ANNUAL_FEE, null, new BigDecimal("20"));
+
+		assertArrayEquals(new long[] {0b010011}, selection);
+	}
+
+	@Test
+	void filterWithoutBoundsKeepsTheSelection() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+		long[] selection = allCards(CARDS);
+
+		store.filter(selection, CardRangeIndex.ANNUAL_FEE, null, null);
+
+		assertArrayEquals(allCards(CARDS), selection);
+	}
+
+	@Test
+	void filterMatchesTheRangeIndexAcrossWordBoundaries() {
+		List<Card> cards = new ArrayList<>();
+		for (int ordinal = 0; ordinal < 150; ordinal++) {
+			cards.add(card(ordinal, ordinal % 7 == 0 ? null : String.valueOf(ordinal % 40), null));
+		}
+		CardColumnStore store = CardColumnStore.build(cards);
+		CardRangeIndex index = CardRangeIndex.build(cards);
+		long[] filtered = allCards(cards);
+		long[] ranged = allCards(cards);
+
+		store.filter(filtered, CardRangeIndex.ANNUAL_FEE, new BigDecimal("10"), new BigDecimal("25"));
+		index.retainRange(ranged, CardRangeIndex.ANNUAL_FEE, new BigDecimal("10"), new BigDecimal("25"));
+
+		assertArrayEquals(ranged, filtered);
+	}
+
+	@Test
+	void aggregateSummarizesSelectedCardsWithValue() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+
+		CardColumnStore.Summary summary = store.aggregate(allCards(CARDS), CardRangeIndex.ANNUAL_FEE);
+
+		assertEquals(5, summary.getCount());
+		assertEquals(new BigDecimal("0.00"), summary.getMin());
+		assertEquals(new BigDecimal("99.00"), summary.getMax());
+		assertEquals(new BigDecimal("184.48"), summary.getSum());
+		assertEquals(new BigDecimal("36.8960"), summary.getAverage());
+	}
+
+	@Test
+	void aggregateOverNoValuesIsEmpty() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+		long[] selection = {1L << 2};
+
+		CardColumnStore.Summary summary = store.aggregate(selection, CardRangeIndex.ANNUAL_FEE);
+
+		assertEquals(0, summary.getCount());
+		assertNull(summary.getMin());
+		assertNull(summary.getMax());
+		assertNull(summary.getSum());
+		assertNull(summary.getAverage());
+	}
+
+	@Test
+	void firstYearValueIsBonusMinusFee() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+
+		int[] best = store.topK(allCards(CARDS), CardColumnStore.FIRST_YEAR_VALUE, 6, true);
+
+		// 101, 30.01, 0, -15.50, -19.99, then the card with neither value
+		assertArrayEquals(new int[] {3, 0, 1, 5, 4, 2}, best);
+	}
+
+	@Test
+	void topKOrdersByValueWithOrdinalTieBreak() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+
+		assertArrayEquals(new int[] {1, 0, 4}, store.topK(allCards(CARDS), CardRangeIndex.ANNUAL_FEE, 3, false));
+		assertArrayEquals(new int[] {3, 5, 0}, store.topK(allCards(CARDS), CardRangeIndex.ANNUAL_FEE, 3, true));
+	}
+
+	@Test
+	void topKFillsWithCardsWithoutValue() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+
+		int[] ordinals = store.topK(allCards(CARDS), CardRangeIndex.BONUS_VALUE, 10, false);
+
+		assertArrayEquals(new int[] {5, 0, 3, 1, 2, 4}, ordinals);
+	}
+
+	@Test
+	void topKMatchesCollectSorted() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+		long[] selection = allCards(CARDS);
+
+		int[] ordinals = store.topK(selection, CardRangeIndex.ANNUAL_FEE, 4, false);
+		List<Card> sorted = index.collectSorted(selection, CardRangeIndex.ANNUAL_FEE, false, 0, 4, CARDS);
+
+		assertEquals(sorted.stream().map(Card::getId).toList(),
+				Arrays.stream(ordinals).mapToObj(ordinal -> CARDS.get(ordinal).getId()).toList());
+	}
+
+	@Test
+	void topKOfAnEmptySelectionIsEmpty() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+
+		assertArrayEquals(new int[0], store.topK(new long[1], CardRangeIndex.ANNUAL_FEE, 3, false));
+		assertArrayEquals(new int[0], store.topK(allCards(CARDS), CardRangeIndex.ANNUAL_FEE, 0, false));
+	}
+
+	@Test
+	void onlyKnownColumnsCanBeSelected() {
+		CardColumnStore store = CardColumnStore.build(CARDS);
+
+		assertEquals(6, CardColumnStore.attributes().size());
+		assertTrue(CardColumnStore.isAttribute(CardColumnStore.CUSTOMER_FEEDBACK_COUNT));
+		assertFalse(CardColumnStore.isAttribute("bankName"));
+		assertThrows(IllegalArgumentException.class, () -> store.aggregate(allCards(CARDS), "bankName"));
+		assertThrows(IllegalArgumentException.class,
+				() -> store.filter(allCards(CARDS), "bankName", BigDecimal.ONE, null));
+	}
+
+	private static long[] allCards(List<Card> cards) {
+		return CardFacetIndex.build(cards).allCards();
+	}
+
+	private static Card card(long id, String annualFee, String bonusValue) {
+		Card card = new Card();
+		card.setId(id);
+		card.setAnnualFee(annualFee != null ? new BigDecimal(annualFee) : null);
+		card.setBonusValue(bonusValue != null ? new BigDecimal(bonusValue) : null);
+		return card;
+	}
+}
@@ -0,0 +1,203 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.dto.CardCost;
+import fin.kk.mcp.dto.CardUsageProfile;
+import fin.kk.mcp.model.Card;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the dot product over the feature vectors against costing every card directly with
+ * BigDecimal arithmetic.
+ */
+class CardCostServiceTest {
+
+	private static final BigDecimal FOREIGN_FEE_RATE = new BigDecimal("0.0175");
+	private static final BigDecimal WITHDRAWAL_FEE = new BigDecimal("5.00");
+	private static final BigDecimal TWELVE = BigDecimal.valueOf(12);
+	// Costs are computed in float and rounded to cents
+	private static final double TOLERANCE = 0.011;
+
+	private static final List<Card> CARDS = List.of(
+			card(1, "CREDIT", "0", "18.49", "50", true, false, true, false),
+			card(2, "CREDIT", "39", "14.90", "100", true, true, true, true),
+			card(3, "DEBIT", "0", null, null, true, false, false, false),
+			card(4, "CREDIT", "99.90", "19.95", "0", true, true, true, true),
+			card(5, "CHARGE", "29", null, "25", false, false, true, false),
+			card(6, "CREDIT", null, "12.35", null, false, false, false, false),
+			card(7, "PREPAID", "12", null, "10", true, true, false, true));
+
+	private final CardCostService service = new CardCostService(null,
+			FOREIGN_FEE_RATE.floatValue(), WITHDRAWAL_FEE.floatValue(), 4096);
+
+	@Test
+	void costsMatchPerCardArithmetic() {
+		CardUsageProfile profile = profile("1500", "400", 4, 2, null, 2);
+
+		assertMatchesReference(profile, service.compare(CardCatalogSnapshot.of(CARDS), profile));
+	}
+
+	@Test
+	void costsWithCarriedBalanceMatchPerCardArithmetic() {
+		CardUsageProfile profile = profile("800", "0", 1, 0, "2500", 1);
+
+		List<CardCost> costs = service.compare(CardCatalogSnapshot.of(CARDS), profile);
+
+		assertMatchesReference(profile, costs);
+		assertEquals(List.of(2L, 1L, 6L, 4L), costs.stream().map(CardCost::getId).toList());
+	}
+
+	@Test
+	void spendBelowForeignSpendHasNoEuroZoneFees() {
+		CardUsageProfile profile = profile("100", "300", 0, 3, null, null);
+
+		assertMatchesReference(profile, service.compare(CardCatalogSnapshot.of(CARDS), profile));
+	}
+
+	@Test
+	void parallelPathGivesTheSameCosts() {
+		CardCostService parallel = new CardCostService(null,
+				FOREIGN_FEE_RATE.floatValue(), WITHDRAWAL_FEE.floatValue(), 1);
+		CardUsageProfile profile = profile("1500", "400", 4, 2, "1000", 3);
+		CardCatalogSnapshot snapshot = CardCatalogSnapshot.of(CARDS);
+
+		List<CardCost> costs = parallel.compare(snapshot, profile);
+
+		assertMatchesReference(profile, costs);
+		assertEquals(service.compare(snapshot, profile).stream().map(CardCost::getId).toList(),
+				costs.stream().map(CardCost::getId).toList());
+	}
+
+	@Test
+	void limitKeepsTheCheapestCards() {
+		CardUsageProfile profile = profile("1500", "400", 4, 2, null, 2);
+		profile.setLimit(3);
+
+		List<CardCost> costs = service.compare(CardCatalogSnapshot.of(CARDS), profile);
+
+		assertEquals(3, costs.size());
+		assertMatchesReference(profile, costs);
+	}
+
+	@Test
+	void negativeUsageIsRejected() {
+		CardCatalogSnapshot snapshot = CardCatalogSnapshot.of(CARDS);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> service.compare(snapshot, profile("-1", null, null, null, null, null)));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.compare(snapshot, profile(null, null, -1, null, null, null)));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.compare(snapshot, profile(null, null, null, null, null, 0)));
+	}
+
+	/**
+	 * The costs are the cheapest reference costs in the same order, with every part of the
+	 * breakdown equal to the cent
+	 */
+	private static void assertMatchesReference(CardUsageProfile profile, List<CardCost> costs) {
+		List<CardCost> expected = CARDS.stream()
+				.filter(card -> profile.getCarriedBalance() == null || profile.getCarriedBalance().signum() == 0
+						|| "CREDIT".equals(card.getCardType()))
+				.map(card -> referenceCost(card, profile))
+				.sorted(Comparator.comparingDouble(CardCost::getTotalCost))
+				.toList();
+		int limit = profile.getLimit() != null ? profile.getLimit() : 10;
+		assertEquals(expected.subList(0, Math.min(limit, expected.size())).stream().map(CardCost::getId).toList(),
+				costs.stream().map(CardCost::getId).toList());
+
+		Map<Long, CardCost> byId = expected.stream().collect(Collectors.toMap(CardCost::getId, Function.identity()));
+		for (CardCost cost : costs) {
+			CardCost reference = byId.get(cost.getId());
+			assertEquals(reference.getAnnualFee(), cost.getAnnualFee(), TOLERANCE);
+			assertEquals(reference.getInterest(), cost.getInterest(), TOLERANCE);
+			assertEquals(reference.getPaymentFees(), cost.getPaymentFees(), TOLERANCE);
+			assertEquals(reference.getWithdrawalFees(), cost.getWithdrawalFees(), TOLERANCE);
+			assertEquals(reference.getBonusCredit(), cost.getBonusCredit(), TOLERANCE);
+			assertEquals(reference.getTotalCost(), cost.getTotalCost(), TOLERANCE);
+		}
+	}
+
+	/**
+	 * Yearly cost of one card computed field by field, as described on {@link CardCostService}
+	 */
+	private static CardCost referenceCost(Card card, CardUsageProfile profile) {
+		BigDecimal monthlySpend = orZero(profile.getMonthlySpend());
+		BigDecimal foreignSpend = orZero(profile.getForeignSpendPerMonth());
+		BigDecimal euroZoneSpend = monthlySpend.subtract(foreignSpend).max(BigDecimal.ZERO);
+		int withdrawals = profile.getCashWithdrawalsPerMonth() != null ? profile.getCashWithdrawalsPerMonth() : 0;
+		int foreignWithdrawals = profile.getForeignCashWithdrawalsPerMonth() != null ? profile.getForeignCashWithdrawalsPerMonth() : 0;
+		int years = profile.getYears() != null ? profile.getYears() : 1;
+
+		BigDecimal annualFee = orZero(card.getAnnualFee());
+		BigDecimal interest = orZero(profile.getCarriedBalance()).multiply(orZero(card.getInterestRate()))
+				.divide(BigDecimal.valueOf(100));
+		BigDecimal paymentFees = BigDecimal.ZERO;
+		if (!card.isFreePaymentEuroZone()) {
+			paymentFees = paymentFees.add(euroZoneSpend.multiply(TWELVE).multiply(FOREIGN_FEE_RATE));
+		}
+		if (!card.isFreePaymentWorldwide()) {
+			paymentFees = paymentFees.add(foreignSpend.multiply(TWELVE).multiply(FOREIGN_FEE_RATE));
+		}
+		BigDecimal withdrawalFees = BigDecimal.ZERO;
+		if (!card.isFreeWithdrawEuroZone()) {
+			withdrawalFees = withdrawalFees.add(WITHDRAWAL_FEE.multiply(BigDecimal.valueOf(withdrawals * 12L)));
+		}
+		if (!card.isFreeWithdrawWorldwide()) {
+			withdrawalFees = withdrawalFees.add(WITHDRAWAL_FEE.multiply(BigDecimal.valueOf(foreignWithdrawals * 12L)));
+		}
+		BigDecimal bonusCredit = orZero(card.getBonusValue()).divide(BigDecimal.valueOf(years), 10, RoundingMode.HALF_UP);
+		BigDecimal total = annualFee.add(interest).add(paymentFees).add(withdrawalFees).subtract(bonusCredit);
+
+		return new CardCost(card.getId(), card.getBankName(), card.getCardName(), cents(annualFee), cents(interest),
+				cents(paymentFees), cents(withdrawalFees), cents(bonusCredit), cents(total));
+	}
+
+	private static double cents(BigDecimal value) {
+		return value.setScale(2, RoundingMode.HALF_UP).doubleValue();
+	}
+
+	private static BigDecimal orZero(BigDecimal value) {
+		return value != null ? value : BigDecimal.ZERO;
+	}
+
+	private static CardUsageProfile profile(String monthlySpend, String foreignSpend, Integer withdrawals,
+											Integer foreignWithdrawals, String carriedBalance, Integer years) {
+		CardUsageProfile profile = new CardUsageProfile();
+		profile.setMonthlySpend(monthlySpend != null ? new BigDecimal(monthlySpend) : null);
+		profile.setForeignSpendPerMonth(foreignSpend != null ? new BigDecimal(foreignSpend) : null);
+		profile.setCashWithdrawalsPerMonth(withdrawals);
+		profile.setForeignCashWithdrawalsPerMonth(foreignWithdrawals);
+		profile.setCarriedBalance(carriedBalance != null ? new BigDecimal(carriedBalance) : null);
+		profile.setYears(years);
+		return profile;
+	}
+
+	private static Card card(long id, String cardType, String annualFee, String interestRate, String bonusValue,
+							 boolean freePaymentEuroZone, boolean freePaymentWorldwide,
+							 boolean freeWithdrawEuroZone, boolean freeWithdrawWorldwide) {
+		Card card = new Card();
+		card.setId(id);
+		card.setBankName("Bank " + id);
+		card.setCardName("Card " + id);
+		card.setCardType(cardType);
+		card.setAnnualFee(annualFee != null ? new BigDecimal(annualFee) : null);
+		card.setInterestRate(interestRate != null ? new BigDecimal(interestRate) : null);
+		card.setBonusValue(bonusValue != null ? new BigDecimal(bonusValue) : null);
+		card.setFreePaymentEuroZone(freePaymentEuroZone);
+		card.setFreePaymentWorldwide(freePaymentWorldwide);
+		card.setFreeWithdrawEuroZone(freeWithdrawEuroZone);
+		card.setFreeWithdrawWorldwide(freeWithdrawWorldwide);
+		return card;
+	}
+}
@@ -0,0 +1,165 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardFacetIndexTest {
+
+	// More than one 64-bit word, so selections span a word boundary
+	private static final int CARDS = 70;
+
+	@Test
+	void allCardsSelectsEveryOrdinalOnce() {
+		CardFacetIndex index = CardFacetIndex.build(cards());
+		long[] selection = index.allCards();
+
+		assertEquals(2, selection.length);
+		assertEquals(CARDS, CardFacetIndex.count(selection));
+		assertEquals(CARDS, index.size());
+	}
+
+	@Test
+	void allCardsReturnsAFreshCopy() {
+		CardFacetIndex index = CardFacetIndex.build(cards());
+		index.retain(index.allCards(), CardFacetIndex.CARD_SYSTEM, "VISA");
+
+		assertEquals(CARDS, CardFacetIndex.count(index.allCards()));
+	}
+
+	@Test
+	void retainMatchesValuesIgnoringCaseAndWhitespace() {
+		List<Card> cards = cards();
+		CardFacetIndex index = CardFacetIndex.build(cards);
+		long[] selection = index.allCards();
+
+		index.retain(selection, CardFacetIndex.CARD_SYSTEM, " visa ");
+
+		List<Card> visa = index.collect(selection, cards, Integer.MAX_VALUE);
+		assertEquals(CARDS / 2, visa.size());
+		assertTrue(visa.stream().allMatch(card -> "Visa".equals(card.getCardSystem())));
+	}
+
+	@Test
+	void retainUnknownValueOrFacetSelectsNothing() {
+		CardFacetIndex index = CardFacetIndex.build(cards());
+
+		long[] unknownValue = index.allCards();
+		index.retain(unknownValue, CardFacetIndex.CARD_SYSTEM, "Amex");
+		assertEquals(0, CardFacetIndex.count(unknownValue));
+
+		long[] unknownFacet = index.allCards();
+		index.retain(unknownFacet, "bankName", "Visa");
+		assertEquals(0, CardFacetIndex.count(unknownFacet));
+
+		long[] nullValue = index.allCards();
+		index.retain(nullValue, CardFacetIndex.CARD_SYSTEM, null);
+		assertEquals(0, CardFacetIndex.count(nullValue));
+	}
+
+	@Test
+	void retainFlagSelectsCardsWithAndWithoutTheFeature() {
+		List<Card> cards = cards();
+		CardFacetIndex index = CardFacetIndex.build(cards);
+
+		long[] withApplePay = index.allCards();
+		index.retainFlag(withApplePay, CardFacetIndex.APPLE_PAY, true);
+		long[] withoutApplePay = index.allCards();
+		index.retainFlag(withoutApplePay, CardFacetIndex.APPLE_PAY, false);
+
+		// Every third card supports Apple Pay: ordinals 0, 3, ..., 69
+		assertEquals(24, CardFacetIndex.count(withApplePay));
+		assertEquals(CARDS - 24, CardFacetIndex.count(withoutApplePay));
+		assertTrue(index.collect(withoutApplePay, cards, Integer.MAX_VALUE).stream()
+				.noneMatch(Card::isApplePaySupported));
+	}
+
+	@Test
+	void retainFlagRejectsUnknownFlags() {
+		CardFacetIndex index = CardFacetIndex.build(cards());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> index.retainFlag(index.allCards(), "cashback", true));
+	}
+
+	@Test
+	void filtersCombineByAnd() {
+		List<Card> cards = cards();
+		CardFacetIndex index = CardFacetIndex.build(cards);
+		long[] selection = index.allCards();
+
+		index.retain(selection, CardFacetIndex.CARD_SYSTEM, "Visa");
+		index.retainFlag(selection, CardFacetIndex.APPLE_PAY, true);
+
+		// Even ordinals divisible by three
+		List<Card> matches = index.collect(selection, cards, Integer.MAX_VALUE);
+		assertEquals(12, matches.size());
+		assertTrue(matches.stream().allMatch(card -> card.getId() % 6 == 0));
+	}
+
+	@Test
+	void collectReturnsCardsInOrdinalOrderUpToTheLimit() {
+		List<Card> cards = cards();
+		CardFacetIndex index = CardFacetIndex.build(cards);
+		long[] selection = index.allCards();
+		index.retain(selection, CardFacetIndex.CARD_SYSTEM, "Mastercard");
+
+		List<Card> page = index.collect(selection, cards, 3);
+
+		assertEquals(List.of(1L, 3L, 5L), page.stream().map(Card::getId).toList());
+	}
+
+	@Test
+	void collectCrossesWordBoundaries() {
+		List<Card> cards = cards();
+		CardFacetIndex index = CardFacetIndex.build(cards);
+		long[] selection = index.allCards();
+		index.retain(selection, CardFacetIndex.CARD_TYPE, "Debit");
+
+		// Only ordinals 60 and up are debit cards
+		List<Card> debit = index.collect(selection, cards, Integer.MAX_VALUE);
+		assertEquals(10, debit.size());
+		assertEquals(60L, debit.get(0).getId());
+		assertEquals(69L, debit.get(9).getId());
+	}
+
+	@Test
+	void facetCountsUseNormalizedValues() {
+		Map<String, Map<String, Integer>> counts = CardFacetIndex.build(cards()).getFacetCounts();
+
+		assertEquals(Map.of("VISA", 35, "MASTERCARD", 35), counts.get(CardFacetIndex.CARD_SYSTEM));
+		assertEquals(Map.of("CREDIT", 60, "DEBIT", 10), counts.get(CardFacetIndex.CARD_TYPE));
+		// Cards without a grade are not counted
+		assertEquals(Map.of(), counts.get(CardFacetIndex.PAYMENT_GRADE));
+	}
+
+	@Test
+	void emptyCatalogSelectsNothing() {
+		CardFacetIndex index = CardFacetIndex.build(List.of());
+		long[] selection = index.allCards();
+		index.retainFlag(selection, CardFacetIndex.APPLE_PAY, false);
+
+		assertEquals(0, CardFacetIndex.count(selection));
+		assertTrue(index.collect(selection, List.of(), 10).isEmpty());
+	}
+
+	private static List<Card> cards() {
+		List<Card> cards = new ArrayList<>();
+		for (int ordinal = 0; ordinal < CARDS; ordinal++) {
+			Card card = new Card();
+			card.setId((long) ordinal);
+			card.setCardSystem(ordinal % 2 == 0 ? "Visa" : "Mastercard");
+			card.setCardType(ordinal < 60 ? "Credit" : "debit ");
+			card.setApplePaySupported(ordinal % 3 == 0);
+			cards.add(card);
+		}
+		return cards;
+	}
+}
@@ -0,0 +1,147 @@
+package fin.kk.mcp.service;
+
+import fin.kk.mcp.model.Card;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardRangeIndexTest {
+
+	// Annual fees by ordinal; ordinal 2 has none
+	private static final List<Card> CARDS = List.of(
+			card(0, "19.99"),
+			card(1, "0"),
+			card(2, null),
+			card(3, "99"),
+			card(4, "19.99"),
+			card(5, "45.50"));
+
+	@Test
+	void retainRangeKeepsValuesWithinInclusiveBounds() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+		long[] selection = allCards();
+
+		index.retainRange(selection, CardRangeIndex.ANNUAL_FEE, new BigDecimal("19.99"), new BigDecimal("45.50"));
+
+		assertEquals(List.of(0L, 4L, 5L), ids(selection));
+	}
+
+	@Test
+	void retainRangeRoundsBoundsInward() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+		long[] selection = allCards();
+
+		// 19.991 rounds up to 20.00 and 45.509 down to 45.50
+		index.retainRange(selection, CardRangeIndex.ANNUAL_FEE, new BigDecimal("19.991"), new BigDecimal("45.509"));
+
+		assertEquals(List.of(5L), ids(selection));
+	}
+
+	@Test
+	void retainRangeWithOneBoundDropsCardsWithoutValue() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+
+		long[] upTo = allCards();
+		index.retainRange(upTo, CardRangeIndex.ANNUAL_FEE, null, new BigDecimal("20"));
+		assertEquals(List.of(0L, 1L, 4L), ids(upTo));
+
+		long[] from = allCards();
+		index.retainRange(from, CardRangeIndex.ANNUAL_FEE, new BigDecimal("20"), null);
+		assertEquals(List.of(3L, 5L), ids(from));
+	}
+
+	@Test
+	void retainRangeWithoutBoundsKeepsTheSelection() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+		long[] selection = allCards();
+
+		index.retainRange(selection, CardRangeIndex.ANNUAL_FEE, null, null);
+
+		assertEquals(CARDS.size(), CardFacetIndex.count(selection));
+	}
+
+	@Test
+	void retainRangeOnlyNarrowsTheSelection() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+		long[] selection = new long[1];
+		selection[0] = 0b000011;
+
+		index.retainRange(selection, CardRangeIndex.ANNUAL_FEE, BigDecimal.ZERO, new BigDecimal("100"));
+
+		assertEquals(List.of(0L, 1L), ids(selection));
+	}
+
+	@Test
+	void collectSortedAscendingPutsCardsWithoutValueLast() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+
+		List<Card> sorted = index.collectSorted(allCards(), CardRangeIndex.ANNUAL_FEE, false, 0, 10, CARDS);
+
+		// Equal values keep ordinal order
+		assertEquals(List.of(1L, 0L, 4L, 5L, 3L, 2L), sorted.stream().map(Card::getId).toList());
+	}
+
+	@Test
+	void collectSortedDescendingStillPutsCardsWithoutValueLast() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+
+		List<Card> sorted = index.collectSorted(allCards(), CardRangeIndex.ANNUAL_FEE, true, 0, 10, CARDS);
+
+		assertEquals(List.of(3L, 5L, 4L, 0L, 1L, 2L), sorted.stream().map(Card::getId).toList());
+	}
+
+	@Test
+	void collectSortedPagesOverTheSelectedCards() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+		long[] selection = allCards();
+		// Drop the card with the lowest fee
+		selection[0] &= ~(1L << 1);
+
+		List<Card> page = index.collectSorted(selection, CardRangeIndex.ANNUAL_FEE, false, 1, 2, CARDS);
+
+		assertEquals(List.of(4L, 5L), page.stream().map(Card::getId).toList());
+	}
+
+	@Test
+	void unknownAttributesAreRejected() {
+		CardRangeIndex index = CardRangeIndex.build(CARDS);
+
+		assertTrue(CardRangeIndex.isAttribute(CardRangeIndex.CUSTOMER_RATING));
+		assertFalse(CardRangeIndex.isAttribute("cardName"));
+		assertThrows(IllegalArgumentException.class,
+				() -> index.retainRange(allCards(), "cardName", BigDecimal.ONE, null));
+		assertThrows(IllegalArgumentException.class,
+				() -> index.collectSorted(allCards(), "cardName", false, 0, 10, CARDS));
+	}
+
+	@Test
+	void scaleRoundsToHundredths() {
+		assertEquals(1999L, CardRangeIndex.scale(new BigDecimal("19.99"), RoundingMode.FLOOR));
+		assertEquals(2000L, CardRangeIndex.scale(new BigDecimal("19.991"), RoundingMode.CEILING));
+		assertEquals(1999L, CardRangeIndex.scale(new BigDecimal("19.999"), RoundingMode.FLOOR));
+	}
+
+	private static long[] allCards() {
+		return CardFacetIndex.build(CARDS).allCards();
+	}
+
+	private static List<Long> ids(long[] selection) {
+		return CardFacetIndex.build(CARDS).collect(selection, CARDS, Integer.MAX_VALUE).stream()
+				.map(Card::getId)
+				.toList();
+	}
+
+	private static Card card(long id, String annualFee) {
+		Card card = new Card();
+		card.setId(id);
+		card.setAnnualFee(annualFee != null ? new BigDecimal(annualFee) : null);
+		return card;
+	}
+}
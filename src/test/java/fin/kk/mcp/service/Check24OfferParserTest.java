@@ -0,0 +1,333 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fin.kk.mcp.dto.Check24ApiResponse;
+import fin.kk.mcp.model.Card;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Check24OfferParserTest {
+
+	private static final String OFFER = """
+			{
+			  "position": 1,
+			  "product": {
+			    "id": 42,
+			    "name": "Gold Card",
+			    "bank": {"name": "Example Bank", "logo": {"url": "https://example.com/logo.png"}},
+			    "benefits": ["No annual fee", "Free withdrawals"],
+			    "drawbacks": ["High interest"],
+			    "c24OpeningBonus": 50,
+			    "productCondition": {
+			      "cost": {"cost": 19.9, "currency": "EUR"},
+			      "debitInterest": "17.99",
+			      "cardSystem": "VISA",
+			      "cardType": "CREDIT",
+			      "contactlessPayment": true,
+			      "paymentGrade": "1.2",
+			      "withdrawGrade": "1.5",
+			      "insuranceGrade": "2.0",
+			      "productPayment": {
+			        "freeUseEuCurrency": true,
+			        "freeUseWorldCurrency": false,
+			        "freeWithdrawEu": true,
+			        "freeWithdrawWorld": true,
+			        "mobilePaymentSystems": ["APPLE_PAY"]
+			      },
+			      "productInsurance": {
+			        "healthInsuranceAbroad": true,
+			        "accidentInsuranceAbroad": false,
+			        "travelCancelInsurance": true
+			      }
+			    },
+			    "customerFeedbackSummary": {"overallStars": 4.5, "countFeedbacks": "120"},
+			    "grade": {"gradeDescription": "sehr gut", "value": 1.3},
+			    "unmapped": {"nested": [1, 2, {"deep": true}]}
+			  }
+			}
+			""";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Check24OfferParser parser = new Check24OfferParser(objectMapper);
+
+	@Test
+	void mapsAllProductFields() throws IOException {
+		List<Card> cards = parser.parse(body("{\"offers\": [" + OFFER + "]}"));
+
+		assertEquals(1, cards.size());
+		Card card = cards.get(0);
+		assertEquals(42L, card.getId());
+		assertEquals("Gold Card", card.getCardName());
+		assertEquals("Example Bank", card.getBankName());
+		assertEquals(List.of("No annual fee", "Free withdrawals"), card.getBenefits());
+		assertEquals(List.of("High interest"), card.getDrawbacks());
+		assertEquals(0, new BigDecimal("50").compareTo(card.getBonusValue()));
+		assertEquals("50.0 € Bonus bei CHECK24", card.getSignupBonus());
+		assertEquals(0, new BigDecimal("19.9").compareTo(card.getAnnualFee()));
+		assertEquals(0, new BigDecimal("17.99").compareTo(card.getInterestRate()));
+		assertEquals("VISA", card.getCardSystem());
+		assertEquals("CREDIT", card.getCardType());
+		assertTrue(card.isContactlessPayment());
+		assertEquals("1.2", card.getPaymentGrade());
+		assertEquals("1.5", card.getWithdrawGrade());
+		assertEquals("2.0", card.getInsuranceGrade());
+		assertTrue(card.isFreePaymentEuroZone());
+		assertFalse(card.isFreePaymentWorldwide());
+		assertTrue(card.isFreeWithdrawEuroZone());
+		assertTrue(card.isFreeWithdrawWorldwide());
+		assertTrue(card.isApplePaySupported());
+		assertFalse(card.isGooglePaySupported());
+		assertTrue(card.isHealthInsuranceAbroad());
+		assertFalse(card.isAccidentInsuranceAbroad());
+		assertTrue(card.isTravelInsurance());
+		assertEquals(0, new BigDecimal("4.5").compareTo(card.getCustomerRating()));
+		assertEquals(120, card.getCustomerFeedbackCount());
+		assertEquals("sehr gut", card.getGradeDescription());
+	}
+
+	@Test
+	void skipsSectionsBeforeAndAfterTheOffers() throws IOException {
+		String json = "{\"parameters\": {\"filters\": [{\"offers\": [1, 2]}]}, \"count\": 2,"
+				+ " \"offers\": [" + OFFER + ", " + OFFER + "], \"footer\": {\"offers\": []}}";
+
+		List<Card> cards = parser.parse(body(json));
+
+		assertEquals(2, cards.size());
+		assertEquals(42L, cards.get(1).getId());
+	}
+
+	@Test
+	void skipsEntriesOfTheOffersArrayThatAreNotObjects() throws IOException {
+		List<Card> cards = parser.parse(body("{\"offers\": [null, [1, 2], \"ad\", " + OFFER + "]}"));
+
+		assertEquals(1, cards.size());
+		assertEquals("Gold Card", cards.get(0).getCardName());
+	}
+
+	@Test
+	void appliesDefaultsForMissingFields() throws IOException {
+		String json = """
+				{"offers": [{"product": {"id": "7", "bank": null, "productCondition": {"cost": {}}}}]}
+				""";
+
+		Card card = parser.parse(body(json)).get(0);
+
+		assertEquals(7L, card.getId());
+		assertEquals("Unknown Bank", card.getBankName());
+		assertEquals(BigDecimal.ZERO, card.getAnnualFee());
+		assertNull(card.getBonusValue());
+		assertNull(card.getSignupBonus());
+		assertNull(card.getBenefits());
+		assertNull(card.getCustomerFeedbackCount());
+	}
+
+	@Test
+	void ignoresValuesOfTheWrongType() throws IOException {
+		String json = """
+				{"offers": [{"product": {
+				  "name": {"de": "Karte"},
+				  "benefits": "none",
+				  "c24OpeningBonus": "n/a",
+				  "productCondition": {"debitInterest": [1], "cardSystem": ["VISA"]}
+				}}]}
+				""";
+
+		Card card = parser.parse(body(json)).get(0);
+
+		assertNull(card.getCardName());
+		assertNull(card.getBenefits());
+		assertNull(card.getBonusValue());
+		assertNull(card.getInterestRate());
+		assertNull(card.getCardSystem());
+	}
+
+	@Test
+	void payloadWithoutOffersYieldsNoCards() throws IOException {
+		assertTrue(parser.parse(body("{\"parameters\": {}, \"offers\": null}")).isEmpty());
+		assertTrue(parser.parse(body("{}")).isEmpty());
+		assertTrue(parser.parse(body("")).isEmpty());
+	}
+
+	@Test
+	void rejectsPayloadsThatAreNotObjects() {
+		assertThrows(JsonParseException.class, () -> parser.parse(body("[" + OFFER + "]")));
+	}
+
+	@Test
+	void sharesRepeatedValuesBetweenCards() throws IOException {
+		String other = OFFER.replace("\"id\": 42", "\"id\": 43");
+		List<Card> cards = parser.parse(body("{\"offers\": [" + OFFER + ", " + other + "]}"));
+
+		assertSame(cards.get(0).getBankName(), cards.get(1).getBankName());
+		assertSame(cards.get(0).getBenefits(), cards.get(1).getBenefits());
+		assertSame(cards.get(0).getAnnualFee(), cards.get(1).getAnnualFee());
+		assertSame(cards.get(0).getPaymentGrade(), cards.get(1).getPaymentGrade());
+	}
+
+	@Test
+	void incrementalParseReusesCardsOfUnchangedOffers() throws IOException {
+		String other = OFFER.replace("\"id\": 42", "\"id\": 43");
+		ParsedOffers first = parser.parse(body("{\"offers\": [" + OFFER + ", " + other + "]}"), ParsedOffers.empty());
+
+		ParsedOffers second = parser.parse(body("{\"offers\": [" + OFFER + ", " + other + "]}"), first);
+
+		assertEquals(2, first.getMappedCount());
+		assertEquals(0, second.getMappedCount());
+		assertSame(first.getCards().get(0), second.getCards().get(0));
+		assertSame(first.getCards().get(1), second.getCards().get(1));
+	}
+
+	@Test
+	void incrementalParseMapsOnlyChangedOffers() throws IOException {
+		String other = OFFER.replace("\"id\": 42", "\"id\": 43");
+		ParsedOffers first = parser.parse(body("{\"offers\": [" + OFFER + ", " + other + "]}"), ParsedOffers.empty());
+
+		String changed = other.replace("\"c24OpeningBonus\": 50", "\"c24OpeningBonus\": 75");
+		ParsedOffers second = parser.parse(body("{\"offers\": [" + changed + ", " + OFFER + "]}"), first);
+
+		assertEquals(1, second.getMappedCount());
+		assertSame(first.getCards().get(0), second.getCards().get(1));
+		assertEquals(43L, second.getCards().get(0).getId());
+		assertEquals(0, new BigDecimal("75").compareTo(second.getCards().get(0).getBonusValue()));
+	}
+
+	@Test
+	void incrementalParseIgnoresFormatting() throws IOException {
+		ParsedOffers first = parser.parse(body("{\"offers\": [" + OFFER + "]}"), ParsedOffers.empty());
+		String compact = new ObjectMapper().readTree(OFFER).toString();
+
+		ParsedOffers second = parser.parse(body("{\"offers\": [" + compact + "]}"), first);
+
+		assertEquals(0, second.getMappedCount());
+		assertSame(first.getCards().get(0), second.getCards().get(0));
+	}
+
+	@Test
+	void incrementalParseMapsRepeatedOffersOnce() throws IOException {
+		ParsedOffers parsed = parser.parse(body("{\"offers\": [" + OFFER + ", " + OFFER + "]}"), ParsedOffers.empty());
+
+		assertEquals(1, parsed.getMappedCount());
+		assertEquals(2, parsed.getCards().size());
+		assertSame(parsed.getCards().get(0), parsed.getCards().get(1));
+	}
+
+	@Test
+	void incrementalParseWithoutOffersIsEmpty() throws IOException {
+		ParsedOffers first = parser.parse(body("{\"offers\": [" + OFFER + "]}"), ParsedOffers.empty());
+
+		assertSame(ParsedOffers.empty(), parser.parse(body("{\"parameters\": {}}"), first));
+	}
+
+	@Test
+	void producesTheSameCardsAsTheDtoMapping() throws IOException {
+		String debit = OFFER.replace("\"id\": 42", "\"id\": \"43\"")
+				.replace("\"CREDIT\"", "\"DEBIT\"")
+				.replace("[\"APPLE_PAY\"]", "[\"GOOGLE_PAY\", \"APPLE_PAY\"]")
+				.replace("\"overallStars\": 4.5", "\"overallStars\": null");
+		String sparse = """
+				{"product": {"id": 44, "name": "Basic", "productCondition": {"cost": {},
+				  "productPayment": {"freeUseEuCurrency": false}}, "customerFeedbackSummary": {}}}
+				""";
+		String json = "{\"meta\": {\"unfilteredCount\": 5}, \"parameters\": {\"filters\": []}, \"offers\": ["
+				+ OFFER + ", " + debit + ", " + sparse + ", {\"position\": 4}, {\"product\": {}}]}";
+
+		List<Card> streamed = parser.parse(body(json));
+		List<Card> mapped = objectMapper.readValue(json, Check24ApiResponse.class).getOffers().stream()
+				.map(Check24OfferParserTest::mapOfferToCard)
+				.toList();
+
+		assertEquals(mapped.size(), streamed.size());
+		for (int i = 0; i < mapped.size(); i++) {
+			JsonNode expected = objectMapper.valueToTree(mapped.get(i));
+			JsonNode actual = objectMapper.valueToTree(streamed.get(i));
+			// Numbers may differ in scale only, e.g. 19.9 bound from a Double vs. parsed from the text
+			assertTrue(expected.equals((a, b) -> a.isNumber() && b.isNumber()
+					? a.decimalValue().compareTo(b.decimalValue()) : a.equals(b) ? 0 : 1, actual),
+					"offer " + i + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	private static InputStream body(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * The mapping of a bound {@link Check24ApiResponse.Offer} that Check24CardClient applied
+	 * before it streamed the payload, kept as the reference for the parser
+	 */
+	private static Card mapOfferToCard(Check24ApiResponse.Offer offer) {
+		Card card = new Card();
+		if (offer.getProduct() == null) {
+			return card;
+		}
+		Check24ApiResponse.Product product = offer.getProduct();
+		card.setId(product.getId());
+		card.setCardName(product.getName());
+		card.setBankName(product.getBank() != null ? product.getBank().getName() : "Unknown Bank");
+		card.setBenefits(product.getBenefits());
+		card.setDrawbacks(product.getDrawbacks());
+		if (product.getC24OpeningBonus() != null) {
+			card.setBonusValue(BigDecimal.valueOf(product.getC24OpeningBonus()));
+			card.setSignupBonus(product.getC24OpeningBonus() + " € Bonus bei CHECK24");
+		}
+		if (product.getProductCondition() != null) {
+			Check24ApiResponse.ProductCondition condition = product.getProductCondition();
+			if (condition.getCost() != null) {
+				card.setAnnualFee(condition.getCost().getCost() != null
+						? BigDecimal.valueOf(condition.getCost().getCost()) : BigDecimal.ZERO);
+			}
+			if (condition.getDebitInterest() != null) {
+				card.setInterestRate(BigDecimal.valueOf(condition.getDebitInterest()));
+			}
+			card.setCardSystem(condition.getCardSystem());
+			card.setCardType(condition.getCardType());
+			card.setContactlessPayment(Boolean.TRUE.equals(condition.getContactlessPayment()));
+			card.setPaymentGrade(condition.getPaymentGrade());
+			card.setWithdrawGrade(condition.getWithdrawGrade());
+			card.setInsuranceGrade(condition.getInsuranceGrade());
+			if (condition.getProductPayment() != null) {
+				Check24ApiResponse.ProductPayment payment = condition.getProductPayment();
+				card.setFreePaymentEuroZone(Boolean.TRUE.equals(payment.getFreeUseEuCurrency()));
+				card.setFreePaymentWorldwide(Boolean.TRUE.equals(payment.getFreeUseWorldCurrency()));
+				card.setFreeWithdrawEuroZone(Boolean.TRUE.equals(payment.getFreeWithdrawEu()));
+				card.setFreeWithdrawWorldwide(Boolean.TRUE.equals(payment.getFreeWithdrawWorld()));
+				if (payment.getMobilePaymentSystems() != null) {
+					card.setApplePaySupported(payment.getMobilePaymentSystems().contains("APPLE_PAY"));
+					card.setGooglePaySupported(payment.getMobilePaymentSystems().contains("GOOGLE_PAY"));
+				}
+			}
+			if (condition.getProductInsurance() != null) {
+				Check24ApiResponse.ProductInsurance insurance = condition.getProductInsurance();
+				card.setHealthInsuranceAbroad(Boolean.TRUE.equals(insurance.getHealthInsuranceAbroad()));
+				card.setAccidentInsuranceAbroad(Boolean.TRUE.equals(insurance.getAccidentInsuranceAbroad()));
+				card.setTravelInsurance(Boolean.TRUE.equals(insurance.getTravelCancelInsurance()));
+			}
+		}
+		if (product.getCustomerFeedbackSummary() != null) {
+			Check24ApiResponse.CustomerFeedbackSummary feedback = product.getCustomerFeedbackSummary();
+			if (feedback.getOverallStars() != null) {
+				card.setCustomerRating(BigDecimal.valueOf(feedback.getOverallStars()));
+			}
+			card.setCustomerFeedbackCount(feedback.getCountFeedbacks());
+		}
+		if (product.getGrade() != null) {
+			card.setGradeDescription(product.getGrade().getGradeDescription());
+		}
+		return card;
+	}
+}
@@ -0,0 +1,115 @@
+package fin.kk.mcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+	@Test
+	void opensAfterConsecutiveFailures() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("check24", 3, Duration.ofMinutes(5));
+
+		fail(circuitBreaker);
+		fail(circuitBreaker);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		fail(circuitBreaker);
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+		assertThrows(CallNotPermittedException.class, () -> circuitBreaker.execute(() -> "cards"));
+	}
+
+	@Test
+	void successResetsTheFailureCount() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("check24", 2, Duration.ofMinutes(5));
+
+		fail(circuitBreaker);
+		assertEquals("cards", circuitBreaker.execute(() -> "cards"));
+		fail(circuitBreaker);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	void halfOpenTrialSuccessCloses() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("check24", 1, Duration.ZERO);
+		List<String> transitions = new ArrayList<>();
+		circuitBreaker.addTransitionListener((from, to) -> transitions.add(from + "->" + to));
+
+		fail(circuitBreaker);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		assertEquals("cards", circuitBreaker.execute(() -> "cards"));
+
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+	}
+
+	@Test
+	void halfOpenTrialFailureReopens() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("check24", 1, Duration.ZERO);
+		List<String> transitions = new ArrayList<>();
+		circuitBreaker.addTransitionListener((from, to) -> transitions.add(from + "->" + to));
+
+		fail(circuitBreaker);
+		fail(circuitBreaker);
+
+		assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"), transitions);
+	}
+
+	@Test
+	void halfOpenAllowsASingleTrialCall() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("check24", 1, Duration.ZERO);
+		fail(circuitBreaker);
+
+		CountDownLatch trialStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> trial = executor.submit(() -> circuitBreaker.execute(() -> {
+				trialStarted.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				return "cards";
+			}));
+			assertTrue(trialStarted.await(5, TimeUnit.SECONDS));
+
+			assertThrows(CallNotPermittedException.class, () -> circuitBreaker.execute(() -> "cards"));
+			release.countDown();
+			assertEquals("cards", trial.get(5, TimeUnit.SECONDS));
+			assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void refusalFurtherDownIsNotAFailure() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("check24", 1, Duration.ofMinutes(5));
+
+		assertThrows(CallNotPermittedException.class, () -> circuitBreaker.execute(() -> {
+			throw new CallNotPermittedException("bulkhead full");
+		}));
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	void rejectsInvalidThreshold() {
+		assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker("check24", 0, Duration.ofMinutes(5)));
+	}
+
+	private static void fail(CircuitBreaker circuitBreaker) {
+		assertThrows(IOException.class, () -> circuitBreaker.execute(() -> {
+			throw new IOException("upstream down");
+		}));
+	}
+}
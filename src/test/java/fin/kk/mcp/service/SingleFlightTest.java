@@ -0,0 +1,119 @@
+package fin.kk.mcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+	@Test
+	void concurrentCallersShareOneExecution() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<Integer> leader = executor.submit(() -> singleFlight.execute("cards", () -> {
+				started.countDown();
+				await(release);
+				return calls.incrementAndGet();
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			Future<Integer> follower1 = executor.submit(() -> singleFlight.execute("cards", calls::incrementAndGet));
+			Future<Integer> follower2 = executor.submit(() -> singleFlight.execute("cards", calls::incrementAndGet));
+			// Followers block on the leader's call until it completes
+			while (singleFlight.getCoalescedCount() < 2) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+
+			assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+			assertEquals(1, follower1.get(5, TimeUnit.SECONDS));
+			assertEquals(1, follower2.get(5, TimeUnit.SECONDS));
+			assertEquals(1, calls.get());
+			assertEquals(1, singleFlight.getExecutionCount());
+			assertEquals(2, singleFlight.getCoalescedCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void keyIsReleasedAfterTheCall() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger calls = new AtomicInteger();
+
+		assertEquals(1, singleFlight.execute("cards", calls::incrementAndGet));
+		assertEquals(2, singleFlight.execute("cards", calls::incrementAndGet));
+		assertEquals(2, singleFlight.getExecutionCount());
+		assertEquals(0, singleFlight.getCoalescedCount());
+	}
+
+	@Test
+	void differentKeysDoNotCoalesce() {
+		SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+		// "b" is requested while "a" is in flight
+		assertEquals("ab", singleFlight.execute("a", () -> "a" + singleFlight.execute("b", () -> "b")));
+		assertEquals(2, singleFlight.getExecutionCount());
+		assertEquals(0, singleFlight.getCoalescedCount());
+	}
+
+	@Test
+	void failureIsRethrownAndReleasesTheKey() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		IllegalStateException failure = new IllegalStateException("upstream down");
+
+		assertSame(failure, assertThrows(IllegalStateException.class,
+				() -> singleFlight.execute("cards", () -> { throw failure; })));
+		assertEquals(7, singleFlight.execute("cards", () -> 7));
+	}
+
+	@Test
+	void followersGetTheLeadersException() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> leader = executor.submit(() -> singleFlight.execute("cards", () -> {
+				started.countDown();
+				await(release);
+				throw new IllegalStateException("upstream down");
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Future<Integer> follower = executor.submit(() -> singleFlight.execute("cards", () -> 1));
+			while (singleFlight.getCoalescedCount() < 1) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+
+			Throwable leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause();
+			Throwable followerFailure = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause();
+			assertTrue(leaderFailure instanceof IllegalStateException);
+			assertSame(leaderFailure, followerFailure);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamedToolCallsTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final List<String> started = new ArrayList<>();
+	private final Map<String, String> arguments = new LinkedHashMap<>();
+	private final Map<String, CompletableFuture<Map<String, Object>>> pending = new LinkedHashMap<>();
+
+	@Test
+	void fragmentsAreAssembledByIndex() {
+		StreamedToolCalls toolCalls = toolCalls(1, Set.of());
+
+		toolCalls.append(fragment(0, "call_1", "searchCards", "{\"cardSystem\":"));
+		toolCalls.append(fragment(0, null, null, "\"VISA\"}"));
+		toolCalls.append(fragment(1, "call_2", "getCardDetails", "{}"));
+
+		List<Map<String, Object>> messages = toolCalls.toMessages();
+		assertEquals(2, messages.size());
+		assertEquals("call_1", messages.get(0).get("id"));
+		assertEquals("function", messages.get(0).get("type"));
+		assertEquals(Map.of("name", "searchCards", "arguments", "{\"cardSystem\":\"VISA\"}"),
+				messages.get(0).get("function"));
+		assertEquals(Map.of("name", "getCardDetails", "arguments", "{}"), messages.get(1).get("function"));
+	}
+
+	@Test
+	void fragmentsWithoutIndexBelongToTheLastCall() {
+		StreamedToolCalls toolCalls = toolCalls(1, Set.of());
+
+		toolCalls.append(fragment(null, "call_1", "searchCards", "{\"limit\""));
+		toolCalls.append(fragment(null, null, null, ":5}"));
+
+		assertEquals(1, toolCalls.toMessages().size());
+		assertEquals(Map.of("name", "searchCards", "arguments", "{\"limit\":5}"),
+				toolCalls.toMessages().get(0).get("function"));
+	}
+
+	@Test
+	void callStartsOnceTheNextCallAppears() {
+		StreamedToolCalls toolCalls = toolCalls(4, Set.of());
+
+		assertEquals(List.of(), toolCalls.append(fragment(0, "call_1", "searchCards", "{\"limit\":")));
+		assertEquals(List.of(), toolCalls.append(fragment(0, null, null, "5}")));
+		assertEquals(List.of(), started);
+
+		assertEquals(List.of("searchCards"), toolCalls.append(fragment(1, "call_2", "getCardDetails", "{}")));
+		assertEquals(List.of("call_1"), started);
+		assertEquals("{\"limit\":5}", arguments.get("call_1"));
+
+		assertEquals(List.of("getCardDetails"), toolCalls.finish());
+		assertEquals(List.of("call_1", "call_2"), started);
+		assertEquals(List.of(), toolCalls.complete());
+	}
+
+	@Test
+	void deferredToolsAndLaterCallsWaitForComplete() {
+		StreamedToolCalls toolCalls = toolCalls(4, Set.of("submitApplication"));
+
+		toolCalls.append(fragment(0, "call_1", "searchCards", "{}"));
+		toolCalls.append(fragment(1, "call_2", "submitApplication", "{}"));
+		toolCalls.append(fragment(2, "call_3", "getCardDetails", "{}"));
+		assertEquals(List.of(), toolCalls.finish());
+		assertEquals(List.of("call_1"), started);
+
+		assertEquals(List.of("submitApplication", "getCardDetails"), toolCalls.complete());
+		assertEquals(List.of("call_1", "call_2", "call_3"), started);
+	}
+
+	@Test
+	void callsWaitForTheCallConcurrencyPlacesBefore() {
+		StreamedToolCalls toolCalls = toolCalls(2, Set.of());
+
+		toolCalls.append(fragment(0, "call_1", "searchCards", "{}"));
+		toolCalls.append(fragment(1, "call_2", "searchCards", "{}"));
+		toolCalls.append(fragment(2, "call_3", "searchCards", "{}"));
+		toolCalls.finish();
+		assertEquals(List.of("call_1", "call_2"), started);
+
+		pending.get("call_2").complete(result("call_2"));
+		assertEquals(List.of("call_1", "call_2"), started);
+
+		pending.get("call_1").complete(result("call_1"));
+		assertEquals(List.of("call_1", "call_2", "call_3"), started);
+	}
+
+	@Test
+	void resultsKeepCallOrder() {
+		StreamedToolCalls toolCalls = toolCalls(3, Set.of());
+		toolCalls.append(fragment(0, "call_1", "searchCards", "{}"));
+		toolCalls.append(fragment(1, "call_2", "getCardDetails", "{}"));
+		toolCalls.append(fragment(2, "call_3", "getCardDetails", "{}"));
+		toolCalls.complete();
+
+		pending.get("call_3").complete(result("call_3"));
+		pending.get("call_1").complete(result("call_1"));
+		pending.get("call_2").complete(result("call_2"));
+
+		List<Map<String, Object>> results = toolCalls.results().block();
+		assertEquals(List.of("call_1", "call_2", "call_3"),
+				results.stream().map(message -> message.get("tool_call_id")).toList());
+	}
+
+	@Test
+	void cancelStopsRunningCallsAndStartsNoMore() {
+		AtomicBoolean stopped = new AtomicBoolean();
+		StreamedToolCalls toolCalls = new StreamedToolCalls((id, name, args) -> {
+			started.add(id);
+			return Mono.fromFuture(new CompletableFuture<Map<String, Object>>())
+					.doOnCancel(() -> stopped.set(true));
+		}, 1, Set.of("submitApplication"));
+
+		toolCalls.append(fragment(0, "call_1", "searchCards", "{}"));
+		toolCalls.append(fragment(1, "call_2", "submitApplication", "{}"));
+		assertEquals(List.of("call_1"), started);
+		assertFalse(stopped.get());
+
+		toolCalls.cancel();
+		assertTrue(stopped.get());
+		assertEquals(List.of(), toolCalls.append(fragment(2, "call_3", "searchCards", "{}")));
+		assertEquals(List.of(), toolCalls.complete());
+		assertEquals(List.of("call_1"), started);
+	}
+
+	@Test
+	void noFragmentsMeansNoCalls() {
+		StreamedToolCalls toolCalls = toolCalls(1, Set.of());
+
+		assertTrue(toolCalls.isEmpty());
+		assertEquals(List.of(), toolCalls.complete());
+		assertEquals(List.of(), toolCalls.results().block());
+	}
+
+	/**
+	 * Tool calls whose executions record their start and finish once the test completes them
+	 */
+	private StreamedToolCalls toolCalls(int concurrency, Set<String> deferredTools) {
+		return new StreamedToolCalls((id, name, args) -> {
+			started.add(id);
+			arguments.put(id, args);
+			CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+			pending.put(id, result);
+			return Mono.fromFuture(result);
+		}, concurrency, deferredTools);
+	}
+
+	private static Map<String, Object> result(String toolCallId) {
+		return Map.of("role", "tool", "tool_call_id", toolCallId, "content", "{}");
+	}
+
+	private static JsonNode fragment(Integer index, String id, String name, String arguments) {
+		ObjectNode fragment = MAPPER.createObjectNode();
+		if (index != null) {
+			fragment.put("index", index);
+		}
+		if (id != null) {
+			fragment.put("id", id);
+			fragment.put("type", "function");
+		}
+		ObjectNode function = fragment.putObject("function");
+		if (name != null) {
+			function.put("name", name);
+		}
+		function.put("arguments", arguments);
+		return fragment;
+	}
+}
@@ -0,0 +1,104 @@
+package fin.kk.mcp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ToolResultMemoTest {
+
+	private final ToolResultMemo memo = new ToolResultMemo(new ObjectMapper(),
+			Set.of("searchCards", "getApplicationStatus"), Set.of("submitApplication", "cancelApplication"));
+
+	private final AtomicInteger executions = new AtomicInteger();
+
+	@Test
+	void keyIgnoresKeyOrderAndNullValues() {
+		String key = memo.key("searchCards", "{\"cardSystem\":\"VISA\",\"limit\":5}");
+
+		assertEquals(key, memo.key("searchCards", "{\"limit\":5,\"cardSystem\":\"VISA\"}"));
+		assertEquals(key, memo.key("searchCards", "{ \"limit\": 5, \"offset\": null, \"cardSystem\": \"VISA\" }"));
+	}
+
+	@Test
+	void keySortsNestedObjectsButKeepsArrayOrder() {
+		assertEquals(memo.key("searchCards", "{\"range\":{\"min\":1,\"max\":2}}"),
+				memo.key("searchCards", "{\"range\":{\"max\":2,\"min\":1}}"));
+		assertNotEquals(memo.key("searchCards", "{\"ids\":[1,2]}"),
+				memo.key("searchCards", "{\"ids\":[2,1]}"));
+	}
+
+	@Test
+	void keyTreatsMissingArgumentsAsEmptyObject() {
+		String key = memo.key("searchCards", "{}");
+
+		assertEquals(key, memo.key("searchCards", null));
+		assertEquals(key, memo.key("searchCards", " "));
+		assertEquals(key, memo.key("searchCards", "{\"limit\":null}"));
+	}
+
+	@Test
+	void keyDistinguishesTools() {
+		assertNotEquals(memo.key("searchCards", "{}"), memo.key("getApplicationStatus", "{}"));
+	}
+
+	@Test
+	void callsOfOtherToolsOrWithInvalidArgumentsHaveNoKey() {
+		assertNull(memo.key("submitApplication", "{}"));
+		assertNull(memo.key("unknownTool", "{}"));
+		assertNull(memo.key("searchCards", "{\"limit\":"));
+	}
+
+	@Test
+	void repeatedCallsShareTheResult() {
+		assertEquals("result 1", memo.invoke("searchCards", "{\"a\":1,\"b\":2}", execution()).block());
+		assertEquals("result 1", memo.invoke("searchCards", "{\"b\":2,\"a\":1}", execution()).block());
+		assertEquals("result 2", memo.invoke("searchCards", "{\"a\":2}", execution()).block());
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	void callsOfOtherToolsAlwaysRun() {
+		memo.invoke("getCardDetails", "{}", execution()).block();
+		memo.invoke("getCardDetails", "{}", execution()).block();
+
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	void mutatingCallsForgetAllResults() {
+		memo.invoke("getApplicationStatus", "{}", execution()).block();
+		memo.invoke("submitApplication", "{}", execution()).block();
+		assertEquals("result 3", memo.invoke("getApplicationStatus", "{}", execution()).block());
+
+		memo.invoke("cancelApplication", "{}", execution()).block();
+		assertEquals("result 5", memo.invoke("getApplicationStatus", "{}", execution()).block());
+	}
+
+	@Test
+	void failedCallsAreNotRemembered() {
+		Supplier<Mono<String>> failing = () -> {
+			executions.incrementAndGet();
+			return Mono.error(new IllegalStateException("catalog unavailable"));
+		};
+
+		assertThrows(IllegalStateException.class, () -> memo.invoke("searchCards", "{}", failing).block());
+		assertEquals("result 2", memo.invoke("searchCards", "{}", execution()).block());
+		assertEquals("result 2", memo.invoke("searchCards", "{}", execution()).block());
+	}
+
+	/**
+	 * Execution returning a numbered result, counting how often the tool actually ran
+	 */
+	private Supplier<Mono<String>> execution() {
+		return () -> Mono.just("result " + executions.incrementAndGet());
+	}
+}